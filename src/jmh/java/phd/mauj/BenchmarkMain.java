@@ -0,0 +1,24 @@
+package phd.mauj;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// ============================================================================
+// BENCHMARK LAUNCHER
+// ============================================================================
+
+// Runs the hot-path benchmarks with the gc profiler, so allocation rates are reported
+// next to throughput and latency. Usage: BenchmarkMain [benchmark regex]
+// (java -jar target/benchmarks.jar takes the full JMH options instead).
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(args.length > 0 ? args[0] : "phd\\.mauj\\..*Benchmark")
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,54 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// ============================================================================
+// HIGH-LEVEL NODE BENCHMARKS
+// ============================================================================
+
+// Conflict detection over the root paths of the fixture, and the construction of a node
+// from them, as done for every generated child
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HighLevelBenchmark {
+    private ACBS solver;
+    private List<Conflict> conflicts;
+    private int gCost;
+
+    @Setup
+    public void setUp(MapFixture fixture) {
+        solver = new ACBS(fixture.grid, new ArrayList<>(), 1000, 1.2);
+        conflicts = solver.findConflicts(fixture.paths, fixture.index);
+        gCost = 0;
+        for (Path path : fixture.paths) gCost += path.getCost();
+    }
+
+    @Benchmark
+    public void findConflicts(MapFixture fixture, Blackhole blackhole) {
+        blackhole.consume(solver.findConflicts(fixture.paths, fixture.index));
+    }
+
+    @Benchmark
+    public void cbsNodeConstruction(MapFixture fixture, Blackhole blackhole) {
+        blackhole.consume(new CBSNode(fixture.index, fixture.paths.clone(), fixture.noConstraints,
+                                      gCost, 0, 1.2, conflicts));
+    }
+}
@@ -0,0 +1,43 @@
+package phd.mauj;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// ============================================================================
+// MAP BENCHMARKS
+// ============================================================================
+
+// Successor generation (one free cell per invocation, cycling over the map) and parsing
+// of the map file. Neither depends on the agents, so only the first density is worth
+// running: -p agents=10.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapBenchmark {
+    private int next = 0;
+
+    @Benchmark
+    public void getNeighbors(MapFixture fixture, Blackhole blackhole) {
+        blackhole.consume(fixture.grid.getNeighbors(fixture.freeCells.get(next)));
+        next = (next + 1) % fixture.freeCells.size();
+    }
+
+    @Benchmark
+    public void loadMap(MapFixture fixture, Blackhole blackhole) throws IOException {
+        blackhole.consume(MovingAIMapLoader.loadMap(fixture.file()));
+    }
+}
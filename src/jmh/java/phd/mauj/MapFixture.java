@@ -0,0 +1,58 @@
+package phd.mauj;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// ============================================================================
+// BENCHMARK FIXTURE (bundled maps at several agent densities)
+// ============================================================================
+
+// One of the maps in maps/ with a random instance on it (fixed seed), and the shortest
+// path of every agent, which is what a root node holds. Benchmarks run from the project
+// directory, where maps/ is.
+@State(Scope.Benchmark)
+public class MapFixture {
+    @Param({"empty-32-32.map", "warehouse-10-20-10-2-1.map", "den520d.map"})
+    public String map;
+
+    @Param({"10", "50", "200"})
+    public int agents;
+
+    GridMap grid;
+    List<Agent> instance;
+    AgentIndex index;
+    Path[] paths;
+    Set<Constraint> noConstraints = new HashSet<>();
+    // Free cells of the map, for per-cell benchmarks
+    List<Position> freeCells = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        grid = MovingAIMapLoader.loadMap(file());
+        instance = MovingAIMapLoader.generateRandomInstances(grid, agents, new Random(42));
+        index = new AgentIndex(instance);
+        AStar pathfinder = new AStar(grid);
+        paths = new Path[index.size()];
+        for (int i = 0; i < index.size(); i++) {
+            paths[i] = pathfinder.findPath(index.agent(i), noConstraints, 0);
+        }
+        for (int y = 0; y < grid.getHeight(); y++) {
+            for (int x = 0; x < grid.getWidth(); x++) {
+                if (!grid.isObstacle(x, y)) freeCells.add(new Position(x, y));
+            }
+        }
+    }
+
+    String file() {
+        return "maps/" + map;
+    }
+}
@@ -0,0 +1,63 @@
+package phd.mauj;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// ============================================================================
+// LOW-LEVEL SEARCH BENCHMARKS
+// ============================================================================
+
+// One unconstrained findPath per invocation, cycling through the agents of the fixture.
+// The pathfinders live as long as the trial, so their per-goal caches are warm, as they
+// are during a solve.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathfinderBenchmark {
+    private AStar aStar;
+    private AgileAStar agileAStar;
+    private EnhancedAStar enhancedAStar;
+    private int next = 0;
+
+    @Setup
+    public void setUp(MapFixture fixture) {
+        aStar = new AStar(fixture.grid);
+        agileAStar = new AgileAStar(fixture.grid);
+        enhancedAStar = new EnhancedAStar(fixture.grid);
+    }
+
+    private Agent nextAgent(MapFixture fixture) {
+        Agent agent = fixture.instance.get(next);
+        next = (next + 1) % fixture.instance.size();
+        return agent;
+    }
+
+    @Benchmark
+    public void aStarFindPath(MapFixture fixture, Blackhole blackhole) {
+        blackhole.consume(aStar.findPath(nextAgent(fixture), fixture.noConstraints, 0));
+    }
+
+    @Benchmark
+    public void agileAStarFindPath(MapFixture fixture, Blackhole blackhole) {
+        blackhole.consume(agileAStar.findPath(nextAgent(fixture), fixture.noConstraints, 0));
+    }
+
+    @Benchmark
+    public void enhancedAStarFindPath(MapFixture fixture, Blackhole blackhole) {
+        blackhole.consume(enhancedAStar.findPath(nextAgent(fixture), fixture.noConstraints, 0));
+    }
+}
@@ -5,14 +5,15 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -30,33 +31,173 @@ class ACBS {
     protected final long timeoutMs;
     public final double suboptimalityWeight;
     protected volatile boolean interrupted = false;
+    // Limits of every solve, shared with the low-level searches; the wall time is timeoutMs
+    protected final SearchBudget budget;
     
+    // Strategy tasks run on an executor the solver does not own, so the same
+    // solver can be reused for several solve calls and no threads are created per solve.
     private final ExecutorService strategyExecutor;
     private static final int MAX_CHILDREN_PER_CONFLICT = 4;
     
+    // Duplicate table of the current solve: constraint sets already turned into a node.
+    // Strategies run concurrently, so it must be a concurrent set.
+    protected Set<CBSNode.ConstraintKey> generatedNodes = ConcurrentHashMap.newKeySet();
+    
+    // Pairwise MDD heuristic added to the goal-distance term; pair results are memoized per solve
+    protected HighLevelHeuristic highLevelHeuristic;
+    
+    // Meta-agent merging (MA-CBS): an agent pair whose conflicts are branched on more than
+    // mergeThreshold times in one solve is merged and planned jointly by CoupledAStar.
+    private int mergeThreshold = 10;
+    private boolean restartOnMerge = true;
+    private int maxMetaAgentSize = 3;
+    private static final int MAX_COUPLED_EXPANSIONS = 20000;
+    // Meta-agent of every merged agent (unmerged agents are absent). Replaced on each
+    // merge rather than mutated, since strategy threads read it concurrently.
+    protected volatile Map<Integer, Set<Integer>> metaAgents = new HashMap<>();
+    // Last timestep at which conflicts are detected (and so resolved); see RollingHorizon
+    protected int conflictWindow = Integer.MAX_VALUE;
+    // Prior plan and constraints the next root is built from; set only during a warm solve
+    private Map<Integer, Path> warmPaths;
+    private Set<Constraint> warmConstraints;
+    // Cap on the nodes of OPEN and on their approximate bytes; <= 0: no cap (see BoundedOpenList)
+    protected int maxOpenNodes = 0;
+    protected long maxOpenBytes = 0;
+    // Arena for the payloads of OPEN nodes, reused by every solve; null keeps them on the heap
+    private OffHeapNodeStore nodeStore;
+    
     public ACBS(GridMap map, List<Agent> agents, long timeoutMs, double w) {
+        this(map, agents, timeoutMs, w, SolverExecutors.shared());
+    }
+    
+    public ACBS(GridMap map, List<Agent> agents, long timeoutMs, double w, ExecutorService strategyExecutor) {
         this.map = map;
         // ACBS uses AgileAStar
         this.pathfinder = new AgileAStar(map); 
+        this.budget = new SearchBudget(timeoutMs);
+        pathfinder.setBudget(budget);
         this.timeoutMs = timeoutMs;
         this.suboptimalityWeight = w;
-        this.strategyExecutor = Executors.newFixedThreadPool(3);
+        this.strategyExecutor = strategyExecutor;
+        this.highLevelHeuristic = new HighLevelHeuristic(map, HighLevelHeuristic.Type.WDG);
     }
     
-    public void shutdown() {
-        strategyExecutor.shutdown();
-        try {
-            if (!strategyExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
-                strategyExecutor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            strategyExecutor.shutdownNow();
+    public void setHeuristicType(HighLevelHeuristic.Type type) {
+        this.highLevelHeuristic = new HighLevelHeuristic(map, type);
+    }
+    
+    // threshold <= 0 disables merging; restartOnMerge restarts the search from the root
+    // (with the merged meta-agent) instead of replacing the current node.
+    public void setMetaAgentMerging(int threshold, boolean restartOnMerge) {
+        this.mergeThreshold = threshold;
+        this.restartOnMerge = restartOnMerge;
+    }
+    
+    public void setMaxMetaAgentSize(int maxMetaAgentSize) {
+        this.maxMetaAgentSize = maxMetaAgentSize;
+    }
+    
+    // Only conflicts at timesteps 0..window count; a solution is then collision-free up to
+    // the window and the paths beyond it are only a guide. Integer.MAX_VALUE: no window.
+    public void setConflictWindow(int window) {
+        this.conflictWindow = Math.max(1, window);
+    }
+    
+    // Memory-bounded high level: past either cap the worst OPEN nodes are evicted and
+    // regenerated later, and under further pressure the search turns depth-first
+    public void setOpenListBound(int maxNodes, long maxBytes) {
+        this.maxOpenNodes = maxNodes;
+        this.maxOpenBytes = maxBytes;
+    }
+    
+    // Keeps the paths, constraints and conflicts of the nodes in OPEN off-heap, leaving
+    // small headers in the queue; fewer objects for the collector at the cost of encoding
+    public void setOffHeapNodes(boolean offHeap) {
+        this.nodeStore = offHeap ? new OffHeapNodeStore(suboptimalityWeight) : null;
+    }
+    
+    // Limits and fallback of every solve; configure it before calling solve
+    public SearchBudget getBudget() { return budget; }
+    
+    // Replans the constrained agent alone, or its whole meta-agent jointly once it was merged
+    protected CBSNode buildChild(CBSNode parent, Set<Constraint> constraints, int constrainedAgent,
+                                 List<Agent> agents, GoalDecomposition gd) {
+        Set<Integer> group = metaAgents.get(constrainedAgent);
+        if (group == null) {
+            return createChildNode(parent, constraints, constrainedAgent, agents, gd);
+        }
+        return createMetaAgentChild(parent, constraints, group, agents, gd);
+    }
+    
+    protected CBSNode createMetaAgentChild(CBSNode parent, Set<Constraint> constraints, Set<Integer> group,
+                                           List<Agent> agents, GoalDecomposition gd) {
+        AgentIndex index = parent.agents;
+        List<Agent> members = new ArrayList<>();
+        for (int id : group) members.add(index.byId(id));
+        
+        Map<Integer, Path> groupPaths = new CoupledAStar(map, MAX_COUPLED_EXPANSIONS, budget).findPaths(members, constraints);
+        if (groupPaths == null) return null;
+        
+        Path[] newPaths = parent.paths.clone();
+        int newGCost = parent.gCost;
+        for (Map.Entry<Integer, Path> e : groupPaths.entrySet()) {
+            int i = index.indexOf(e.getKey());
+            newGCost += e.getValue().getCost() - newPaths[i].getCost();
+            newPaths[i] = e.getValue();
+        }
+        
+        List<Conflict> newConflicts = findConflicts(newPaths, index);
+        int newHCost = calculateHeuristic(newPaths, index, constraints, newConflicts, gd);
+        
+        return new CBSNode(index, newPaths, constraints, newGCost, newHCost, 
+                          this.suboptimalityWeight, newConflicts);
+    }
+    
+    // Counts the conflict against its pair of meta-agents; true once the pair should be merged
+    protected boolean recordConflict(Map<Long, Integer> pairConflictCounts, Conflict conflict) {
+        if (mergeThreshold <= 0) return false;
+        
+        Set<Integer> g1 = metaAgents.getOrDefault(conflict.agent1, Set.of(conflict.agent1));
+        Set<Integer> g2 = metaAgents.getOrDefault(conflict.agent2, Set.of(conflict.agent2));
+        if (g1 == g2 || g1.size() + g2.size() > maxMetaAgentSize) return false;
+        
+        int r1 = Collections.min(g1), r2 = Collections.min(g2);
+        long key = ((long) Math.min(r1, r2) << 32) | Math.max(r1, r2);
+        return pairConflictCounts.merge(key, 1, Integer::sum) > mergeThreshold;
+    }
+    
+    // Merges the two meta-agents of the conflict and replans them jointly on top of 'base'.
+    // Returns null (and keeps them separate) if the coupled search fails.
+    protected CBSNode mergeMetaAgents(CBSNode base, Conflict conflict, List<Agent> agents, GoalDecomposition gd) {
+        SearchEvents.HighLevelExpansion event = new SearchEvents.HighLevelExpansion();
+        event.begin();
+        Set<Integer> merged = new TreeSet<>();
+        merged.addAll(metaAgents.getOrDefault(conflict.agent1, Set.of(conflict.agent1)));
+        merged.addAll(metaAgents.getOrDefault(conflict.agent2, Set.of(conflict.agent2)));
+        
+        CBSNode node = createMetaAgentChild(base, base.constraints, merged, agents, gd);
+        event.end();
+        if (event.shouldCommit()) {
+            commitExpansion(event, conflict, "MERGE", node == null ? 0 : 1, node == null ? 0 : 1);
         }
+        if (node == null) return null;
+        
+        Map<Integer, Set<Integer>> updated = new HashMap<>(metaAgents);
+        Set<Integer> group = Collections.unmodifiableSet(merged);
+        for (int id : merged) updated.put(id, group);
+        metaAgents = updated;
+        
+        node.strategyType = "MERGE-" + merged;
+        // Same constraints as 'base' but a different plan: new duplicate-detection round
+        node.subgoalRound = base.subgoalRound + 1;
+        budget.getStats().addNodesGenerated(1);
+        return node;
     }
     
     protected List<CBSNode> generateChildren(CBSNode parent, Conflict conflict, 
                                             List<Agent> agents, GoalDecomposition gd) {
+        SearchEvents.HighLevelExpansion event = new SearchEvents.HighLevelExpansion();
+        event.begin();
         List<Callable<List<CBSNode>>> strategyTasks = new ArrayList<>();
         
         // Add all strategies
@@ -67,9 +208,10 @@ class ACBS {
         List<CBSNode> allChildren = new ArrayList<>();
         
         try {
-            // Run strategies concurrently with a timeout
+            // Run strategies concurrently; their low-level searches stop at the budget,
+            // so waiting for the rest of the wall time is only a safety net
             List<Future<List<CBSNode>>> futures = strategyExecutor.invokeAll(
-                strategyTasks, 500, TimeUnit.MILLISECONDS
+                strategyTasks, budget.remainingMs(), TimeUnit.MILLISECONDS
             );
             
             for (Future<List<CBSNode>> future : futures) {
@@ -90,7 +232,69 @@ class ACBS {
             return new ArrayList<>();
         }
         
-        return pruneChildren(allChildren, parent, conflict, agents, gd);
+        for (CBSNode child : allChildren) {
+            child.subgoalRound = parent.subgoalRound;
+        }
+        
+        SearchStats stats = budget.getStats();
+        long scoringStart = System.nanoTime();
+        List<CBSNode> kept = pruneChildren(allChildren, parent, conflict, agents, gd);
+        stats.addScoringNanos(System.nanoTime() - scoringStart);
+        stats.nodeExpanded();
+        stats.addNodesGenerated(allChildren.size());
+        stats.recordChildren(allChildren, kept);
+        // Pruned children were never expanded; let another branch generate them again
+        if (kept.size() < allChildren.size()) {
+            Set<CBSNode> keptSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            keptSet.addAll(kept);
+            for (CBSNode child : allChildren) {
+                if (keptSet.contains(child)) continue;
+                generatedNodes.remove(child.constraintKey());
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            Set<SearchStats.Strategy> chosen = new TreeSet<>();
+            for (CBSNode child : kept) {
+                SearchStats.Strategy strategy = SearchStats.Strategy.of(child.strategyType);
+                if (strategy != null) chosen.add(strategy);
+            }
+            commitExpansion(event, conflict, chosen.stream().map(Enum::name).collect(Collectors.joining(",")),
+                            allChildren.size(), kept.size());
+        }
+        return kept;
+    }
+    
+    private static void commitExpansion(SearchEvents.HighLevelExpansion event, Conflict conflict,
+                                        String strategy, int produced, int kept) {
+        event.conflictType = conflict.getClass().getSimpleName();
+        event.conflictTime = conflict.time;
+        event.agent1 = conflict.agent1;
+        event.agent2 = conflict.agent2;
+        event.strategy = strategy;
+        event.childrenProduced = produced;
+        event.children = kept;
+        event.commit();
+    }
+    
+    // Resets the duplicate table at the start of a search tree and registers the root
+    protected void resetDuplicateTable(CBSNode root) {
+        generatedNodes = ConcurrentHashMap.newKeySet();
+        generatedNodes.add(root.constraintKey());
+    }
+    
+    // Builds the child's constraint set (parent + added) and claims it in the duplicate
+    // table. Returns null if an identical node was already generated in this solve,
+    // in which case the low-level search for the child is skipped.
+    protected Set<Constraint> claimChildConstraints(CBSNode parent, Constraint added) {
+        if (parent.constraints.contains(added)) return null;
+        
+        Set<Constraint> constraints = new HashSet<>(parent.constraints);
+        constraints.add(added);
+        if (!generatedNodes.add(CBSNode.ConstraintKey.extend(parent, added, constraints))) {
+            return null;
+        }
+        return constraints;
     }
     
     private List<CBSNode> generateTemporalChildren(CBSNode parent, Conflict conflict,
@@ -99,18 +303,18 @@ class ACBS {
         
         if (conflict instanceof VertexConflict vc) {
             // Agent 1 temporal constraint
-            Set<Constraint> constraints1 = new HashSet<>(parent.constraints);
-            constraints1.add(new TemporalConstraint(vc.agent1, vc.time, vc.position, 2));
-            CBSNode child1 = createChildNode(parent, constraints1, vc.agent1, agents, gd);
+            Set<Constraint> constraints1 = claimChildConstraints(parent,
+                new TemporalConstraint(vc.agent1, vc.time, vc.position, 2));
+            CBSNode child1 = constraints1 == null ? null : buildChild(parent, constraints1, vc.agent1, agents, gd);
             if (child1 != null) {
                 child1.strategyType = "TEMPORAL-A1";
                 children.add(child1);
             }
             
             // Agent 2 temporal constraint
-            Set<Constraint> constraints2 = new HashSet<>(parent.constraints);
-            constraints2.add(new TemporalConstraint(vc.agent2, vc.time, vc.position, 2));
-            CBSNode child2 = createChildNode(parent, constraints2, vc.agent2, agents, gd);
+            Set<Constraint> constraints2 = claimChildConstraints(parent,
+                new TemporalConstraint(vc.agent2, vc.time, vc.position, 2));
+            CBSNode child2 = constraints2 == null ? null : buildChild(parent, constraints2, vc.agent2, agents, gd);
             if (child2 != null) {
                 child2.strategyType = "TEMPORAL-A2";
                 children.add(child2);
@@ -126,18 +330,18 @@ class ACBS {
         
         if (conflict instanceof VertexConflict vc) {
             // Agent 1 vertex constraint
-            Set<Constraint> constraints1 = new HashSet<>(parent.constraints);
-            constraints1.add(new VertexConstraint(vc.agent1, vc.time, vc.position));
-            CBSNode child1 = createChildNode(parent, constraints1, vc.agent1, agents, gd);
+            Set<Constraint> constraints1 = claimChildConstraints(parent,
+                new VertexConstraint(vc.agent1, vc.time, vc.position));
+            CBSNode child1 = constraints1 == null ? null : buildChild(parent, constraints1, vc.agent1, agents, gd);
             if (child1 != null) {
                 child1.strategyType = "SPATIAL-A1";
                 children.add(child1);
             }
             
             // Agent 2 vertex constraint
-            Set<Constraint> constraints2 = new HashSet<>(parent.constraints);
-            constraints2.add(new VertexConstraint(vc.agent2, vc.time, vc.position));
-            CBSNode child2 = createChildNode(parent, constraints2, vc.agent2, agents, gd);
+            Set<Constraint> constraints2 = claimChildConstraints(parent,
+                new VertexConstraint(vc.agent2, vc.time, vc.position));
+            CBSNode child2 = constraints2 == null ? null : buildChild(parent, constraints2, vc.agent2, agents, gd);
             if (child2 != null) {
                 child2.strategyType = "SPATIAL-A2";
                 children.add(child2);
@@ -145,18 +349,18 @@ class ACBS {
             
         } else if (conflict instanceof EdgeConflict ec) {
             // Agent 1 edge constraint (A -> B)
-            Set<Constraint> constraints1 = new HashSet<>(parent.constraints);
-            constraints1.add(new EdgeConstraint(ec.agent1, ec.time, ec.from, ec.to));
-            CBSNode child1 = createChildNode(parent, constraints1, ec.agent1, agents, gd);
+            Set<Constraint> constraints1 = claimChildConstraints(parent,
+                new EdgeConstraint(ec.agent1, ec.time, ec.from, ec.to));
+            CBSNode child1 = constraints1 == null ? null : buildChild(parent, constraints1, ec.agent1, agents, gd);
             if (child1 != null) {
                 child1.strategyType = "SPATIAL-EDGE-A1";
                 children.add(child1);
             }
             
             // Agent 2 reverse edge constraint (B -> A)
-            Set<Constraint> constraints2 = new HashSet<>(parent.constraints);
-            constraints2.add(new EdgeConstraint(ec.agent2, ec.time, ec.to, ec.from));
-            CBSNode child2 = createChildNode(parent, constraints2, ec.agent2, agents, gd);
+            Set<Constraint> constraints2 = claimChildConstraints(parent,
+                new EdgeConstraint(ec.agent2, ec.time, ec.to, ec.from));
+            CBSNode child2 = constraints2 == null ? null : buildChild(parent, constraints2, ec.agent2, agents, gd);
             if (child2 != null) {
                 child2.strategyType = "SPATIAL-EDGE-A2";
                 children.add(child2);
@@ -170,13 +374,14 @@ class ACBS {
                                                    List<Agent> agents, GoalDecomposition gd) {
         List<CBSNode> children = new ArrayList<>();
         
-        Path path1 = parent.solution.get(conflict.agent1);
-        Path path2 = parent.solution.get(conflict.agent2);
+        int i1 = parent.agents.indexOf(conflict.agent1);
+        int i2 = parent.agents.indexOf(conflict.agent2);
+        if (i1 < 0 || i2 < 0) return children;
         
-        Agent a1 = agents.stream().filter(a -> a.id == conflict.agent1).findFirst().orElse(null);
-        Agent a2 = agents.stream().filter(a -> a.id == conflict.agent2).findFirst().orElse(null);
-        
-        if (a1 == null || a2 == null) return children;
+        Path path1 = parent.paths[i1];
+        Path path2 = parent.paths[i2];
+        Agent a1 = parent.agents.agent(i1);
+        Agent a2 = parent.agents.agent(i2);
         
         // Priority based on remaining distance to final goal (Greedy priority)
         int remainingDist1 = map.getManhattanDistance(path1.getFinalPosition(), a1.goal);
@@ -187,20 +392,21 @@ class ACBS {
         int agentToConstrain = constrainedAgent;
         
         if (conflict instanceof VertexConflict vc) {
-            Set<Constraint> constraints = new HashSet<>(parent.constraints);
-            constraints.add(new VertexConstraint(agentToConstrain, vc.time, vc.position));
-            CBSNode child = createChildNode(parent, constraints, agentToConstrain, agents, gd);
+            // Usually the same constraint as one SPATIAL child; the duplicate table then skips it
+            Set<Constraint> constraints = claimChildConstraints(parent,
+                new VertexConstraint(agentToConstrain, vc.time, vc.position));
+            CBSNode child = constraints == null ? null : buildChild(parent, constraints, agentToConstrain, agents, gd);
             if (child != null) {
                 child.strategyType = "PRIORITY-" + agentToConstrain;
                 children.add(child);
             }
         } else if (conflict instanceof EdgeConflict ec) {
-            Set<Constraint> constraints = new HashSet<>(parent.constraints);
             // Constrain the lower-priority agent on the conflicting edge
             Position from = (agentToConstrain == ec.agent1) ? ec.from : ec.to;
             Position to = (agentToConstrain == ec.agent1) ? ec.to : ec.from;
-            constraints.add(new EdgeConstraint(agentToConstrain, ec.time, from, to));
-            CBSNode child = createChildNode(parent, constraints, agentToConstrain, agents, gd);
+            Set<Constraint> constraints = claimChildConstraints(parent,
+                new EdgeConstraint(agentToConstrain, ec.time, from, to));
+            CBSNode child = constraints == null ? null : buildChild(parent, constraints, agentToConstrain, agents, gd);
             if (child != null) {
                 child.strategyType = "PRIORITY-EDGE-" + agentToConstrain;
                 children.add(child);
@@ -259,12 +465,11 @@ class ACBS {
         }
     }
     
-    protected int calculateHeuristic(Map<Integer, Path> paths, List<Agent> agents, 
-                                    GridMap map, GoalDecomposition goalDecomposition) {
+    protected int calculateHeuristic(Path[] paths, AgentIndex index, GoalDecomposition goalDecomposition) {
         int h = 0;
-        for (Agent agent : agents) {
-            Path currentPath = paths.get(agent.id);
-            if (currentPath == null) continue;
+        for (int i = 0; i < paths.length; i++) {
+            Agent agent = index.agent(i);
+            Path currentPath = paths[i];
             
             Position current = currentPath.getFinalPosition();
             // Get the effective goal (next waypoint or final goal)
@@ -277,60 +482,177 @@ class ACBS {
         return h;
     }
     
+    // Goal-distance term plus the CG/DG/WDG term for the node's conflicts (see
+    // HighLevelHeuristic.compute for when it is admissible)
+    protected int calculateHeuristic(Path[] paths, AgentIndex index, Set<Constraint> constraints,
+                                     List<Conflict> conflicts, GoalDecomposition goalDecomposition) {
+        int h = calculateHeuristic(paths, index, goalDecomposition);
+        if (!conflicts.isEmpty()) {
+            h += highLevelHeuristic.compute(paths, index, constraints, conflicts);
+        }
+        return h;
+    }
+    
+    // Subgoals of one solve, computed on the strategy executor like the rest of the solve
+    protected GoalDecomposition decompose(List<Agent> agents) {
+        return new GoalDecomposition(agents, map, strategyExecutor);
+    }
+    
+    // Root node: unconstrained low-level paths for every agent, or null if some agent has
+    // no path at all. Also resets the per-solve state (heuristic cache, meta-agents, duplicates).
+    // In a warm solve, agents whose prior path still leads from their start to their goal
+    // keep it, along with their prior constraints; only the other agents are planned.
+    protected CBSNode createRoot(List<Agent> agents, GoalDecomposition goalDecomposition) {
+        highLevelHeuristic.clearCache();
+        metaAgents = new HashMap<>();
+        AgentIndex index = new AgentIndex(agents);
+        Path[] initialPaths = new Path[index.size()];
+        Set<Constraint> rootConstraints = new HashSet<>();
+        int gCost = 0;
+        
+        if (warmPaths != null) {
+            for (int i = 0; i < index.size(); i++) {
+                Agent agent = index.agent(i);
+                Path prior = warmPaths.get(agent.id);
+                if (prior != null && prior.getPosition(0).equals(agent.start)
+                        && prior.getFinalPosition().equals(agent.goal)) {
+                    initialPaths[i] = prior;
+                }
+            }
+            if (warmConstraints != null) {
+                // Constraints of replanned or departed agents were about their old routes
+                for (Constraint c : warmConstraints) {
+                    int i = index.indexOf(c.agent);
+                    if (i >= 0 && initialPaths[i] != null) rootConstraints.add(c);
+                }
+            }
+        }
+        
+        for (int i = 0; i < index.size(); i++) {
+            if (initialPaths[i] == null) {
+                Path path = planRootPath(index.agent(i), rootConstraints);
+                if (path == null) return null;
+                initialPaths[i] = path;
+            }
+            gCost += initialPaths[i].getCost();
+        }
+        
+        List<Conflict> initialConflicts = findConflicts(initialPaths, index);
+        int hCost = calculateHeuristic(initialPaths, index, rootConstraints, initialConflicts,
+                                       goalDecomposition);
+        
+        CBSNode root = new CBSNode(index, initialPaths, rootConstraints, gCost, hCost,
+                                   this.suboptimalityWeight, initialConflicts);
+        resetDuplicateTable(root);
+        budget.getStats().addNodesGenerated(1);
+        return root;
+    }
+    
+    // Full path of one agent for the root
+    protected Path planRootPath(Agent agent, Set<Constraint> constraints) {
+        // Initial path finding starts at global time 0
+        return pathfinder.findPath(agent, constraints, 0);
+    }
+    
+    // Node of an evicted constraint set, rebuilt from the root: every constrained agent is
+    // replanned in full under the constraints. Its paths need not be those of the evicted
+    // node (segments and meta-agents are not replayed), but they satisfy the same
+    // constraints, so the search below it stays sound.
+    protected CBSNode regenerate(CBSNode root, Set<Constraint> constraints, int subgoalRound,
+                                 GoalDecomposition goalDecomposition) {
+        AgentIndex index = root.agents;
+        Path[] paths = root.paths.clone();
+        boolean[] replanned = new boolean[index.size()];
+        int gCost = root.gCost;
+        for (Constraint c : constraints) {
+            int i = index.indexOf(c.agent);
+            if (i < 0 || replanned[i]) continue;
+            replanned[i] = true;
+            Path path = planRootPath(index.agent(i), constraints);
+            if (path == null) return null;
+            gCost += path.getCost() - paths[i].getCost();
+            paths[i] = path;
+        }
+        List<Conflict> conflicts = findConflicts(paths, index);
+        int hCost = calculateHeuristic(paths, index, constraints, conflicts, goalDecomposition);
+        CBSNode node = new CBSNode(index, paths, constraints, gCost, hCost, suboptimalityWeight, conflicts);
+        node.subgoalRound = subgoalRound;
+        node.strategyType = "REGENERATED";
+        return node;
+    }
+    
+    // OPEN of one solve, ordered by f then g; bounded if setOpenListBound was called
+    protected BoundedOpenList createOpenList(CBSNode root, GoalDecomposition goalDecomposition) {
+        return createOpenList(new FocalList(1.0, Comparator.comparingInt((CBSNode n) -> n.gCost)),
+                              root, goalDecomposition);
+    }
+    
+    protected BoundedOpenList createOpenList(FocalList open, CBSNode root, GoalDecomposition goalDecomposition) {
+        return new BoundedOpenList(open, maxOpenNodes, maxOpenBytes,
+            (constraints, subgoalRound) -> regenerate(root, constraints, subgoalRound, goalDecomposition),
+            nodeStore);
+    }
+    
+    // Warm start from the plan of an earlier, similar request: agents with the same start
+    // and goal keep their prior path and the search starts from that root
+    public Result solve(List<Agent> agents, Map<Integer, Path> previous) {
+        return solve(agents, previous, null);
+    }
+    
+    // True during a warm solve: kept prior paths need not be shortest paths, so a
+    // conflict-free root proves nothing about optimality
+    protected boolean isWarmSolve() {
+        return warmPaths != null;
+    }
+    
+    // Same, also keeping the prior constraints of those agents (e.g. the constraints of the
+    // node the previous solution came from). The search then only covers plans that
+    // satisfy them, so an optimal status refers to that part of the search space.
+    public Result solve(List<Agent> agents, Map<Integer, Path> previous, Set<Constraint> constraints) {
+        warmPaths = previous;
+        warmConstraints = constraints;
+        try {
+            return solve(agents);
+        } finally {
+            warmPaths = null;
+            warmConstraints = null;
+        }
+    }
+    
     public Result solve(List<Agent> agents) {
         long startTime = System.currentTimeMillis();
+        budget.start();
         
         try {
-            GoalDecomposition goalDecomposition = new GoalDecomposition(agents, this.map);
-            
-            Map<Integer, Path> initialSolution = new HashMap<>();
-            Set<Constraint> emptyConstraints = new HashSet<>();
-            int gCost = 0;
+            GoalDecomposition goalDecomposition = decompose(agents);
+            Map<Long, Integer> pairConflictCounts = new HashMap<>();
             
-            for (Agent agent : agents) {
-                // Initial path finding starts at global time 0
-                Path path = pathfinder.findPath(agent, emptyConstraints, 0); 
-                if (path == null) {
-                    return new Result(false, null, 0, 
-                        System.currentTimeMillis() - startTime, "No initial solution");
-                }
-                initialSolution.put(agent.id, path);
-                gCost += path.getCost();
+            CBSNode root = createRoot(agents, goalDecomposition);
+            if (root == null) {
+                return finish(agents, new Result(false, null, 0, 
+                    System.currentTimeMillis() - startTime, "No initial solution"));
             }
             
-            List<Conflict> initialConflicts = findConflicts(initialSolution);
-            int hCost = calculateHeuristic(initialSolution, agents, map, goalDecomposition);
-            
-            CBSNode root = new CBSNode(initialSolution, emptyConstraints, gCost, hCost,
-                                     this.suboptimalityWeight, initialConflicts);
-            
-            if (initialConflicts.isEmpty() && allAgentsAtFinalGoals(root, agents)) {
-                return new Result(true, initialSolution, gCost, 
-                    System.currentTimeMillis() - startTime, "Optimal");
+            if (root.conflicts.isEmpty() && allAgentsAtFinalGoals(root)) {
+                // Prior paths kept by a warm start need not be shortest paths
+                return finish(agents, new Result(true, root.solution(), root.gCost, 
+                    System.currentTimeMillis() - startTime, isWarmSolve() ? "Solved" : "Optimal"));
             }
             
-            PriorityQueue<CBSNode> openList = new PriorityQueue<>();
+            BoundedOpenList openList = createOpenList(root, goalDecomposition);
             openList.add(root);
             
             CBSNode bestSolution = root;
-            int iterationCount = 0;
             
-            while (!openList.isEmpty() && 
-                   (System.currentTimeMillis() - startTime) < timeoutMs && 
-                   !interrupted) {
-                
-                iterationCount++;
-                if (iterationCount > 20000) { // Safety limit
-                    break;
-                }
-                
+            while (!openList.isEmpty() && !interrupted && budget.chargeNode()) {
+                budget.getStats().observeOpenSize(openList.size());
                 CBSNode current = openList.poll();
                 if (current == null) break;
                 
                 if (current.conflicts.isEmpty()) {
-                    if (allAgentsAtFinalGoals(current, agents)) {
-                        return new Result(true, current.solution, current.gCost,
-                                         System.currentTimeMillis() - startTime, "Solved");
+                    if (allAgentsAtFinalGoals(current)) {
+                        return finish(agents, new Result(true, current.solution(), current.gCost,
+                                                         System.currentTimeMillis() - startTime, "Solved"));
                     } else {
                         // Advance subgoals and replan the next segment
                         CBSNode advancedNode = advanceSubgoalsAndReplan(current, agents, goalDecomposition);
@@ -341,54 +663,86 @@ class ACBS {
                     }
                 }
                 
-                Conflict conflict = current.conflicts.get(0);
-                List<CBSNode> children = generateChildren(current, conflict, agents, goalDecomposition);
-                
-                for (CBSNode child : children) {
-                    if (child != null) {
-                        openList.add(child);
-                    }
-                }
-                
                 // Track best solution found so far (in terms of conflicts, then cost)
                 if (current.conflicts.size() < bestSolution.conflicts.size() ||
                     (current.conflicts.size() == bestSolution.conflicts.size() && 
                      current.gCost < bestSolution.gCost)) {
                     bestSolution = current;
                 }
+                
+                Conflict conflict = current.conflicts.get(0);
+                
+                // Persistently conflicting pair: merge into a meta-agent instead of branching
+                if (recordConflict(pairConflictCounts, conflict)) {
+                    CBSNode merged = mergeMetaAgents(restartOnMerge ? root : current, conflict,
+                                                     agents, goalDecomposition);
+                    if (merged != null) {
+                        if (restartOnMerge) {
+                            openList = createOpenList(merged, goalDecomposition);
+                            resetDuplicateTable(merged);
+                            root = merged;
+                        }
+                        openList.add(merged);
+                        continue;
+                    }
+                }
+                
+                openList.addChildren(generateChildren(current, conflict, agents, goalDecomposition));
             }
             
-            boolean success = bestSolution.conflicts.isEmpty() && allAgentsAtFinalGoals(bestSolution, agents);
-            return new Result(success, bestSolution.solution, bestSolution.gCost,
+            boolean success = bestSolution.conflicts.isEmpty() && allAgentsAtFinalGoals(bestSolution);
+            return finish(agents, new Result(success, bestSolution.solution(), bestSolution.gCost,
                              System.currentTimeMillis() - startTime,
-                             success ? "Optimal" : "Suboptimal");
+                             success ? "Optimal" : "Suboptimal"));
                              
         } catch (Exception e) {
-            return new Result(false, null, 0, 
-                            System.currentTimeMillis() - startTime, "Exception: " + e.getMessage());
-        } finally {
-            shutdown();
+            return withStatistics(new Result(false, null, 0, 
+                            System.currentTimeMillis() - startTime, "Exception: " + e.getMessage()));
         }
     }
     
+    // Result of a solve as it ends, with the statistics of the solve. If the search stopped
+    // at its budget without a solution, the status names the limit and the budget's
+    // fallback (if any) takes over.
+    protected Result finish(List<Agent> agents, Result result) {
+        return withStatistics(applyLimit(agents, result));
+    }
+    
+    // Ends the solve: frees its off-heap nodes and attaches its statistics to the result
+    protected Result withStatistics(Result result) {
+        if (nodeStore != null) nodeStore.release();
+        SearchStats stats = budget.getStats();
+        stats.stop();
+        return new Result(result.success, result.solution, result.cost, result.runtimeMs, result.status, stats);
+    }
+    
+    private Result applyLimit(List<Agent> agents, Result result) {
+        SearchBudget.Limit limit = budget.getExhausted();
+        if (limit == null || result.success) return result;
+        
+        Result limited = new Result(false, result.solution, result.cost, result.runtimeMs,
+                                    result.status + " (" + limit.label + " limit)");
+        if (budget.getFallback() == null) return limited;
+        long fallbackStart = System.currentTimeMillis();
+        Result fallback = budget.getFallback().apply(agents, limited);
+        return new Result(fallback.success, fallback.solution, fallback.cost,
+                          result.runtimeMs + System.currentTimeMillis() - fallbackStart,
+                          fallback.status + " (fallback after " + limit.label + " limit)");
+    }
+    
     // To find effective goal and replan a segment from there.
     protected CBSNode createChildNode(CBSNode parent, Set<Constraint> constraints,
                                      int constrainedAgent, List<Agent> agents,
                                      GoalDecomposition goalDecomposition) {
-        Map<Integer, Path> newSolution = new HashMap<>(parent.solution);
+        AgentIndex index = parent.agents;
+        int agentIndex = index.indexOf(constrainedAgent);
+        if (agentIndex < 0) return null;
         
-        Agent agent = agents.stream().filter(a -> a.id == constrainedAgent).findFirst().orElse(null);
-        if (agent == null) return null;
-        
-        Path oldPath = parent.solution.get(constrainedAgent);
+        Agent agent = index.agent(agentIndex);
+        Path oldPath = parent.paths[agentIndex];
+        Path[] newPaths = parent.paths.clone();
         
         // 1. Determine the path segment that needs replanning.
-        
-        // Get the list of all waypoints including start and final goal.
-        List<Position> waypoints = new ArrayList<>();
-        waypoints.add(agent.start);
-        waypoints.addAll(goalDecomposition.getDecompositionChain(constrainedAgent));
-        
         Position currentEffectiveGoal = goalDecomposition.getEffectiveGoal(agent, oldPath);
         
         if (currentEffectiveGoal == null || currentEffectiveGoal.equals(agent.goal)) {
@@ -399,31 +753,17 @@ class ACBS {
             // Replan the full path
             Path newPath = pathfinder.findPath(agent, constraints, startTime); 
             if (newPath == null) return null;
-            newSolution.put(constrainedAgent, newPath);
+            newPaths[agentIndex] = newPath;
             
         } else {
-            // Find the start of the current segment (the previous waypoint).
-            Position segmentStart = agent.start;
-            int startTime = 0;
+            // Find the start of the current segment (the waypoint before the effective goal).
+            Position segmentStart = goalDecomposition.getSegmentStart(agent, currentEffectiveGoal);
             
-            // Find the waypoint before the current effective goal.
-            for (int i = 0; i < waypoints.size() - 1; i++) {
-                if (waypoints.get(i+1).equals(currentEffectiveGoal)) {
-                    segmentStart = waypoints.get(i);
-                    break;
-                }
-            }
-            
-            // Find the global time T that segmentStart was reached in oldPath.
-            for (int t = 0; t < oldPath.getLength(); t++) {
-                if (oldPath.getPosition(t).equals(segmentStart)) {
-                    // Check if this is the start of the segment.
-                    if (t == 0 || !oldPath.getPosition(t - 1).equals(segmentStart)) {
-                         startTime = t;
-                    }
-                }
-                if (oldPath.getPosition(t).equals(currentEffectiveGoal)) { break; }
-            }
+            // Find the global time T that segmentStart was (last) reached in oldPath,
+            // before the path first gets to the effective goal.
+            int goalArrival = oldPath.firstArrival(currentEffectiveGoal);
+            int startTime = Math.max(0, oldPath.lastArrival(segmentStart,
+                goalArrival < 0 ? oldPath.getLength() - 1 : goalArrival));
                         
             // Replan the segment: from segmentStart to currentEffectiveGoal
             Agent tempAgent = new Agent(constrainedAgent, segmentStart, currentEffectiveGoal);
@@ -441,40 +781,62 @@ class ACBS {
             
             newPathPositions.addAll(newSegment.getPositions());
             
-            Path fullNewPath = new Path(newPathPositions);
-            newSolution.put(constrainedAgent, fullNewPath);
+            newPaths[agentIndex] = new Path(newPathPositions);
         }
         
-        int newGCost = newSolution.values().stream().mapToInt(Path::getCost).sum();
-        List<Conflict> newConflicts = findConflicts(newSolution);
-        int newHCost = calculateHeuristic(newSolution, agents, map, goalDecomposition);
-        
-        return new CBSNode(newSolution, constraints, newGCost, newHCost, 
+        return buildNode(parent, newPaths, agentIndex, constraints, goalDecomposition);
+    }
+    
+    // Node for 'parent' with only the path of agent 'changed' replaced in newPaths
+    protected CBSNode buildNode(CBSNode parent, Path[] newPaths, int changed, Set<Constraint> constraints,
+                                GoalDecomposition goalDecomposition) {
+        int newGCost = parent.gCost - parent.paths[changed].getCost() + newPaths[changed].getCost();
+        List<Conflict> newConflicts = findConflicts(newPaths, parent.agents);
+        int newHCost = calculateHeuristic(newPaths, parent.agents, constraints, newConflicts, goalDecomposition);
+        
+        return new CBSNode(parent.agents, newPaths, constraints, newGCost, newHCost, 
                           this.suboptimalityWeight, newConflicts);
     }
     
+    protected List<Conflict> findConflicts(Path[] paths, AgentIndex index) {
+        SearchEvents.ConflictDetection event = new SearchEvents.ConflictDetection();
+        event.begin();
+        long start = System.nanoTime();
+        List<Conflict> conflicts = new ArrayList<>();
+        for (int i = 0; i < paths.length; i++) {
+            for (int j = i + 1; j < paths.length; j++) {
+                conflicts.addAll(findConflictsBetween(index.id(i), index.id(j), paths[i], paths[j]));
+            }
+        }
+        budget.getStats().addConflictNanos(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.paths = paths.length;
+            event.conflicts = conflicts.size();
+            event.commit();
+        }
+        return conflicts;
+    }
+    
+    // Map form, for checking plans outside a search (e.g. the solution of a Result)
     protected List<Conflict> findConflicts(Map<Integer, Path> solution) {
         List<Conflict> conflicts = new ArrayList<>();
-        List<Integer> agentIds = new ArrayList<>(solution.keySet());
-        
-        for (int i = 0; i < agentIds.size(); i++) {
-            for (int j = i + 1; j < agentIds.size(); j++) {
-                int agent1 = agentIds.get(i);
-                int agent2 = agentIds.get(j);
-                Path path1 = solution.get(agent1);
-                Path path2 = solution.get(agent2);
-                
-                conflicts.addAll(findConflictsBetween(agent1, agent2, path1, path2));
+        List<Map.Entry<Integer, Path>> entries = new ArrayList<>(solution.entrySet());
+        for (int i = 0; i < entries.size(); i++) {
+            for (int j = i + 1; j < entries.size(); j++) {
+                conflicts.addAll(findConflictsBetween(entries.get(i).getKey(), entries.get(j).getKey(),
+                                                      entries.get(i).getValue(), entries.get(j).getValue()));
             }
         }
-        
         return conflicts;
     }
     
     private List<Conflict> findConflictsBetween(int agent1, int agent2, Path path1, Path path2) {
         List<Conflict> conflicts = new ArrayList<>();
-        // Max time to check is the length of the longest path (number of positions)
-        int maxTime = Math.max(path1.getLength(), path2.getLength());
+        // Max time to check is the length of the longest path (number of positions),
+        // or the end of the conflict window
+        int maxTime = Math.min(Math.max(path1.getLength(), path2.getLength()),
+                               conflictWindow == Integer.MAX_VALUE ? Integer.MAX_VALUE : conflictWindow + 1);
         
         for (int t = 0; t < maxTime; t++) {
             Position pos1 = path1.getPosition(t);
@@ -499,13 +861,15 @@ class ACBS {
         return conflicts;
     }
     
-    private CBSNode advanceSubgoalsAndReplan(CBSNode parent, List<Agent> agents, GoalDecomposition gd) {
-        Map<Integer, Path> newSolution = new HashMap<>(parent.solution);
+    protected CBSNode advanceSubgoalsAndReplan(CBSNode parent, List<Agent> agents, GoalDecomposition gd) {
+        AgentIndex index = parent.agents;
+        Path[] newPaths = parent.paths.clone();
+        int newGCost = parent.gCost;
         boolean replanned = false;
         
-        for (Agent agent : agents) {
-            Path currentPath = parent.solution.get(agent.id);
-            if (currentPath == null) continue;
+        for (int i = 0; i < index.size(); i++) {
+            Agent agent = index.agent(i);
+            Path currentPath = parent.paths[i];
             
             Position currentEffectiveGoal = gd.getEffectiveGoal(agent, currentPath);
             Position currentPathEnd = currentPath.getFinalPosition();
@@ -538,35 +902,35 @@ class ACBS {
                         stitchedPath.addAll(currentPath.getPositions());
                         stitchedPath.addAll(newSegment.getPositions().subList(1, newSegment.getLength()));
                         
-                        newSolution.put(agent.id, new Path(stitchedPath));
+                        newPaths[i] = new Path(stitchedPath);
+                        newGCost += newPaths[i].getCost() - currentPath.getCost();
                         replanned = true;
                     } else {
                                 return null; 
                     }
                 }
-            } else {
-                newSolution.put(agent.id, currentPath);
             }
         }
 
         if (replanned) {
-            int newGCost = newSolution.values().stream().mapToInt(Path::getCost).sum();
-            int newHCost = calculateHeuristic(newSolution, agents, map, gd);
+            List<Conflict> newConflicts = findConflicts(newPaths, index);
+            int newHCost = calculateHeuristic(newPaths, index, parent.constraints, newConflicts, gd);
             
-            return new CBSNode(newSolution, parent.constraints, newGCost, newHCost, 
-                              this.suboptimalityWeight, findConflicts(newSolution));
+            CBSNode advanced = new CBSNode(index, newPaths, parent.constraints, newGCost, newHCost, 
+                              this.suboptimalityWeight, newConflicts);
+            // Same constraints as the parent but new segments: start a new duplicate-detection round
+            advanced.subgoalRound = parent.subgoalRound + 1;
+            budget.getStats().addNodesGenerated(1);
+            return advanced;
         }
         
         return null; 
     }
     
-    protected boolean allAgentsAtFinalGoals(CBSNode node, List<Agent> agents) {
-        for (Agent agent : agents) {
-            Path currentPath = node.solution.get(agent.id);
-            if (currentPath == null) return false;
-            
-            Position currentPos = currentPath.getFinalPosition();
-            Position finalGoal = agent.goal;
+    protected boolean allAgentsAtFinalGoals(CBSNode node) {
+        for (int i = 0; i < node.paths.length; i++) {
+            Position currentPos = node.paths[i].getFinalPosition();
+            Position finalGoal = node.agents.agent(i).goal;
             
             if (!currentPos.equals(finalGoal)) {
                 return false;
@@ -582,15 +946,23 @@ class ACBS {
         public final int cost;
         public final long runtimeMs;
         public final String status;
+        // Statistics of the solve that produced the result; null for solvers that keep none
+        public final SearchStats statistics;
         
         public Result(boolean success, Map<Integer, Path> solution, int cost, 
                      long runtimeMs, String status) {
+            this(success, solution, cost, runtimeMs, status, null);
+        }
+
+        public Result(boolean success, Map<Integer, Path> solution, int cost,
+                     long runtimeMs, String status, SearchStats statistics) {
             this.success = success;
             this.optimal = status.contains("Optimal");
             this.solution = solution;
             this.cost = cost;
             this.runtimeMs = runtimeMs;
             this.status = status;
+            this.statistics = statistics;
         }
     }
 }
\ No newline at end of file
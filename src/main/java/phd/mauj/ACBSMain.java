@@ -9,7 +9,7 @@ import java.io.*;
 // ============================================================================
 
 class ACBSMain {
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
         System.out.println("ACBS Implementation - Production Ready");
         System.out.println("======================================\n");
         
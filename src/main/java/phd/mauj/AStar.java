@@ -14,13 +14,50 @@ import java.util.Set;
 
 class AStar {
     protected final GridMap map;
+    // Charged once per expansion when set; a refused charge ends the search without a path
+    protected SearchBudget budget;
     
     public AStar(GridMap map) {
         this.map = map;
     }
     
+    public void setBudget(SearchBudget budget) {
+        this.budget = budget;
+    }
+    
+    // Runs one search; with a budget it is also recorded in the statistics of the solve,
+    // and it is a LowLevelSearch event when those are enabled. Subclasses implement search().
+    public final Path findPath(Agent agent, Set<Constraint> constraints, int startTime) {
+        SearchEvents.LowLevelSearch event = new SearchEvents.LowLevelSearch();
+        event.begin();
+        Expansions expansions = new Expansions();
+        long start = budget == null ? 0 : System.nanoTime();
+        Path path = search(agent, constraints, startTime, expansions);
+        if (budget != null) {
+            budget.getStats().recordLowLevel(getClass().getSimpleName(), expansions.count, System.nanoTime() - start);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.algorithm = getClass().getSimpleName();
+            event.agent = agent.id;
+            event.groupSize = 1;
+            event.startTimestep = startTime;
+            event.expansions = expansions.count;
+            event.constraints = constraints.size();
+            event.found = path != null;
+            event.commit();
+        }
+        return path;
+    }
+    
+    // Counts one expansion and charges it to the budget; false once the budget refuses it
+    protected boolean chargeExpansion(Expansions expansions) {
+        expansions.count++;
+        return budget == null || budget.chargeExpansion();
+    }
+    
     // StartTime argument to map local time to global time for constraint check
-    public Path findPath(Agent agent, Set<Constraint> constraints, int startTime) {
+    protected Path search(Agent agent, Set<Constraint> constraints, int startTime, Expansions expansions) {
         PriorityQueue<AStarNode> openList = new PriorityQueue<>();
         // Maps TimePosition to G-Score (local time steps from start)
         Map<TimePosition, Integer> gScore = new HashMap<>(); 
@@ -37,6 +74,7 @@ class AStar {
         while (!openList.isEmpty()) {
             AStarNode current = openList.poll();
             TimePosition currentPos = current.position;
+            if (!chargeExpansion(expansions)) return null;
             
             // Check if goal reached at the earliest possible time
             if (currentPos.x == agent.goal.x && currentPos.y == agent.goal.y) {
@@ -126,6 +164,11 @@ class AStar {
         return new Path(path);
     }
     
+    // Expansions of one search, counted apart from the concurrent searches of other threads
+    protected static final class Expansions {
+        int count;
+    }
+    
     protected static class AStarNode implements Comparable<AStarNode> {
         final TimePosition position;
         final int gScore; // Pathfinding cost (local time steps from segment start)
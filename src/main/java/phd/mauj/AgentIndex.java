@@ -0,0 +1,64 @@
+package phd.mauj;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// ============================================================================
+// AGENT INDEX (dense 0..n-1 indices for the agents of one solve)
+// ============================================================================
+
+// Solver state is kept in arrays indexed by the agent's position in the solve's agent
+// list. Constraints, conflicts and results still speak in agent ids; this maps between
+// the two in O(1) without boxing for the usual small non-negative ids.
+class AgentIndex {
+    private final Agent[] agents;
+    private final int[] ids;
+    // id -> index + 1 for ids below its length (0 = unknown); other ids go through 'sparse'
+    private final int[] indexById;
+    private final Map<Integer, Integer> sparse = new HashMap<>();
+
+    public AgentIndex(List<Agent> agents) {
+        this.agents = agents.toArray(new Agent[0]);
+        this.ids = new int[this.agents.length];
+        int maxDenseId = 4 * this.agents.length + 16;
+        int maxId = -1;
+        for (Agent agent : this.agents) {
+            if (agent.id < maxDenseId) maxId = Math.max(maxId, agent.id);
+        }
+        this.indexById = new int[maxId + 1];
+        for (int i = 0; i < this.agents.length; i++) {
+            int id = this.agents[i].id;
+            ids[i] = id;
+            if (id >= 0 && id < indexById.length) {
+                indexById[id] = i + 1;
+            } else {
+                sparse.put(id, i);
+            }
+        }
+    }
+
+    public int size() { return agents.length; }
+
+    public Agent agent(int index) { return agents[index]; }
+
+    public int id(int index) { return ids[index]; }
+
+    // Index of the agent with this id, -1 if it is not part of the solve
+    public int indexOf(int id) {
+        if (id >= 0 && id < indexById.length) return indexById[id] - 1;
+        return sparse.getOrDefault(id, -1);
+    }
+
+    public Agent byId(int id) {
+        int index = indexOf(id);
+        return index < 0 ? null : agents[index];
+    }
+
+    // Map form (agent id -> path) handed out in results
+    public Map<Integer, Path> toMap(Path[] paths) {
+        Map<Integer, Path> solution = new HashMap<>();
+        for (int i = 0; i < paths.length; i++) solution.put(ids[i], paths[i]);
+        return solution;
+    }
+}
@@ -58,7 +58,7 @@ class AgileAStar extends AStar {
 
     // Added startTime argument
     @Override
-    public Path findPath(Agent agent, Set<Constraint> constraints, int startTime) {
+    protected Path search(Agent agent, Set<Constraint> constraints, int startTime, Expansions expansions) {
         Comparator<AgileAStarNode> openComparator = Comparator.comparingInt(AgileAStarNode::getFScore);
         Comparator<AgileAStarNode> focalComparator = Comparator.comparingInt(n -> n.inadmissibleHScore);
         
@@ -97,6 +97,7 @@ class AgileAStar extends AStar {
             // ACBS often uses a simple Closed list only checking position+time
             if (closed.contains(current.position)) continue;
             closed.add(current.position);
+            if (!chargeExpansion(expansions)) return null;
             
             TimePosition currentPos = current.position;
             
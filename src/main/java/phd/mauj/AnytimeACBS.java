@@ -0,0 +1,292 @@
+package phd.mauj;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+
+// ============================================================================
+// ANYTIME ACBS (ARA*-style decreasing suboptimality weight)
+// ============================================================================
+
+class AnytimeACBS extends ACBS {
+    private final double weightStep;
+    private SolutionListener listener;
+    // Optimal A*, for the constrained shortest-path cost of each agent (see boundOf)
+    private final AStar boundPathfinder;
+    // Shortest-path costs by agent and constraint set, for the current solve
+    private final Map<List<Object>, Integer> optimalCosts = new HashMap<>();
+    // Proven lower bound on the solution cost, as of the last improvement or the end of
+    // the last solve
+    private int lowerBound = 0;
+
+    // Called for every strictly cheaper conflict-free plan, with the weight it was found
+    // under and the proven lower bound at that point (cost / lowerBound bounds the gap).
+    // The f values of the tree are no such bound: AgileAStar plans are not shortest paths.
+    public interface SolutionListener {
+        void onImprovedSolution(Result result, double weight, int lowerBound);
+    }
+
+    public AnytimeACBS(GridMap map, List<Agent> agents, long timeoutMs, double initialWeight, double weightStep) {
+        super(map, agents, timeoutMs, initialWeight);
+        this.weightStep = weightStep;
+        this.boundPathfinder = new AStar(map);
+    }
+
+    public AnytimeACBS(GridMap map, List<Agent> agents, long timeoutMs, double initialWeight, double weightStep,
+                       ExecutorService strategyExecutor) {
+        super(map, agents, timeoutMs, initialWeight, strategyExecutor);
+        this.weightStep = weightStep;
+        this.boundPathfinder = new AStar(map);
+    }
+
+    public void setSolutionListener(SolutionListener listener) {
+        this.listener = listener;
+    }
+
+    // The proven bound needs the bound of every queued node, so nodes are never evicted;
+    // OPEN stays unbounded and on-heap
+    @Override
+    public void setOpenListBound(int maxNodes, long maxBytes) {
+        if (maxNodes > 0 || maxBytes > 0) throw new UnsupportedOperationException("AnytimeACBS does not bound OPEN");
+    }
+
+    @Override
+    public void setOffHeapNodes(boolean offHeap) {
+        if (offHeap) throw new UnsupportedOperationException("AnytimeACBS keeps its nodes on-heap");
+    }
+
+    public int getLowerBound() { return lowerBound; }
+
+    // Focal search that starts with the construction weight and lowers it by weightStep
+    // (down to 1) after every improved solution. OPEN is kept across weights, so each
+    // round continues from the nodes already generated instead of starting over.
+    // Nodes are dropped only on their lower bound (see boundOf); f is no bound, so a node
+    // whose f does not beat the incumbent is only put off (see AnytimeOpen). The proven
+    // bound is the least of the incumbent's cost, the bounds of the queued nodes and those
+    // of the nodes whose subtrees were left unexplored (see splitsCompletely). Ends when
+    // OPEN is exhausted or at the timeout; the incumbent is reported optimal only if it
+    // meets the proven bound.
+    @Override
+    public Result solve(List<Agent> agents) {
+        long startTime = System.currentTimeMillis();
+        budget.start();
+        GoalDecomposition goalDecomposition = decompose(agents);
+        Map<Long, Integer> pairConflictCounts = new HashMap<>();
+        lowerBound = 0;
+        optimalCosts.clear();
+
+        CBSNode root = createRoot(agents, goalDecomposition);
+        if (root == null) {
+            return finish(agents, new Result(false, null, 0, System.currentTimeMillis() - startTime,
+                                             "No initial solution"));
+        }
+        root.lowerBound = boundOf(root, agents);
+
+        double w = suboptimalityWeight;
+        AnytimeOpen OPEN = new AnytimeOpen(w);
+        OPEN.add(root);
+        CBSNode incumbent = null;
+        CBSNode bestSolution = root;
+        // Least bound of the nodes whose subtrees the search will not explore
+        int unexplored = Integer.MAX_VALUE;
+
+        while (!OPEN.isEmpty() && !interrupted && budget.chargeNode()) {
+            budget.getStats().observeOpenSize(OPEN.size());
+            CBSNode current = OPEN.poll();
+            if (!isPromising(current, incumbent)) continue;
+
+            if (current.conflicts.isEmpty()) {
+                if (!allAgentsAtFinalGoals(current)) {
+                    CBSNode advancedNode = advanceSubgoalsAndReplan(current, agents, goalDecomposition);
+                    if (advancedNode == null) {
+                        unexplored = Math.min(unexplored, current.lowerBound);
+                    } else {
+                        advancedNode.lowerBound = boundOf(advancedNode, agents);
+                        if (isPromising(advancedNode, incumbent)) OPEN.add(advancedNode);
+                    }
+                    continue;
+                }
+                // A plan of suboptimal paths: cheaper plans under the same constraints are
+                // not searched for
+                if (current.gCost > current.lowerBound) unexplored = Math.min(unexplored, current.lowerBound);
+                if (incumbent != null && current.gCost >= incumbent.gCost) continue;
+
+                incumbent = current;
+                OPEN.setIncumbentCost(incumbent.gCost);
+                lowerBound = provenBound(OPEN, incumbent, unexplored);
+                if (listener != null) {
+                    listener.onImprovedSolution(
+                        new Result(true, incumbent.solution(), incumbent.gCost,
+                                   System.currentTimeMillis() - startTime, statusOf(incumbent)),
+                        w, lowerBound);
+                }
+                w = Math.max(1.0, w - weightStep);
+                OPEN.setWeight(w);
+                continue;
+            }
+
+            if (current.conflicts.size() < bestSolution.conflicts.size() ||
+                (current.conflicts.size() == bestSolution.conflicts.size() && current.gCost < bestSolution.gCost)) {
+                bestSolution = current;
+            }
+
+            Conflict conflict = current.conflicts.get(0);
+
+            // Merge in place: a restart would throw away the OPEN list being reused
+            if (recordConflict(pairConflictCounts, conflict)) {
+                CBSNode merged = mergeMetaAgents(current, conflict, agents, goalDecomposition);
+                if (merged != null) {
+                    // Same constraints as 'current', so the same plans below it
+                    merged.lowerBound = current.lowerBound;
+                    if (isPromising(merged, incumbent)) OPEN.add(merged);
+                    continue;
+                }
+            }
+
+            List<CBSNode> children = generateChildren(current, conflict, agents, goalDecomposition);
+            if (!splitsCompletely(current, conflict, children)) {
+                unexplored = Math.min(unexplored, current.lowerBound);
+            }
+            for (CBSNode child : children) {
+                if (child == null) continue;
+                child.lowerBound = boundOf(child, agents);
+                if (isPromising(child, incumbent)) OPEN.add(child);
+            }
+        }
+
+        long runtime = System.currentTimeMillis() - startTime;
+        lowerBound = provenBound(OPEN, incumbent, unexplored);
+        if (incumbent == null) {
+            return finish(agents, new Result(false, bestSolution.solution(), bestSolution.gCost, runtime,
+                                             "Suboptimal-Anytime"));
+        }
+        return finish(agents, new Result(true, incumbent.solution(), incumbent.gCost, runtime, statusOf(incumbent)));
+    }
+
+    private boolean isPromising(CBSNode node, CBSNode incumbent) {
+        return incumbent == null || node.lowerBound < incumbent.gCost;
+    }
+
+    // Sum of the agents' shortest-path costs under the node's constraints, each path on
+    // its own. Every plan below the node keeps those constraints, so none costs less,
+    // whatever paths the low level gave the node.
+    private int boundOf(CBSNode node, List<Agent> agents) {
+        Map<Integer, Set<Constraint>> byAgent = new HashMap<>();
+        for (Constraint c : node.constraints) {
+            byAgent.computeIfAbsent(c.agent, k -> new HashSet<>()).add(c);
+        }
+        int bound = 0;
+        for (Agent agent : agents) {
+            Set<Constraint> constraints = byAgent.getOrDefault(agent.id, Set.of());
+            bound += optimalCosts.computeIfAbsent(List.of(agent.id, constraints), k -> {
+                Path path = boundPathfinder.findPath(agent, constraints, 0);
+                return path == null ? 0 : path.getCost();
+            });
+        }
+        return bound;
+    }
+
+    // Every plan below 'parent' is below one of the children: the two children of the
+    // standard split (one constraint per agent) are among them. The other strategies and
+    // the pruning of children do not guarantee it, nor does a child the low level failed.
+    private static boolean splitsCompletely(CBSNode parent, Conflict conflict, List<CBSNode> children) {
+        Constraint first, second;
+        if (conflict instanceof VertexConflict vc) {
+            first = new VertexConstraint(vc.agent1, vc.time, vc.position);
+            second = new VertexConstraint(vc.agent2, vc.time, vc.position);
+        } else if (conflict instanceof EdgeConflict ec) {
+            first = new EdgeConstraint(ec.agent1, ec.time, ec.from, ec.to);
+            second = new EdgeConstraint(ec.agent2, ec.time, ec.to, ec.from);
+        } else {
+            return false;
+        }
+        return hasChildWith(parent, first, children) && hasChildWith(parent, second, children);
+    }
+
+    private static boolean hasChildWith(CBSNode parent, Constraint added, List<CBSNode> children) {
+        for (CBSNode child : children) {
+            if (child != null && child.constraints.size() == parent.constraints.size() + 1
+                && child.constraints.contains(added) && child.constraints.containsAll(parent.constraints)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // No plan costs less than the least of the incumbent, the bounds left in OPEN and the
+    // bounds of the subtrees given up; Integer.MAX_VALUE if none is left (no plan exists)
+    private static int provenBound(AnytimeOpen open, CBSNode incumbent, int unexplored) {
+        int bound = Math.min(open.minBound(), unexplored);
+        if (incumbent != null) bound = Math.min(bound, incumbent.gCost);
+        return bound;
+    }
+
+    private String statusOf(CBSNode incumbent) {
+        return lowerBound >= incumbent.gCost ? "Optimal-Anytime" : "Bounded-Anytime";
+    }
+
+    // ========================================================================
+    // OPEN OF THE ANYTIME SEARCH
+    // ========================================================================
+
+    // Two focal lists: the nodes whose f beats the incumbent, searched first, and those
+    // whose f does not, searched once the first list is empty (their bound may still beat
+    // the incumbent). A node queued before an improvement moves to the second list when it
+    // is polled. The lower bounds of all queued nodes are kept as a multiset.
+    private static final class AnytimeOpen {
+        private final FocalList open;
+        private final FocalList deferred;
+        private final TreeMap<Integer, Integer> bounds = new TreeMap<>();
+        private int incumbentCost = Integer.MAX_VALUE;
+
+        AnytimeOpen(double w) {
+            Comparator<CBSNode> fewestConflicts =
+                Comparator.comparingInt((CBSNode n) -> n.conflicts.size()).thenComparingInt(n -> n.fCost);
+            this.open = new FocalList(w, fewestConflicts);
+            this.deferred = new FocalList(w, fewestConflicts);
+        }
+
+        void add(CBSNode node) {
+            (node.fCost < incumbentCost ? open : deferred).add(node);
+            bounds.merge(node.lowerBound, 1, Integer::sum);
+        }
+
+        CBSNode poll() {
+            CBSNode node = null;
+            while (!open.isEmpty()) {
+                CBSNode next = open.poll();
+                if (next.fCost < incumbentCost) {
+                    node = next;
+                    break;
+                }
+                deferred.add(next);
+            }
+            if (node == null) node = deferred.poll();
+            bounds.merge(node.lowerBound, -1, (a, b) -> a + b == 0 ? null : a + b);
+            return node;
+        }
+
+        void setIncumbentCost(int cost) {
+            incumbentCost = cost;
+        }
+
+        void setWeight(double w) {
+            open.setWeight(w);
+            deferred.setWeight(w);
+        }
+
+        int minBound() {
+            return bounds.isEmpty() ? Integer.MAX_VALUE : bounds.firstKey();
+        }
+
+        boolean isEmpty() { return open.isEmpty() && deferred.isEmpty(); }
+
+        int size() { return open.size() + deferred.size(); }
+    }
+}
+
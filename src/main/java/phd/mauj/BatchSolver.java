@@ -0,0 +1,176 @@
+package phd.mauj;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// ============================================================================
+// BATCH SOLVER (many independent instances on one map, solved in parallel)
+// ============================================================================
+
+// Solves independent instances of one shared map on a fixed pool of workers. Every
+// worker owns one solver for the whole batch, so the solver's pathfinder state (e.g. the
+// distance tables of the goals it has seen) is reused from one instance to the next
+// instead of being rebuilt. Results are handed out in the order they complete.
+class BatchSolver implements AutoCloseable {
+    // Builds the solver of one worker; called once per worker
+    public interface SolverFactory {
+        ACBS create(GridMap map);
+    }
+
+    // Outcome of one instance; 'id' is the caller's id for it
+    public static class BatchResult {
+        public final int id;
+        public final List<Agent> agents;
+        public final ACBS.Result result;
+
+        BatchResult(int id, List<Agent> agents, ACBS.Result result) {
+            this.id = id;
+            this.agents = agents;
+            this.result = result;
+        }
+    }
+
+    // Instances queued per worker in solveAll, so no worker waits for the next instance
+    private static final int QUEUED_PER_WORKER = 2;
+
+    private final GridMap map;
+    private final int workers;
+    // Solvers not in use; there are as many as worker threads, so taking one never blocks
+    private final BlockingQueue<ACBS> idleSolvers;
+    // Batch tasks block until their solve returns, so they get threads of their own
+    // rather than those of the strategy pool the solvers run on
+    private final ExecutorService pool;
+
+    public BatchSolver(GridMap map, int workers, SolverFactory factory) {
+        this.map = map;
+        this.workers = Math.max(1, workers);
+        this.idleSolvers = new ArrayBlockingQueue<>(this.workers);
+        for (int i = 0; i < this.workers; i++) idleSolvers.add(factory.create(map));
+        AtomicInteger threads = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(this.workers, task -> {
+            Thread thread = new Thread(task, "batch-solver-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public GridMap getMap() { return map; }
+
+    public int getWorkers() { return workers; }
+
+    // ========================================================================
+    // SOLVING
+    // ========================================================================
+
+    // Queues one instance; the future completes once a worker has solved it
+    public Future<BatchResult> submit(int id, List<Agent> agents) {
+        return pool.submit(() -> solve(id, agents));
+    }
+
+    // Solves every instance of the stream, ids counting from 0 in stream order. Only a few
+    // instances per worker are queued at a time, so the stream may be long or lazy. Each
+    // result goes to 'sink' on the calling thread as soon as it is ready. Returns the
+    // number of instances solved.
+    public int solveAll(Iterator<List<Agent>> instances, Consumer<BatchResult> sink) throws InterruptedException {
+        CompletionService<BatchResult> completion = new ExecutorCompletionService<>(pool);
+        int submitted = 0, completed = 0;
+        while (instances.hasNext()) {
+            if (submitted - completed >= QUEUED_PER_WORKER * workers) {
+                sink.accept(take(completion));
+                completed++;
+            }
+            int id = submitted++;
+            List<Agent> agents = instances.next();
+            completion.submit(() -> solve(id, agents));
+        }
+        while (completed < submitted) {
+            sink.accept(take(completion));
+            completed++;
+        }
+        return completed;
+    }
+
+    private BatchResult solve(int id, List<Agent> agents) throws InterruptedException {
+        ACBS solver = idleSolvers.take();
+        try {
+            return new BatchResult(id, agents, solver.solve(agents));
+        } catch (RuntimeException e) {
+            return new BatchResult(id, agents, new ACBS.Result(false, null, 0, 0, "Exception: " + e.getMessage()));
+        } finally {
+            idleSolvers.put(solver);
+        }
+    }
+
+    private BatchResult take(CompletionService<BatchResult> completion) throws InterruptedException {
+        try {
+            return completion.take().get();
+        } catch (ExecutionException e) {
+            // solve() turns solver exceptions into results, so only errors get here
+            throw new IllegalStateException("Batch task failed", e.getCause());
+        }
+    }
+
+    // Stops accepting instances and waits for the queued ones to finish. If the caller is
+    // interrupted meanwhile, the queued instances are cancelled and the interrupt is kept.
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========================================================================
+    // COMMAND LINE
+    // ========================================================================
+
+    // Usage: BatchSolver <map file> <agents> <instances> <workers> [timeout ms]
+    // Solves random instances with ACBS and reports the aggregate throughput.
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4) {
+            System.out.println("Usage: BatchSolver <map file> <agents> <instances> <workers> [timeout ms]");
+            return;
+        }
+        GridMap map = MovingAIMapLoader.loadMap(args[0]);
+        int agentCount = Integer.parseInt(args[1]);
+        int instanceCount = Integer.parseInt(args[2]);
+        int workers = Integer.parseInt(args[3]);
+        long timeoutMs = args.length > 4 ? Long.parseLong(args[4]) : 30000;
+
+        Random random = new Random(42);
+        List<List<Agent>> instances = new ArrayList<>();
+        for (int i = 0; i < instanceCount; i++) {
+            instances.add(MovingAIMapLoader.generateRandomInstances(map, agentCount, random));
+        }
+
+        int[] solved = {0};
+        long start = System.currentTimeMillis();
+        try (BatchSolver batch = new BatchSolver(map, workers, m -> new ACBS(m, new ArrayList<>(), timeoutMs, 1.2))) {
+            batch.solveAll(instances.iterator(), r -> {
+                if (r.result.success) solved[0]++;
+                System.out.printf("instance %d: %s cost=%d runtime=%dms%n",
+                                  r.id, r.result.status, r.result.cost, r.result.runtimeMs);
+            });
+        }
+        double seconds = (System.currentTimeMillis() - start) / 1000.0;
+        System.out.printf("%d/%d solved in %.2fs with %d workers (%.2f instances/s)%n",
+                          solved[0], instanceCount, seconds, workers, instanceCount / seconds);
+    }
+}
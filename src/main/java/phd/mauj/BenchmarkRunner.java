@@ -0,0 +1,291 @@
+package phd.mauj;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ============================================================================
+// BENCHMARK RUNNER (parallel, resumable evaluation of solver cells)
+// ============================================================================
+
+// Runs every (map, agent count, instance, algorithm) cell of an evaluation on a fixed
+// number of worker threads and appends one CSV row per finished cell, so that a run that
+// stops halfway can be resumed: cells already in the file are not run again. Instances
+// come from a seed derived from (map, agent count, instance) alone, so every algorithm,
+// every worker and every resumed run sees the same agents for the same cell.
+//
+// Every worker owns its solvers, built with SolverExecutors.callerRuns() so that a solve
+// runs entirely on the worker thread; the CPU time of that thread is then the CPU time of
+// the cell, however many cells run at once. Wall time is measured around the solve too.
+// The search statistics of the result (see SearchStats) fill the columns between CPU
+// and Status; they are empty for solvers that keep none. LowLevel lists the low-level
+// searches per algorithm as "algorithm:calls/expansions/ms" entries separated by ';'.
+// On Linux the workers can be pinned to CPUs (with taskset) to keep them from migrating.
+class BenchmarkRunner {
+    // Builds a solver for one map; called once per worker, map and algorithm. The solver
+    // should run on SolverExecutors.callerRuns() for its CPU time to be complete.
+    public interface SolverFactory {
+        ACBS create(GridMap map, long timeoutMs);
+    }
+
+    public static final String HEADER =
+        "Algorithm,Map,Agents,Instance,Success,Optimal,Cost,Runtime(ms),Wall(ms),CPU(ms),"
+        + "HLGenerated,HLExpanded,PeakOpen,LLCalls,LLExpansions,LLTime(ms),ConflictTime(ms),ScoringTime(ms),"
+        + "TemporalProduced,TemporalKept,SpatialProduced,SpatialKept,PriorityProduced,PriorityKept,"
+        + "Allocated(bytes),LowLevel,Status";
+    private static final int COLUMNS = HEADER.split(",").length;
+    // Status of a cell whose map has too few free cells for its agents; its row is kept
+    // so that a resumed run does not try it again, and summaries leave it out
+    public static final String SKIPPED = "Skipped (too few free cells)";
+    private static final long BASE_SEED = 42;
+
+    private final Map<String, GridMap> maps = new LinkedHashMap<>();
+    private final Map<String, SolverFactory> algorithms = new LinkedHashMap<>();
+    private final int[] agentCounts;
+    private final int instances;
+    private final long timeoutMs;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    // CPUs the workers are pinned to (worker i to cpus[i % length]); null: no pinning
+    private int[] cpus;
+
+    public BenchmarkRunner(int[] agentCounts, int instances, long timeoutMs) {
+        this.agentCounts = agentCounts;
+        this.instances = instances;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public void addMap(String name, GridMap map) {
+        maps.put(name, map);
+    }
+
+    public void addAlgorithm(String name, SolverFactory factory) {
+        algorithms.put(name, factory);
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    public void setPinnedCpus(int[] cpus) {
+        this.cpus = cpus == null || cpus.length == 0 ? null : cpus;
+    }
+
+    // Seed of the instance of one cell; the same for every algorithm and every run
+    static long seed(String mapName, int agentCount, int instance) {
+        long seed = BASE_SEED;
+        seed = 1_000_003L * seed + mapName.hashCode();
+        seed = 1_000_003L * seed + agentCount;
+        seed = 1_000_003L * seed + instance;
+        return seed;
+    }
+
+    // ========================================================================
+    // RUNNING
+    // ========================================================================
+
+    // Runs every cell not yet in 'csv' and appends its row. With resume false the file is
+    // started over; otherwise its complete rows are kept (a row cut short by a crash is
+    // dropped) and only the missing cells run. Returns the number of cells run now.
+    public int run(File csv, boolean resume) throws IOException, InterruptedException {
+        Set<String> done = resume ? loadCompleted(csv) : new HashSet<>();
+        if (!resume || done.isEmpty()) {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(csv))) {
+                writer.println(HEADER);
+            }
+        }
+
+        List<Cell> cells = new ArrayList<>();
+        for (String mapName : maps.keySet()) {
+            for (int agentCount : agentCounts) {
+                for (int instance = 0; instance < instances; instance++) {
+                    for (String algorithm : algorithms.keySet()) {
+                        Cell cell = new Cell(mapName, agentCount, instance, algorithm);
+                        if (!done.contains(cell.key())) cells.add(cell);
+                    }
+                }
+            }
+        }
+        System.out.printf("%d cells to run (%d already done) on %d workers%n", cells.size(), done.size(), workers);
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(csv, true))) {
+            List<Thread> threads = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                int worker = w;
+                Thread thread = new Thread(() -> {
+                    if (cpus != null) pin(cpus[worker % cpus.length]);
+                    // Solvers of this worker, by map and algorithm, reused across its cells
+                    Map<String, ACBS> solvers = new HashMap<>();
+                    int i;
+                    while ((i = next.getAndIncrement()) < cells.size()) {
+                        Cell cell = cells.get(i);
+                        String row = runCell(cell, solvers);
+                        int count = finished.incrementAndGet();
+                        synchronized (writer) {
+                            writer.println(row);
+                            writer.flush();
+                        }
+                        if (count % 100 == 0 || count == cells.size()) {
+                            System.out.printf("  %d/%d cells%n", count, cells.size());
+                        }
+                    }
+                }, "bench-" + worker);
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) thread.join();
+        }
+        return cells.size();
+    }
+
+    // Row of one cell; a SKIPPED row if the map has too few free cells for the agents
+    private String runCell(Cell cell, Map<String, ACBS> solvers) {
+        GridMap map = maps.get(cell.map);
+        List<Agent> agents = MovingAIMapLoader.generateRandomInstances(
+            map, cell.agentCount, new Random(seed(cell.map, cell.agentCount, cell.instance)));
+        if (agents.size() < cell.agentCount) {
+            return String.format("%s,%s,%d,%d,false,false,0,0,0,0,%s,%s",
+                cell.algorithm, cell.map, cell.agentCount, cell.instance, statisticsColumns(null), SKIPPED);
+        }
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        ACBS solver = solvers.computeIfAbsent(cell.map + "/" + cell.algorithm,
+                                              k -> algorithms.get(cell.algorithm).create(map, timeoutMs));
+        ACBS.Result result;
+        long cpuStart = threadBean.getCurrentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        try {
+            result = solver.solve(agents);
+        } catch (RuntimeException e) {
+            result = new ACBS.Result(false, null, 0, 0, "Exception: " + e.getMessage());
+        }
+        long wallMs = (System.nanoTime() - wallStart) / 1_000_000;
+        long cpuMs = (threadBean.getCurrentThreadCpuTime() - cpuStart) / 1_000_000;
+
+        return String.format("%s,%s,%d,%d,%s,%s,%d,%d,%d,%d,%s,%s",
+            cell.algorithm, cell.map, cell.agentCount, cell.instance,
+            result.success, result.optimal, result.cost, result.runtimeMs, wallMs, cpuMs,
+            statisticsColumns(result.statistics), result.status.replace(',', ';').replace('\n', ' '));
+    }
+
+    // Columns HLGenerated to LowLevel of a row; all empty without statistics
+    private static String statisticsColumns(SearchStats stats) {
+        if (stats == null) return ",".repeat(15);
+        StringBuilder columns = new StringBuilder();
+        columns.append(stats.getNodesGenerated()).append(',')
+               .append(stats.getNodesExpanded()).append(',')
+               .append(stats.getPeakOpenSize()).append(',')
+               .append(stats.getLowLevelCalls()).append(',')
+               .append(stats.getLowLevelExpansions()).append(',')
+               .append(stats.getLowLevelMs()).append(',')
+               .append(stats.getConflictMs()).append(',')
+               .append(stats.getScoringMs()).append(',');
+        for (SearchStats.Strategy strategy : SearchStats.Strategy.values()) {
+            columns.append(stats.getProduced(strategy)).append(',')
+                   .append(stats.getKept(strategy)).append(',');
+        }
+        long allocated = stats.getAllocatedBytes();
+        columns.append(allocated < 0 ? "" : Long.toString(allocated)).append(',')
+               .append(stats.lowLevelSummary());
+        return columns.toString();
+    }
+
+    // Keys of the complete rows of an existing results file, which is rewritten with only
+    // those rows. A last row without its line end was cut short by a crash and is dropped,
+    // even if its columns happen to be all there. A file with another header is moved
+    // aside and nothing counts as done.
+    private Set<String> loadCompleted(File csv) throws IOException {
+        Set<String> done = new HashSet<>();
+        if (!csv.exists()) return done;
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(csv))) {
+            String header = reader.readLine();
+            if (!HEADER.equals(header)) {
+                File backup = new File(csv.getPath() + ".bak");
+                Files.move(csv.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                System.out.println("Results file has another format; moved to " + backup);
+                return done;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) lines.add(line);
+        }
+        if (!lines.isEmpty() && !endsWithLineBreak(csv)) lines.remove(lines.size() - 1);
+
+        List<String> rows = new ArrayList<>();
+        for (String line : lines) {
+            String[] parts = line.split(",", -1);
+            if (parts.length != COLUMNS) continue;
+            done.add(new Cell(parts[1], Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), parts[0]).key());
+            rows.add(line);
+        }
+
+        try (PrintWriter writer = new PrintWriter(new FileWriter(csv))) {
+            writer.println(HEADER);
+            for (String row : rows) writer.println(row);
+        }
+        return done;
+    }
+
+    private static boolean endsWithLineBreak(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() == 0) return false;
+            in.seek(in.length() - 1);
+            return in.read() == '\n';
+        }
+    }
+
+    // Pins the calling thread to one CPU. Linux only: the thread's id comes from
+    // /proc/thread-self and taskset does the pinning. Runs unpinned if either is missing.
+    private static void pin(int cpu) {
+        try {
+            String tid = Files.readSymbolicLink(Paths.get("/proc/thread-self")).getFileName().toString();
+            Process process = new ProcessBuilder("taskset", "-p", "-c", Integer.toString(cpu), tid)
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            if (process.waitFor() != 0) {
+                System.err.println(Thread.currentThread().getName() + ": taskset failed, running unpinned");
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println(Thread.currentThread().getName() + ": cannot pin to CPU " + cpu + " (" + e.getMessage() + ")");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Cell {
+        final String map;
+        final int agentCount;
+        final int instance;
+        final String algorithm;
+
+        Cell(String map, int agentCount, int instance, String algorithm) {
+            this.map = map;
+            this.agentCount = agentCount;
+            this.instance = instance;
+            this.algorithm = algorithm;
+        }
+
+        String key() {
+            return algorithm + "," + map + "," + agentCount + "," + instance;
+        }
+    }
+}
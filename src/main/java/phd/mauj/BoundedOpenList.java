@@ -0,0 +1,185 @@
+package phd.mauj;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// ============================================================================
+// MEMORY-BOUNDED HIGH-LEVEL OPEN LIST (eviction, regeneration, DFBnB fallback)
+// ============================================================================
+
+// OPEN of a high-level search with a cap on its nodes and on their approximate size.
+// Past the cap the worst nodes are evicted: only their constraints, f and subgoal round
+// are kept (the constraint sets are shared with the duplicate table anyway), and a node
+// is rebuilt from those by the regenerator once OPEN has nothing better left. When even
+// the evicted nodes outnumber the cap, or the heap is nearly full, the search turns
+// depth-first (best child first), which keeps only one branch of children alive; the
+// solution is then no longer the best one OPEN would have found, but the solve goes on.
+// With a node store, OPEN holds only headers and the payloads live off-heap; evicted
+// headers are then reloaded from the store instead of being regenerated.
+class BoundedOpenList {
+    // Rebuilds a node from the constraints and subgoal round of an evicted one; null if
+    // some constrained agent has no path any more
+    public interface Regenerator {
+        CBSNode regenerate(Set<Constraint> constraints, int subgoalRound);
+    }
+
+    // Heap use, as a fraction of the maximum heap, past which the search turns depth-first
+    private static final double HEAP_PRESSURE = 0.9;
+    // Nodes added between two checks of the heap
+    private static final int HEAP_CHECK_INTERVAL = 256;
+
+    private final FocalList open;
+    private final int maxNodes;
+    private final long maxBytes;
+    private final Regenerator regenerator;
+    // Off-heap payloads of the nodes in OPEN; null keeps them on the heap
+    private final OffHeapNodeStore store;
+    // Evicted nodes, lowest f first
+    private final PriorityQueue<Evicted> evicted =
+        new PriorityQueue<>(Comparator.comparingInt((Evicted e) -> e.fCost));
+    // Depth-first mode: children of the expanded nodes, best child on top
+    private final Deque<CBSNode> stack = new ArrayDeque<>();
+    private boolean depthFirst = false;
+    private long bytes = 0;
+    private long adds = 0;
+    private int evictions = 0;
+    private int regenerations = 0;
+
+    // maxNodes <= 0 and maxBytes <= 0 mean no cap; the heap is then not watched either
+    public BoundedOpenList(FocalList open, int maxNodes, long maxBytes, Regenerator regenerator) {
+        this(open, maxNodes, maxBytes, regenerator, null);
+    }
+
+    // 'store' is reset here: the list owns its records until the next list is created
+    public BoundedOpenList(FocalList open, int maxNodes, long maxBytes, Regenerator regenerator,
+                           OffHeapNodeStore store) {
+        this.open = open;
+        this.maxNodes = maxNodes > 0 ? maxNodes : Integer.MAX_VALUE;
+        this.maxBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+        this.regenerator = regenerator;
+        this.store = store;
+        if (store != null) store.reset();
+    }
+
+    private boolean isBounded() {
+        return maxNodes != Integer.MAX_VALUE || maxBytes != Long.MAX_VALUE;
+    }
+
+    // ========================================================================
+    // QUEUE
+    // ========================================================================
+
+    public void add(CBSNode node) {
+        if (depthFirst) {
+            stack.push(node);
+            return;
+        }
+        if (store != null) node = store.store(node);
+        open.add(node);
+        if (!isBounded()) return;
+        bytes += approximateBytes(node);
+        while (open.size() > 1 && (open.size() > maxNodes || bytes > maxBytes)) {
+            CBSNode worst = open.pollWorst();
+            bytes -= approximateBytes(worst);
+            evicted.add(store != null ? new Evicted(worst)
+                        : new Evicted(worst.constraints, worst.fCost, worst.subgoalRound));
+            evictions++;
+        }
+        if (evicted.size() > maxNodes || (++adds % HEAP_CHECK_INTERVAL == 0 && isHeapUnderPressure())) {
+            depthFirst = true;
+        }
+    }
+
+    // Children of one expansion. In depth-first mode they go on the stack so that the
+    // best of them (lowest f, then fewest conflicts) is expanded next.
+    public void addChildren(List<CBSNode> children) {
+        if (!depthFirst) {
+            for (CBSNode child : children) {
+                if (child != null) add(child);
+            }
+            return;
+        }
+        List<CBSNode> sorted = new ArrayList<>();
+        for (CBSNode child : children) {
+            if (child != null) sorted.add(child);
+        }
+        sorted.sort(Comparator.comparingInt((CBSNode n) -> n.fCost).thenComparingInt(n -> n.conflictCount));
+        for (int i = sorted.size() - 1; i >= 0; i--) stack.push(sorted.get(i));
+    }
+
+    // Next node to expand: the top of the stack in depth-first mode, otherwise the best
+    // node of OPEN, otherwise the best evicted node, regenerated. Null once all are gone.
+    public CBSNode poll() {
+        if (!stack.isEmpty()) return stack.pop();
+        if (!open.isEmpty()) {
+            CBSNode node = open.poll();
+            if (isBounded()) bytes -= approximateBytes(node);
+            return store != null ? store.load(node) : node;
+        }
+        while (!evicted.isEmpty()) {
+            Evicted stub = evicted.poll();
+            CBSNode node = stub.header != null ? store.load(stub.header)
+                         : regenerator.regenerate(stub.constraints, stub.subgoalRound);
+            if (node != null) {
+                regenerations++;
+                return node;
+            }
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return stack.isEmpty() && open.isEmpty() && evicted.isEmpty();
+    }
+
+    // Nodes held in memory: those of OPEN and of the depth-first stack, not the evicted ones
+    public int size() {
+        return open.size() + stack.size();
+    }
+
+    public boolean isDepthFirst() { return depthFirst; }
+
+    public int getEvictions() { return evictions; }
+
+    public int getRegenerations() { return regenerations; }
+
+    private boolean isHeapUnderPressure() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory() > HEAP_PRESSURE * runtime.maxMemory();
+    }
+
+    // Rough size of what a node holds on its own: its path array, its conflicts and the
+    // one path it replanned. Constraint sets and the other paths are shared.
+    static long approximateBytes(CBSNode node) {
+        if (node.paths == null) return 96;
+        int pathLength = node.paths.length == 0 ? 0 : node.paths[0].getLength();
+        return 96 + 8L * node.paths.length + 48L * node.conflicts.size() + 24L * pathLength;
+    }
+
+    private static class Evicted {
+        final Set<Constraint> constraints;
+        final int fCost;
+        final int subgoalRound;
+        // Header of an off-heap node, reloaded as it is; null for a stub
+        final CBSNode header;
+
+        Evicted(Set<Constraint> constraints, int fCost, int subgoalRound) {
+            this.constraints = constraints;
+            this.fCost = fCost;
+            this.subgoalRound = subgoalRound;
+            this.header = null;
+        }
+
+        Evicted(CBSNode header) {
+            this.constraints = null;
+            this.fCost = header.fCost;
+            this.subgoalRound = header.subgoalRound;
+            this.header = header;
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package phd.mauj;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 //============================================================================
 //CBS Algorithm
 //============================================================================
 
 class CBS extends ACBS {
+    // Plain A*, for the full replans of standard CBS
+    private final AStar fullPathfinder;
+    
     public CBS(GridMap map, List<Agent> agents, long timeoutMs) {
-        super(map, agents, timeoutMs, 1.0); 
+        this(map, agents, timeoutMs, SolverExecutors.shared());
+    }
+    
+    public CBS(GridMap map, List<Agent> agents, long timeoutMs, ExecutorService strategyExecutor) {
+        super(map, agents, timeoutMs, 1.0, strategyExecutor);
+        this.fullPathfinder = new AStar(map);
+        fullPathfinder.setBudget(budget);
     }
     
     // Override createChildNode to use full pathfinding (standard CBS)
@@ -19,22 +27,15 @@ class CBS extends ACBS {
     protected CBSNode createChildNode(CBSNode parent, Set<Constraint> constraints,
                                      int constrainedAgent, List<Agent> agents,
                                      GoalDecomposition goalDecomposition) {
-        Map<Integer, Path> newSolution = new HashMap<>(parent.solution);
-        
-        Agent agent = agents.stream().filter(a -> a.id == constrainedAgent).findFirst().orElse(null);
-        if (agent == null) return null;
+        int agentIndex = parent.agents.indexOf(constrainedAgent);
+        if (agentIndex < 0) return null;
         
         // Standard CBS: Full replan from original start (startTime=0)
-        Path newPath = new AStar(map).findPath(agent, constraints, 0); 
+        Path newPath = fullPathfinder.findPath(parent.agents.agent(agentIndex), constraints, 0); 
         if (newPath == null) return null;
         
-        newSolution.put(constrainedAgent, newPath);
-        
-        int newGCost = newSolution.values().stream().mapToInt(Path::getCost).sum();
-        List<Conflict> newConflicts = findConflicts(newSolution);
-        int newHCost = calculateHeuristic(newSolution, agents, map, goalDecomposition);
-        
-        return new CBSNode(newSolution, constraints, newGCost, newHCost, 
-                          this.suboptimalityWeight, newConflicts);
+        Path[] newPaths = parent.paths.clone();
+        newPaths[agentIndex] = newPath;
+        return buildNode(parent, newPaths, agentIndex, constraints, goalDecomposition);
     }
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 package phd.mauj;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -12,24 +12,82 @@ import java.util.Set;
 // ============================================================================
 
 class CBSNode implements Comparable<CBSNode> {
-    public final Map<Integer, Path> solution;
+    public final AgentIndex agents;
+    // Path of every agent, by dense agent index; owned by the node and never modified
+    public final Path[] paths;
     public final Set<Constraint> constraints;
     public final int gCost;
     public final int hCost;
     public final int fCost;
     public final int eCost;
     public final List<Conflict> conflicts;
+    // conflicts.size(), also known to a header whose conflicts are stored off-heap
+    public final int conflictCount;
+    // Canonical hash of the constraint set (order independent, equal to constraints.hashCode())
+    public final int constraintHash;
     public String strategyType = "NONE";
+    // Number of subgoal advances and meta-agent merges on the branch leading to this node.
+    // Both replan without new constraints, so equal constraint sets only denote the same
+    // node within one round.
+    public int subgoalRound = 0;
+    // Insertion sequence assigned by FocalList; tie-breaker that makes queue removal exact
+    public long queueSeq = -1;
+    // Inadmissible cost estimate g + h-hat used by EECBS; equals fCost elsewhere
+    public int fHatCost;
+    // Sum of the agents' optimal costs under the node's constraints: no plan below the
+    // node costs less. Set by AnytimeACBS, 0 elsewhere
+    public int lowerBound;
+    // Record of the node's payload in an OffHeapNodeStore, -1 if it was never stored
+    public long payloadHandle = -1;
     
-    public CBSNode(Map<Integer, Path> solution, Set<Constraint> constraints, 
+    // Takes ownership of 'paths': callers pass a fresh array (usually a clone of the parent's)
+    public CBSNode(AgentIndex agents, Path[] paths, Set<Constraint> constraints,
                   int gCost, int hCost, double w, List<Conflict> conflicts) {
-        this.solution = new HashMap<>(solution);
+        this.agents = agents;
+        this.paths = paths;
         this.constraints = new HashSet<>(constraints);
         this.gCost = gCost;
         this.hCost = hCost;
         this.fCost = gCost + hCost;
         this.eCost = (int) (gCost + w * hCost);
         this.conflicts = new ArrayList<>(conflicts);
+        this.conflictCount = this.conflicts.size();
+        this.constraintHash = this.constraints.hashCode();
+        this.fHatCost = this.fCost;
+    }
+    
+    // Header of a node whose payload (paths, constraints, conflicts) was moved to an
+    // OffHeapNodeStore: only what OPEN and FOCAL order by stays on the heap. It has no
+    // paths and must be loaded from the store before it is expanded.
+    CBSNode(CBSNode node, long payloadHandle) {
+        this.agents = node.agents;
+        this.paths = null;
+        this.constraints = Collections.emptySet();
+        this.gCost = node.gCost;
+        this.hCost = node.hCost;
+        this.fCost = node.fCost;
+        this.eCost = node.eCost;
+        this.conflicts = Collections.emptyList();
+        this.conflictCount = node.conflictCount;
+        this.constraintHash = node.constraintHash;
+        this.strategyType = node.strategyType;
+        this.subgoalRound = node.subgoalRound;
+        this.fHatCost = node.fHatCost;
+        this.lowerBound = node.lowerBound;
+        this.payloadHandle = payloadHandle;
+    }
+    
+    public Path pathOf(int agentId) {
+        return paths[agents.indexOf(agentId)];
+    }
+    
+    // Map form (agent id -> path) for results
+    public Map<Integer, Path> solution() {
+        return agents.toMap(paths);
+    }
+    
+    public ConstraintKey constraintKey() {
+        return new ConstraintKey(constraintHash, subgoalRound, constraints);
     }
     
     @Override
@@ -38,4 +96,35 @@ class CBSNode implements Comparable<CBSNode> {
         if (fComp != 0) return fComp;
         return Integer.compare(this.gCost, other.gCost);
     }
+    
+    // Key for the high-level duplicate table. The hash is computed once per node
+    // (or incrementally for a child), so lookups only compare full sets on a hash hit.
+    static final class ConstraintKey {
+        private final int hash;
+        private final int subgoalRound;
+        private final Set<Constraint> constraints;
+        
+        ConstraintKey(int hash, int subgoalRound, Set<Constraint> constraints) {
+            this.hash = hash;
+            this.subgoalRound = subgoalRound;
+            this.constraints = constraints;
+        }
+        
+        // Key of the child obtained by adding one constraint to the parent's set
+        static ConstraintKey extend(CBSNode parent, Constraint added, Set<Constraint> childConstraints) {
+            return new ConstraintKey(parent.constraintHash + added.hashCode(), parent.subgoalRound, childConstraints);
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ConstraintKey)) return false;
+            ConstraintKey k = (ConstraintKey) obj;
+            return hash == k.hash && subgoalRound == k.subgoalRound && constraints.equals(k.constraints);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * hash + subgoalRound;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,285 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// ============================================================================
+// COLLISION-AWARE A* (space-time search against an OccupancyTable)
+// ============================================================================
+
+class CollisionAwareAStar {
+    private final GridMap map;
+    private final int width;
+    // Detour length worth one collision in soft mode
+    private final int collisionPenalty;
+    private final int maxExpansions;
+    // True distances to the goals used last, shared with the other planners on the map
+    private final DistanceTableCache distances;
+    // Successor cells (wait included) of every cell, from the shared cache
+    private final int[][] successors;
+    // Charged once per expansion when set, in addition to the cap
+    private SearchBudget budget;
+    // Expansions of the search in progress
+    private int expansions;
+
+    public CollisionAwareAStar(GridMap map, int collisionPenalty, int maxExpansions) {
+        this.map = map;
+        this.width = map.getWidth();
+        this.collisionPenalty = collisionPenalty;
+        this.maxExpansions = maxExpansions;
+        this.distances = DistanceTableCache.of(map);
+        this.successors = distances.successors;
+    }
+
+    // Cap on the memory of the distance tables of this map, for all of its planners
+    // together (by default an eighth of the maximum heap); at least one table is kept
+    public void setMaxDistanceTableBytes(long bytes) {
+        distances.setMaxBytes(bytes);
+    }
+
+    public void setBudget(SearchBudget budget) {
+        this.budget = budget;
+    }
+
+    // Soft mode (avoidAll = false): path from start to goal minimizing length plus
+    // collisionPenalty per collision with the table. Hard mode: no collision at all.
+    // Returns null if the goal is unreachable, or in hard mode if the expansion cap or the
+    // budget is hit (soft mode then returns the best complete path seen). With a budget
+    // the search is recorded in the statistics of the solve, and it is a LowLevelSearch
+    // event when those are enabled.
+    public Path findPath(Agent agent, OccupancyTable table, boolean avoidAll) {
+        SearchEvents.LowLevelSearch event = new SearchEvents.LowLevelSearch();
+        event.begin();
+        expansions = 0;
+        long start = budget == null ? 0 : System.nanoTime();
+        Path path = search(agent, table, avoidAll);
+        if (budget != null) {
+            budget.getStats().recordLowLevel(getClass().getSimpleName(), expansions, System.nanoTime() - start);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.algorithm = getClass().getSimpleName();
+            event.agent = agent.id;
+            event.groupSize = 1;
+            event.startTimestep = 0;
+            event.expansions = expansions;
+            event.constraints = 0;
+            event.found = path != null;
+            event.commit();
+        }
+        return path;
+    }
+
+    private Path search(Agent agent, OccupancyTable table, boolean avoidAll) {
+        int[] dist = distanceTable(agent.goal);
+        int start = cellOf(agent.start);
+        int goal = cellOf(agent.goal);
+        if (dist[start] == Integer.MAX_VALUE) return null;
+
+        int startCollisions = table.countMove(start, start, 0);
+        // Hard mode: someone else staying at the goal for good can never be avoided
+        if (avoidAll && (startCollisions > 0 || table.isParked(goal))) return null;
+
+        int horizon = table.getHorizon();
+        int lastGoalVisit = table.lastVisit(goal);
+        // Without collisions the agent cannot settle at its goal before the last visit there
+        int earliestFinish = avoidAll ? lastGoalVisit + 1 : 0;
+        long cells = (long) map.getWidth() * map.getHeight();
+        PriorityQueue<Node> open = new PriorityQueue<>();
+        // Best g + penalty * collisions per (cell, time); time is capped at the horizon,
+        // past which the table no longer changes
+        StateScores best = new StateScores();
+        open.add(new Node(start, 0, Math.max(dist[start], earliestFinish), startCollisions, null, false));
+        best.put(start, startCollisions * collisionPenalty);
+
+        // Cheapest complete path seen so far, returned in soft mode if the cap is hit
+        Node bestTerminal = null;
+        while (!open.isEmpty()) {
+            Node current = open.poll();
+            if (current.terminal) return reconstruct(current);
+            if (++expansions > maxExpansions || (budget != null && !budget.chargeExpansion())) {
+                if (avoidAll) return null;
+                return bestTerminal != null ? reconstruct(bestTerminal) : shortestPath(start, goal, dist);
+            }
+
+            if (current.cell == goal) {
+                // Finishing here also collides with everyone passing the goal later
+                int stay = table.countStay(goal, current.g);
+                if (!avoidAll || stay == 0) {
+                    Node terminal = new Node(goal, current.g, 0, current.collisions + stay, current.parent, true);
+                    if (bestTerminal == null || terminal.compareTo(bestTerminal) < 0) bestTerminal = terminal;
+                    open.add(terminal);
+                }
+            }
+
+            for (int next : successors[current.cell]) {
+                if (dist[next] == Integer.MAX_VALUE) continue;
+                int g = current.g + 1;
+                int c = table.countMove(current.cell, next, g);
+                if (avoidAll && c > 0) continue;
+
+                int collisions = current.collisions + c;
+                int score = g + collisions * collisionPenalty;
+                long key = Math.min(g, horizon) * cells + next;
+                if (best.get(key) <= score) continue;
+                best.put(key, score);
+                open.add(new Node(next, g, Math.max(dist[next], earliestFinish - g), collisions, current, false));
+            }
+
+            // Arriving before the last agent passes the goal means colliding there later.
+            // Also try waiting here until the goal can be reached after it, as one step
+            // (like a SIPP safe interval), so a long delay costs one expansion instead of many.
+            int wait = lastGoalVisit + 1 - current.g - dist[current.cell];
+            if (wait > 1) {
+                int c = table.countWait(current.cell, current.g + 1, current.g + wait);
+                if (avoidAll && c > 0) continue;
+
+                int g = current.g + wait;
+                int collisions = current.collisions + c;
+                int score = g + collisions * collisionPenalty;
+                long key = Math.min(g, horizon) * cells + current.cell;
+                if (best.get(key) <= score) continue;
+                best.put(key, score);
+                open.add(new Node(current.cell, g, Math.max(dist[current.cell], earliestFinish - g), collisions, current, false));
+            }
+        }
+        return null;
+    }
+
+    // Any shortest path on the static map, ignoring the table (last-resort soft result)
+    private Path shortestPath(int start, int goal, int[] dist) {
+        List<Position> positions = new ArrayList<>();
+        int cell = start;
+        positions.add(positionOf(cell));
+        while (cell != goal) {
+            for (int next : successors[cell]) {
+                if (dist[next] == dist[cell] - 1) {
+                    cell = next;
+                    break;
+                }
+            }
+            positions.add(positionOf(cell));
+        }
+        return new Path(positions);
+    }
+
+    // Static shortest distance between two cells, Integer.MAX_VALUE if disconnected
+    public int distance(Position from, Position goal) {
+        return distanceTable(goal)[cellOf(from)];
+    }
+
+    private int[] distanceTable(Position goal) {
+        return distances.table(cellOf(goal));
+    }
+
+    private Path reconstruct(Node terminal) {
+        List<Position> positions = new ArrayList<>();
+        // A node is reached g - parent.g steps after its parent (more than one for a long wait)
+        for (Node n = terminal; n != null; n = n.parent) {
+            int steps = n.parent == null ? 1 : n.g - n.parent.g;
+            for (int i = 0; i < steps; i++) positions.add(positionOf(n.cell));
+        }
+        Collections.reverse(positions);
+        return new Path(positions);
+    }
+
+    private int cellOf(Position p) {
+        return p.y * width + p.x;
+    }
+
+    private Position positionOf(int cell) {
+        return new Position(cell % width, cell / width);
+    }
+
+    private class Node implements Comparable<Node> {
+        final int cell;
+        final int g, h;
+        final int collisions;
+        final Node parent;
+        // Goal reached and the agent stays there
+        final boolean terminal;
+
+        Node(int cell, int g, int h, int collisions, Node parent, boolean terminal) {
+            this.cell = cell;
+            this.g = g;
+            this.h = h;
+            this.collisions = collisions;
+            this.parent = parent;
+            this.terminal = terminal;
+        }
+
+        int score() {
+            return g + h + collisions * collisionPenalty;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            int comp = Integer.compare(score(), other.score());
+            if (comp != 0) return comp;
+            comp = Integer.compare(collisions, other.collisions);
+            if (comp != 0) return comp;
+            return Integer.compare(other.g, g);
+        }
+    }
+
+    // Open-addressing (cell, time) -> score table: the search does millions of lookups on
+    // large maps, and boxed Long keys in a HashMap dominated its running time
+    private static class StateScores {
+        private long[] keys = new long[1 << 10];
+        private int[] scores = new int[1 << 10];
+        private int size = 0;
+
+        StateScores() {
+            Arrays.fill(keys, -1);
+        }
+
+        // Integer.MAX_VALUE if the state has no score yet
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != -1; i = (i + 1) & mask) {
+                if (keys[i] == key) return scores[i];
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        void put(long key, int score) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != -1 && keys[i] != key) i = (i + 1) & mask;
+            if (keys[i] == -1) {
+                keys[i] = key;
+                if (++size * 2 > keys.length) {
+                    scores[i] = score;
+                    grow();
+                    return;
+                }
+            }
+            scores[i] = score;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldScores = scores;
+            keys = new long[oldKeys.length * 2];
+            scores = new int[oldKeys.length * 2];
+            Arrays.fill(keys, -1);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == -1) continue;
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != -1) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                scores[i] = oldScores[j];
+            }
+        }
+
+        // Keys of nearby states are close together; mix them before taking the low bits
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// ============================================================================
+// COLLISION TABLE (space-time occupancy of committed paths)
+// ============================================================================
+
+class CollisionTable implements OccupancyTable {
+    private final int width;
+    private final long cells;
+    // (time, cell) -> agents in that cell at that time, before reaching their goal
+    private final Map<Long, List<Integer>> vertices = new HashMap<>();
+    // cell -> times it is visited (by number of agents), for collisions after a goal arrival
+    private final Map<Integer, TreeMap<Integer, Integer>> visitTimes = new HashMap<>();
+    // (time, from, to) -> agents making that move
+    private final Map<Long, List<Integer>> moves = new HashMap<>();
+    // cell -> {agent, time} of agents that stay there for good from that time on
+    private final Map<Integer, List<int[]>> parked = new HashMap<>();
+    // Multiset of the stored path lengths; past the longest one only parked agents remain
+    private final TreeMap<Integer, Integer> lengths = new TreeMap<>();
+
+    public CollisionTable(GridMap map) {
+        this.width = map.getWidth();
+        this.cells = (long) map.getWidth() * map.getHeight();
+    }
+
+    public int cellOf(Position p) {
+        return p.y * width + p.x;
+    }
+
+    public void add(int agentId, Path path) {
+        List<Position> positions = path.getPositions();
+        int last = positions.size() - 1;
+        for (int t = 0; t < last; t++) {
+            int cell = cellOf(positions.get(t));
+            vertices.computeIfAbsent(vertexKey(cell, t), k -> new ArrayList<>(1)).add(agentId);
+            visitTimes.computeIfAbsent(cell, k -> new TreeMap<>()).merge(t, 1, Integer::sum);
+            int next = cellOf(positions.get(t + 1));
+            if (next != cell) {
+                moves.computeIfAbsent(moveKey(cell, next, t + 1), k -> new ArrayList<>(1)).add(agentId);
+            }
+        }
+        parked.computeIfAbsent(cellOf(positions.get(last)), k -> new ArrayList<>(1)).add(new int[]{agentId, last});
+        lengths.merge(positions.size(), 1, Integer::sum);
+    }
+
+    public void remove(int agentId, Path path) {
+        List<Position> positions = path.getPositions();
+        int last = positions.size() - 1;
+        for (int t = 0; t < last; t++) {
+            int cell = cellOf(positions.get(t));
+            long key = vertexKey(cell, t);
+            List<Integer> agents = vertices.get(key);
+            agents.remove(Integer.valueOf(agentId));
+            if (agents.isEmpty()) vertices.remove(key);
+            TreeMap<Integer, Integer> times = visitTimes.get(cell);
+            times.merge(t, -1, (a, b) -> a + b == 0 ? null : a + b);
+            if (times.isEmpty()) visitTimes.remove(cell);
+
+            int next = cellOf(positions.get(t + 1));
+            if (next != cell) {
+                long moveKey = moveKey(cell, next, t + 1);
+                List<Integer> movers = moves.get(moveKey);
+                movers.remove(Integer.valueOf(agentId));
+                if (movers.isEmpty()) moves.remove(moveKey);
+            }
+        }
+        int goal = cellOf(positions.get(last));
+        List<int[]> atGoal = parked.get(goal);
+        atGoal.removeIf(p -> p[0] == agentId);
+        if (atGoal.isEmpty()) parked.remove(goal);
+        lengths.merge(positions.size(), -1, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    @Override
+    public int getHorizon() {
+        return lengths.isEmpty() ? 0 : lengths.lastKey();
+    }
+
+    @Override
+    public int countMove(int from, int to, int t) {
+        int count = 0;
+        List<Integer> agents = vertices.get(vertexKey(to, t));
+        if (agents != null) count += agents.size();
+        List<int[]> atCell = parked.get(to);
+        if (atCell != null) {
+            for (int[] p : atCell) {
+                if (p[1] <= t) count++;
+            }
+        }
+        if (from != to) {
+            List<Integer> movers = moves.get(moveKey(to, from, t));
+            if (movers != null) count += movers.size();
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isParked(int cell) {
+        return parked.containsKey(cell);
+    }
+
+    @Override
+    public int lastVisit(int cell) {
+        TreeMap<Integer, Integer> times = visitTimes.get(cell);
+        return times == null ? -1 : times.lastKey();
+    }
+
+    @Override
+    public int countWait(int cell, int from, int to) {
+        int count = 0;
+        TreeMap<Integer, Integer> times = visitTimes.get(cell);
+        if (times != null) {
+            for (int n : times.subMap(from, true, to, true).values()) count += n;
+        }
+        List<int[]> atCell = parked.get(cell);
+        if (atCell != null) {
+            for (int[] p : atCell) {
+                if (p[1] <= to) count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int countStay(int cell, int t) {
+        int count = 0;
+        TreeMap<Integer, Integer> times = visitTimes.get(cell);
+        if (times != null) {
+            for (int n : times.tailMap(t, false).values()) count += n;
+        }
+        List<int[]> atCell = parked.get(cell);
+        if (atCell != null) {
+            for (int[] p : atCell) {
+                if (p[1] > t) count++;
+            }
+        }
+        return count;
+    }
+
+    // Agents of the table that the given path collides with (vertex, swap or at a goal)
+    public Set<Integer> collidingAgents(Path path) {
+        return collidingAgents(path, Integer.MAX_VALUE);
+    }
+
+    // Same, counting only collisions at timesteps 0..window
+    public Set<Integer> collidingAgents(Path path, int window) {
+        Set<Integer> result = new HashSet<>();
+        List<Position> positions = path.getPositions();
+        int last = positions.size() - 1;
+        collectMove(cellOf(positions.get(0)), cellOf(positions.get(0)), 0, result);
+        for (int t = 1; t <= Math.min(last, window); t++) {
+            collectMove(cellOf(positions.get(t - 1)), cellOf(positions.get(t)), t, result);
+        }
+
+        int goal = cellOf(positions.get(last));
+        TreeMap<Integer, Integer> times = visitTimes.get(goal);
+        if (times != null && last < window) {
+            for (int t : times.subMap(last, false, window, true).keySet()) {
+                result.addAll(vertices.get(vertexKey(goal, t)));
+            }
+        }
+        List<int[]> atGoal = parked.get(goal);
+        if (atGoal != null) {
+            for (int[] p : atGoal) {
+                if (Math.max(p[1], last) <= window) result.add(p[0]);
+            }
+        }
+        return result;
+    }
+
+    private void collectMove(int from, int to, int t, Set<Integer> out) {
+        List<Integer> agents = vertices.get(vertexKey(to, t));
+        if (agents != null) out.addAll(agents);
+        List<int[]> atCell = parked.get(to);
+        if (atCell != null) {
+            for (int[] p : atCell) {
+                if (p[1] <= t) out.add(p[0]);
+            }
+        }
+        if (from != to) {
+            List<Integer> movers = moves.get(moveKey(to, from, t));
+            if (movers != null) out.addAll(movers);
+        }
+    }
+
+    private long vertexKey(int cell, int t) {
+        return (long) t * cells + cell;
+    }
+
+    // Moves are between adjacent cells, so (time, from, direction) identifies them
+    private long moveKey(int from, int to, int t) {
+        int delta = to - from;
+        int direction = delta == 1 ? 0 : delta == -1 ? 1 : delta > 0 ? 2 : 3;
+        return vertexKey(from, t) * 4 + direction;
+    }
+}
@@ -8,4 +8,12 @@ abstract class Constraint {
         this.agent = agent;
         this.time = time;
     }
+    
+    // Constraints are values: two constraints on the same agent, time and cells
+    // are interchangeable, so constraint sets can be compared and deduplicated.
+    @Override
+    public abstract boolean equals(Object obj);
+    
+    @Override
+    public abstract int hashCode();
 }
\ No newline at end of file
@@ -0,0 +1,235 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// ============================================================================
+// COUPLED A* (joint low-level search for a meta-agent)
+// ============================================================================
+
+class CoupledAStar {
+    private final GridMap map;
+    private final AStar checker;
+    private final int maxExpansions;
+    // Charged once per expansion when set, in addition to the cap
+    private final SearchBudget budget;
+    // Expansions of the search in progress
+    private int expansions;
+
+    public CoupledAStar(GridMap map, int maxExpansions) {
+        this(map, maxExpansions, null);
+    }
+
+    public CoupledAStar(GridMap map, int maxExpansions, SearchBudget budget) {
+        this.map = map;
+        this.checker = new AStar(map);
+        this.maxExpansions = maxExpansions;
+        this.budget = budget;
+    }
+
+    // Plans all agents of the group jointly so that they never conflict with each other
+    // and respect their own constraints. Returns null if no plan is found within the cap.
+    // With a budget the search is recorded in the statistics of the solve, and it is a
+    // LowLevelSearch event when those are enabled.
+    public Map<Integer, Path> findPaths(List<Agent> group, Set<Constraint> constraints) {
+        SearchEvents.LowLevelSearch event = new SearchEvents.LowLevelSearch();
+        event.begin();
+        expansions = 0;
+        long start = budget == null ? 0 : System.nanoTime();
+        Map<Integer, Path> paths = search(group, constraints);
+        if (budget != null) {
+            budget.getStats().recordLowLevel(getClass().getSimpleName(), expansions, System.nanoTime() - start);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.algorithm = getClass().getSimpleName();
+            event.agent = group.get(0).id;
+            event.groupSize = group.size();
+            event.startTimestep = 0;
+            event.expansions = expansions;
+            event.constraints = constraints.size();
+            event.found = paths != null;
+            event.commit();
+        }
+        return paths;
+    }
+
+    private Map<Integer, Path> search(List<Agent> group, Set<Constraint> constraints) {
+        int k = group.size();
+        int width = map.getWidth();
+
+        Set<Integer> members = new HashSet<>();
+        for (Agent agent : group) members.add(agent.id);
+        
+        // Past the last constrained time step, states no longer depend on time
+        int horizon = 0;
+        for (Constraint c : constraints) {
+            if (!members.contains(c.agent)) continue;
+            int end = c instanceof TemporalConstraint tc ? tc.time + tc.delaySteps : c.time;
+            horizon = Math.max(horizon, end);
+        }
+
+        int[] start = new int[k];
+        for (int i = 0; i < k; i++) {
+            start[i] = group.get(i).start.y * width + group.get(i).start.x;
+        }
+
+        PriorityQueue<JointNode> open = new PriorityQueue<>();
+        Map<JointKey, Integer> bestG = new HashMap<>();
+        JointNode root = new JointNode(start, 0, 0, heuristic(start, group), null);
+        open.add(root);
+        bestG.put(new JointKey(start, 0), 0);
+
+        while (!open.isEmpty()) {
+            JointNode current = open.poll();
+            // No constraint can apply after the horizon, so the group may stay at its goals
+            if (current.time >= horizon && allAtGoal(current.cells, group)) {
+                return reconstruct(current, group);
+            }
+            // Also stop when the strategy task running this search was cancelled
+            if (++expansions > maxExpansions || Thread.currentThread().isInterrupted()) return null;
+            if (budget != null && !budget.chargeExpansion()) return null;
+
+            List<int[]> moves = new ArrayList<>();
+            expand(current, 0, new int[k], group, constraints, moves);
+            for (int[] next : moves) {
+                int cost = 0;
+                for (int i = 0; i < k; i++) {
+                    // Waiting at the goal is free; any other step costs one
+                    int goal = group.get(i).goal.y * width + group.get(i).goal.x;
+                    if (current.cells[i] != goal || next[i] != goal) cost++;
+                }
+                int g = current.g + cost;
+                int time = current.time + 1;
+                JointKey key = new JointKey(next, Math.min(time, horizon + 1));
+                Integer known = bestG.get(key);
+                if (known != null && known <= g) continue;
+                bestG.put(key, g);
+                open.add(new JointNode(next, time, g, heuristic(next, group), current));
+            }
+        }
+        return null;
+    }
+
+    // Cartesian product of the members' moves, without internal vertex/edge collisions
+    private void expand(JointNode current, int i, int[] next, List<Agent> group,
+                        Set<Constraint> constraints, List<int[]> out) {
+        if (i == next.length) {
+            out.add(next.clone());
+            return;
+        }
+        int width = map.getWidth();
+        int cell = current.cells[i];
+        Position from = new Position(cell % width, cell / width);
+        TimePosition fromT = new TimePosition(from.x, from.y, current.time);
+        for (Position n : map.getNeighbors(from)) {
+            int nCell = n.y * width + n.x;
+            boolean collides = false;
+            for (int j = 0; j < i; j++) {
+                if (next[j] == nCell || (next[j] == cell && current.cells[j] == nCell)) {
+                    collides = true;
+                    break;
+                }
+            }
+            if (collides) continue;
+            if (checker.isConstraintViolated(group.get(i).id, fromT,
+                    new TimePosition(n.x, n.y, current.time + 1), constraints, 0)) continue;
+            next[i] = nCell;
+            expand(current, i + 1, next, group, constraints, out);
+        }
+    }
+
+    private int heuristic(int[] cells, List<Agent> group) {
+        int width = map.getWidth();
+        int h = 0;
+        for (int i = 0; i < cells.length; i++) {
+            Position goal = group.get(i).goal;
+            h += Math.abs(cells[i] % width - goal.x) + Math.abs(cells[i] / width - goal.y);
+        }
+        return h;
+    }
+
+    private boolean allAtGoal(int[] cells, List<Agent> group) {
+        int width = map.getWidth();
+        for (int i = 0; i < cells.length; i++) {
+            Position goal = group.get(i).goal;
+            if (cells[i] != goal.y * width + goal.x) return false;
+        }
+        return true;
+    }
+
+    // Splits the joint plan per agent, dropping each agent's trailing waits at its goal
+    private Map<Integer, Path> reconstruct(JointNode last, List<Agent> group) {
+        List<int[]> states = new ArrayList<>();
+        for (JointNode n = last; n != null; n = n.parent) states.add(n.cells);
+        Collections.reverse(states);
+
+        int width = map.getWidth();
+        Map<Integer, Path> paths = new HashMap<>();
+        for (int i = 0; i < group.size(); i++) {
+            Agent agent = group.get(i);
+            int goal = agent.goal.y * width + agent.goal.x;
+            int end = states.size() - 1;
+            while (end > 0 && states.get(end - 1)[i] == goal) end--;
+
+            List<Position> positions = new ArrayList<>();
+            for (int t = 0; t <= end; t++) {
+                int cell = states.get(t)[i];
+                positions.add(new Position(cell % width, cell / width));
+            }
+            paths.put(agent.id, new Path(positions));
+        }
+        return paths;
+    }
+
+    private static class JointNode implements Comparable<JointNode> {
+        final int[] cells;
+        final int time;
+        final int g, h;
+        final JointNode parent;
+
+        JointNode(int[] cells, int time, int g, int h, JointNode parent) {
+            this.cells = cells;
+            this.time = time;
+            this.g = g;
+            this.h = h;
+            this.parent = parent;
+        }
+
+        @Override
+        public int compareTo(JointNode other) {
+            int fComp = Integer.compare(g + h, other.g + other.h);
+            if (fComp != 0) return fComp;
+            return Integer.compare(other.g, g);
+        }
+    }
+
+    private static class JointKey {
+        final int[] cells;
+        final int time;
+
+        JointKey(int[] cells, int time) {
+            this.cells = cells;
+            this.time = time;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof JointKey)) return false;
+            JointKey k = (JointKey) obj;
+            return time == k.time && Arrays.equals(cells, k.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(cells) + time;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package phd.mauj;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// ============================================================================
+// DISTANCE TABLE CACHE (static distances to goals, shared per map)
+// ============================================================================
+
+// True distances to the goals used last (BFS over the static map), shared by every
+// CollisionAwareAStar on the same map: planners are kept across solves and one is built
+// per solver, so tables of their own multiplied the memory by the number of solvers.
+// Least recently used tables are evicted first. The map must not change once planners
+// use it.
+class DistanceTableCache {
+    // Default cap: this fraction of the maximum heap, for all planners of one map together
+    private static final int HEAP_SHARE = 8;
+    // Caches of the maps still in use; a cache holds no reference to its map
+    private static final Map<GridMap, DistanceTableCache> CACHES = new WeakHashMap<>();
+
+    private final int cells;
+    // Successor cells (wait included) of every cell, built once from the map
+    final int[][] successors;
+    // Goal cell -> distances. In access order, so even a lookup changes it: every access
+    // holds the lock of the cache
+    private final LinkedHashMap<Integer, int[]> tables;
+    private int maxTables;
+
+    static DistanceTableCache of(GridMap map) {
+        synchronized (CACHES) {
+            return CACHES.computeIfAbsent(map, DistanceTableCache::new);
+        }
+    }
+
+    private DistanceTableCache(GridMap map) {
+        int width = map.getWidth();
+        this.cells = width * map.getHeight();
+        this.successors = new int[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            List<Position> neighbors = map.getNeighbors(new Position(cell % width, cell / width));
+            successors[cell] = new int[neighbors.size()];
+            for (int i = 0; i < neighbors.size(); i++) {
+                successors[cell][i] = neighbors.get(i).y * width + neighbors.get(i).x;
+            }
+        }
+        this.tables = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                return size() > maxTables;
+            }
+        };
+        setMaxBytes(Runtime.getRuntime().maxMemory() / HEAP_SHARE);
+    }
+
+    // Cap on the memory of the cached tables; at least one table is kept
+    synchronized void setMaxBytes(long bytes) {
+        this.maxTables = (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes / (4L * cells)));
+        Iterator<int[]> eldest = tables.values().iterator();
+        while (tables.size() > maxTables) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    // Distances of every cell to 'goal', Integer.MAX_VALUE where disconnected
+    int[] table(int goal) {
+        synchronized (this) {
+            int[] dist = tables.get(goal);
+            if (dist != null) return dist;
+        }
+        // Built outside the lock, so planners on other threads are not held up by it; two
+        // threads missing the same goal at once both build it
+        int[] dist = bfs(goal);
+        synchronized (this) {
+            tables.put(goal, dist);
+        }
+        return dist;
+    }
+
+    private int[] bfs(int goal) {
+        int[] dist = new int[cells];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        // Every cell is queued at most once, so a plain array serves as the BFS queue
+        int[] queue = new int[cells];
+        int head = 0, tail = 0;
+        dist[goal] = 0;
+        queue[tail++] = goal;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int next : successors[cell]) {
+                if (dist[next] == Integer.MAX_VALUE) {
+                    dist[next] = dist[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return dist;
+    }
+}
@@ -1,12 +1,9 @@
 package phd.mauj;
 
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 //============================================================================
 //ECBS Algorithm
@@ -18,105 +15,98 @@ class ECBS extends ACBS {
     public ECBS(GridMap map, List<Agent> agents, long timeoutMs, double suboptimalityBound) {
         super(map, agents, timeoutMs, suboptimalityBound); 
         this.enhancedPathfinder = new EnhancedAStar(map); 
+        enhancedPathfinder.setBudget(budget);
+    }
+    
+    public ECBS(GridMap map, List<Agent> agents, long timeoutMs, double suboptimalityBound,
+                ExecutorService strategyExecutor) {
+        super(map, agents, timeoutMs, suboptimalityBound, strategyExecutor);
+        this.enhancedPathfinder = new EnhancedAStar(map);
+        enhancedPathfinder.setBudget(budget);
     }
     
     @Override
     protected CBSNode createChildNode(CBSNode parent, Set<Constraint> constraints, int constrainedAgent, List<Agent> agents, GoalDecomposition goalDecomposition) {
-        Map<Integer, Path> newSolution = new HashMap<>(parent.solution);
-        
-        Agent agent = agents.stream().filter(a -> a.id == constrainedAgent).findFirst().orElse(null);
-        if (agent == null) return null;
+        int agentIndex = parent.agents.indexOf(constrainedAgent);
+        if (agentIndex < 0) return null;
         
         // ECBS: Full replan from original start (startTime=0)
-        Path newPath = enhancedPathfinder.findPath(agent, constraints, 0);
+        Path newPath = enhancedPathfinder.findPath(parent.agents.agent(agentIndex), constraints, 0);
         if (newPath == null) return null;
         
-        newSolution.put(constrainedAgent, newPath);
-        
-        int newGCost = newSolution.values().stream().mapToInt(Path::getCost).sum();
-        List<Conflict> newConflicts = findConflicts(newSolution);
-        int newHCost = calculateHeuristic(newSolution, agents, map, goalDecomposition);
-        
-        return new CBSNode(newSolution, constraints, newGCost, newHCost, suboptimalityWeight, newConflicts);
+        Path[] newPaths = parent.paths.clone();
+        newPaths[agentIndex] = newPath;
+        return buildNode(parent, newPaths, agentIndex, constraints, goalDecomposition);
+    }
+    
+    // Root paths of the ECBS/EECBS tree are planned with EnhancedAStar
+    @Override
+    protected Path planRootPath(Agent agent, Set<Constraint> constraints) {
+        return enhancedPathfinder.findPath(agent, constraints, 0);
     }
     
     // ECBS solve loop uses FOCAL list based on the E-cost (g + W*h)
     @Override
     public Result solve(List<Agent> agents) {
         long startTime = System.currentTimeMillis();
-        GoalDecomposition goalDecomposition = new GoalDecomposition(agents, map);
-
-        Map<Integer, Path> initialSolution = new HashMap<>();
-        Set<Constraint> emptyConstraints = new HashSet<>();
-        int gCost = 0;
+        budget.start();
         
-        for (Agent agent : agents) {
-            Path path = enhancedPathfinder.findPath(agent, emptyConstraints, 0);
-            if (path == null) {
-                return new Result(false, null, 0, System.currentTimeMillis() - startTime, "No initial solution");
+        try {
+            GoalDecomposition goalDecomposition = decompose(agents);
+
+            CBSNode root = createRoot(agents, goalDecomposition);
+            if (root == null) {
+                return finish(agents, new Result(false, null, 0, System.currentTimeMillis() - startTime,
+                                                 "No initial solution"));
             }
-            initialSolution.put(agent.id, path);
-            gCost += path.getCost();
-        }
-        
-        List<Conflict> initialConflicts = findConflicts(initialSolution);
-        int hCost = calculateHeuristic(initialSolution, agents, map, goalDecomposition);
-        
-        CBSNode root = new CBSNode(initialSolution, emptyConstraints, gCost, hCost, suboptimalityWeight, initialConflicts);
         
-        if (initialConflicts.isEmpty() && allAgentsAtFinalGoals(root, agents)) {
-            return new Result(true, initialSolution, gCost, System.currentTimeMillis() - startTime, "Optimal-ECBS");
-        }
+            if (root.conflicts.isEmpty() && allAgentsAtFinalGoals(root)) {
+                // Prior paths kept by a warm start need not be shortest paths
+                return finish(agents, new Result(true, root.solution(), root.gCost, System.currentTimeMillis() - startTime,
+                                                 isWarmSolve() ? "Solved-ECBS" : "Optimal-ECBS"));
+            }
         
-        PriorityQueue<CBSNode> OPEN = new PriorityQueue<>(Comparator.comparingInt(n -> n.fCost)); 
-        PriorityQueue<CBSNode> FOCAL = new PriorityQueue<>(
-            Comparator.comparingInt((CBSNode n) -> n.eCost).thenComparingInt(n -> n.conflicts.size())
-        );
+            // OPEN/FOCAL maintained incrementally: nodes enter FOCAL on insertion if under
+            // the bound, and the rest only when f_min rises. Each iteration costs O(log n).
+            BoundedOpenList OPEN = createOpenList(new FocalList(suboptimalityWeight,
+                Comparator.comparingInt((CBSNode n) -> n.eCost).thenComparingInt(n -> n.conflictCount)
+            ), root, goalDecomposition);
 
-        OPEN.add(root);
-        CBSNode bestSolution = root;
+            OPEN.add(root);
+            CBSNode bestSolution = root;
         
-        while (!OPEN.isEmpty() && (System.currentTimeMillis() - startTime) < timeoutMs) {
-            int f_min = OPEN.peek().fCost;
+            while (!OPEN.isEmpty() && !interrupted && budget.chargeNode()) {
+                budget.getStats().observeOpenSize(OPEN.size());
+                CBSNode current = OPEN.poll(); 
+                if (current == null) break;
             
-            FOCAL.clear();
-            for (CBSNode n : OPEN) {
-                if (n.fCost <= suboptimalityWeight * f_min) { 
-                    FOCAL.add(n);
+                if (current.conflicts.isEmpty()) {
+                    if (allAgentsAtFinalGoals(current)) { 
+                        // A depth-first search no longer guarantees the suboptimality bound, and
+                        // neither do the prior paths of a warm start
+                        return finish(agents, new Result(true, current.solution(), current.gCost, 
+                                                         System.currentTimeMillis() - startTime,
+                                                         OPEN.isDepthFirst() || isWarmSolve() ? "Solved-ECBS" : "Optimal-ECBS"));
+                    }
+                    continue;
                 }
-            }
             
-            CBSNode current = FOCAL.poll(); 
-            if (current == null) continue;
-
-            OPEN.remove(current);
-            
-            if (current.conflicts.isEmpty()) {
-                if (allAgentsAtFinalGoals(current, agents)) { 
-                    return new Result(true, current.solution, current.gCost, 
-                                     System.currentTimeMillis() - startTime, "Optimal-ECBS");
+                if (current.conflicts.size() < bestSolution.conflicts.size() || 
+                    (current.conflicts.size() == bestSolution.conflicts.size() && current.gCost < bestSolution.gCost)) {
+                    bestSolution = current;
                 }
-                continue;
-            }
             
-            if (current.conflicts.size() < bestSolution.conflicts.size() || 
-                (current.conflicts.size() == bestSolution.conflicts.size() && current.gCost < bestSolution.gCost)) {
-                bestSolution = current;
+                Conflict conflict = current.conflicts.get(0);
+                OPEN.addChildren(generateChildren(current, conflict, agents, goalDecomposition));
             }
-            
-            Conflict conflict = current.conflicts.get(0);
-            List<CBSNode> children = generateChildren(current, conflict, agents, goalDecomposition);
-            
-            for (CBSNode child : children) {
-                if (child != null) {
-                    OPEN.add(child); 
-                }
-            }
-        }
         
-        boolean success = bestSolution.conflicts.isEmpty() && allAgentsAtFinalGoals(bestSolution, agents);
-        return new Result(success, bestSolution.solution, bestSolution.gCost, 
-                         System.currentTimeMillis() - startTime, 
-                         success ? "Optimal-ECBS" : "Suboptimal-ECBS");
+            boolean success = bestSolution.conflicts.isEmpty() && allAgentsAtFinalGoals(bestSolution);
+            return finish(agents, new Result(success, bestSolution.solution(), bestSolution.gCost, 
+                             System.currentTimeMillis() - startTime, 
+                             success ? (isWarmSolve() ? "Solved-ECBS" : "Optimal-ECBS") : "Suboptimal-ECBS"));
+        } catch (Exception e) {
+            return withStatistics(new Result(false, null, 0,
+                            System.currentTimeMillis() - startTime, "Exception: " + e.getMessage()));
+        }
     }
 }
\ No newline at end of file
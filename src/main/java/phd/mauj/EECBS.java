@@ -1,6 +1,9 @@
 package phd.mauj;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 
 // ============================================================================
 // EECBS Algorithm
@@ -11,11 +14,159 @@ class EECBS extends ECBS {
         super(map, agents, timeoutMs, suboptimalityBound);
     }
     
+    public EECBS(GridMap map, List<Agent> agents, long timeoutMs, double suboptimalityBound,
+                 ExecutorService strategyExecutor) {
+        super(map, agents, timeoutMs, suboptimalityBound, strategyExecutor);
+    }
+    
+    // OPEN and CLEANUP hold the same nodes under different orders, which one bounded
+    // queue cannot serve; both stay unbounded and on-heap
+    @Override
+    public void setOpenListBound(int maxNodes, long maxBytes) {
+        if (maxNodes > 0 || maxBytes > 0) throw new UnsupportedOperationException("EECBS does not bound OPEN");
+    }
+    
+    @Override
+    public void setOffHeapNodes(boolean offHeap) {
+        if (offHeap) throw new UnsupportedOperationException("EECBS keeps its nodes on-heap");
+    }
+    
+    // Explicit Estimation CBS: CLEANUP (by f, admissible), OPEN (by f-hat) and
+    // FOCAL (OPEN nodes with f-hat <= w * f-hat_min, by number of conflicts).
+    // The low level is the EnhancedAStar inherited from ECBS.
     @Override
     public Result solve(List<Agent> agents) {
-        // EECBS has its own solve loop logic usually, but here it inherits from ECBS for simplicity
-        Result result = super.solve(agents);
-        return new Result(result.success, result.solution, result.cost, 
-                        result.runtimeMs, result.status.replace("ECBS", "EECBS"));
+        long startTime = System.currentTimeMillis();
+        budget.start();
+        GoalDecomposition goalDecomposition = decompose(agents);
+        
+        CBSNode root = createRoot(agents, goalDecomposition);
+        if (root == null) {
+            return finish(agents, new Result(false, null, 0, System.currentTimeMillis() - startTime,
+                                             "No initial solution"));
+        }
+        
+        if (root.conflicts.isEmpty() && allAgentsAtFinalGoals(root)) {
+            // Prior paths kept by a warm start need not be shortest paths
+            return finish(agents, new Result(true, root.solution(), root.gCost, System.currentTimeMillis() - startTime,
+                                             isWarmSolve() ? "Solved-EECBS" : "Optimal-EECBS"));
+        }
+        
+        OneStepErrors errors = new OneStepErrors();
+        
+        FocalList OPEN = new FocalList(suboptimalityWeight, n -> n.fHatCost,
+            Comparator.comparingInt((CBSNode n) -> n.conflicts.size()).thenComparingInt(n -> n.fHatCost)
+        );
+        TreeSet<CBSNode> CLEANUP = new TreeSet<>(
+            Comparator.comparingInt((CBSNode n) -> n.fCost).thenComparingLong(n -> n.queueSeq)
+        );
+        
+        root.fHatCost = errors.estimateFHat(root);
+        OPEN.add(root);
+        CLEANUP.add(root);
+        CBSNode bestSolution = root;
+        
+        while (!CLEANUP.isEmpty() && !interrupted && budget.chargeNode()) {
+            budget.getStats().observeOpenSize(CLEANUP.size());
+            CBSNode current = selectNode(OPEN, CLEANUP);
+            OPEN.remove(current);
+            CLEANUP.remove(current);
+            
+            if (current.conflicts.isEmpty()) {
+                if (allAgentsAtFinalGoals(current)) {
+                    return finish(agents, new Result(true, current.solution(), current.gCost,
+                                                     System.currentTimeMillis() - startTime,
+                                                     isWarmSolve() ? "Solved-EECBS" : "Optimal-EECBS"));
+                }
+                continue;
+            }
+            
+            if (current.conflicts.size() < bestSolution.conflicts.size() || 
+                (current.conflicts.size() == bestSolution.conflicts.size() && current.gCost < bestSolution.gCost)) {
+                bestSolution = current;
+            }
+            
+            Conflict conflict = current.conflicts.get(0);
+            List<CBSNode> children = generateChildren(current, conflict, agents, goalDecomposition);
+            
+            // Learn from the best child before estimating the children's f-hat
+            CBSNode bestChild = null;
+            for (CBSNode child : children) {
+                if (child == null) continue;
+                if (bestChild == null || child.conflicts.size() < bestChild.conflicts.size() ||
+                    (child.conflicts.size() == bestChild.conflicts.size() && child.fCost < bestChild.fCost)) {
+                    bestChild = child;
+                }
+            }
+            if (bestChild != null) {
+                errors.observe(current, bestChild);
+            }
+            
+            for (CBSNode child : children) {
+                if (child != null) {
+                    child.fHatCost = errors.estimateFHat(child);
+                    OPEN.add(child);
+                    CLEANUP.add(child);
+                }
+            }
+        }
+        
+        boolean success = bestSolution.conflicts.isEmpty() && allAgentsAtFinalGoals(bestSolution);
+        return finish(agents, new Result(success, bestSolution.solution(), bestSolution.gCost, 
+                         System.currentTimeMillis() - startTime, 
+                         success ? (isWarmSolve() ? "Solved-EECBS" : "Optimal-EECBS") : "Suboptimal-EECBS"));
+    }
+    
+    // Explicit estimation selection rule, with LB = min f over CLEANUP:
+    // FOCAL head if f-hat <= w * LB, else OPEN head if f-hat <= w * LB, else CLEANUP head.
+    private CBSNode selectNode(FocalList OPEN, TreeSet<CBSNode> CLEANUP) {
+        double bound = suboptimalityWeight * CLEANUP.first().fCost;
+        
+        CBSNode focalHead = OPEN.peekFocal();
+        if (focalHead != null && focalHead.fHatCost <= bound) {
+            return focalHead;
+        }
+        CBSNode openHead = OPEN.peekOpen();
+        if (openHead != null && openHead.fHatCost <= bound) {
+            return openHead;
+        }
+        return CLEANUP.first();
+    }
+    
+    // ========================================================================
+    // ONLINE-LEARNED HEURISTIC
+    // ========================================================================
+    
+    // Averages of the one-step errors between a node and its best child:
+    //   cost error     eps_c = f(child) - f(parent)
+    //   distance error eps_d = d(child) - (d(parent) - 1), with d = number of conflicts
+    // h-hat(n) = h(n) + d(n) * avg(eps_c) / (1 - avg(eps_d))
+    static class OneStepErrors {
+        private double sumCostError = 0;
+        private double sumDistanceError = 0;
+        private int count = 0;
+        
+        void observe(CBSNode parent, CBSNode child) {
+            sumCostError += child.fCost - parent.fCost;
+            sumDistanceError += child.conflicts.size() - (parent.conflicts.size() - 1);
+            count++;
+        }
+        
+        int estimateFHat(CBSNode node) {
+            if (count == 0) return node.fCost;
+            
+            double avgCost = Math.max(0, sumCostError / count);
+            double avgDistance = sumDistanceError / count;
+            int d = node.conflicts.size();
+            
+            double correction;
+            if (avgDistance < 1) {
+                correction = d * avgCost / (1 - avgDistance);
+            } else {
+                // Conflicts are not decreasing on average: fall back to the plain per-conflict cost
+                correction = d * avgCost;
+            }
+            return node.fCost + (int) Math.round(correction);
+        }
     }
-}
\ No newline at end of file
+}
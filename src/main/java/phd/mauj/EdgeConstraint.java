@@ -1,5 +1,7 @@
 package phd.mauj;
 
+import java.util.Objects;
+
 class EdgeConstraint extends Constraint {
     public final Position from, to;
     
@@ -8,4 +10,16 @@ class EdgeConstraint extends Constraint {
         this.from = from;
         this.to = to;
     }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof EdgeConstraint)) return false;
+        EdgeConstraint c = (EdgeConstraint) obj;
+        return agent == c.agent && time == c.time && from.equals(c.from) && to.equals(c.to);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash('E', agent, time, from, to);
+    }
 }
\ No newline at end of file
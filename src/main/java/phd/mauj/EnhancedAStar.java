@@ -32,7 +32,7 @@ class EnhancedAStar extends AStar {
     }
     
     @Override
-    public Path findPath(Agent agent, Set<Constraint> constraints, int startTime) {
+    protected Path search(Agent agent, Set<Constraint> constraints, int startTime, Expansions expansions) {
         PriorityQueue<EnhancedAStarNode> OPEN = new PriorityQueue<>(
             Comparator.comparingInt((EnhancedAStarNode n) -> n.gScore + n.hScore)
         ); 
@@ -70,6 +70,7 @@ class EnhancedAStar extends AStar {
 
             OPEN.remove(current);
             TimePosition currentPos = current.position;
+            if (!chargeExpansion(expansions)) return null;
             
             if (currentPos.x == agent.goal.x && currentPos.y == agent.goal.y) {
                 return reconstructPath(cameFrom, currentPos, current.gScore); 
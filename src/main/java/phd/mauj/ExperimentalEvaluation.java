@@ -1,6 +1,7 @@
 package phd.mauj;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -10,7 +11,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 // ============================================================================
 // EXPERIMENTAL EVALUATION
@@ -21,7 +22,13 @@ class ExperimentalEvaluation {
     private static int[] AGENT_COUNTS = {100, 300, 500, 700, 900, 1100, 1300, 1500, 1700, 1900, 2000};
     private static final int INSTANCES_PER_CONFIG = 50; // instances per config standard is : 50
     
-    public static void main(String[] args) throws IOException {
+    // Options: --agents <from>-<to> (step 200), --workers <n> (default: one per core),
+    // --cpus <list> (pin the workers to these CPUs, e.g. 0,2,4 or 0-7), --fresh (discard
+    // results.csv instead of resuming from it)
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int workers = Runtime.getRuntime().availableProcessors();
+        int[] cpus = null;
+        boolean resume = true;
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("--agents") && i + 1 < args.length) {
                 String range = args[i + 1];
@@ -34,6 +41,13 @@ class ExperimentalEvaluation {
                     counts.add(j);
                 }
                 AGENT_COUNTS = counts.stream().mapToInt(Integer::intValue).toArray();
+            } else if (args[i].equals("--workers") && i + 1 < args.length) {
+                workers = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--cpus") && i + 1 < args.length) {
+                cpus = parseCpus(args[i + 1]);
+                if (!Arrays.asList(args).contains("--workers")) workers = cpus.length;
+            } else if (args[i].equals("--fresh")) {
+                resume = false;
             }
         }
         
@@ -55,55 +69,46 @@ class ExperimentalEvaluation {
              testMaps.put("small-dummy", new GridMap(64, 64));
         }
         
-        try (PrintWriter writer = new PrintWriter(new FileWriter("results.csv"))) {
-            writer.println("Algorithm,Map,Agents,Instance,Success,Optimal,Cost,Runtime(ms),Status");
-            
-            for (String mapName : testMaps.keySet()) {
-                System.out.println("\nTesting map: " + mapName);
-                GridMap map = testMaps.get(mapName);
-                
-                for (int agentCount : AGENT_COUNTS) {
-                    System.out.println("  Agent count: " + agentCount);
-                    Random random = new Random(42);
-                    
-                    for (int instance = 0; instance < INSTANCES_PER_CONFIG; instance++) {
-                        List<Agent> agents = MovingAIMapLoader.generateRandomInstances(map, agentCount, random);
-        
-                        if (agents.size() < agentCount) {
-                            continue;
-                        }
-                        
-                        try {
-                            Map<String, ACBS> algorithms = new HashMap<>();
-                            algorithms.put("ACBS", new ACBS(map, agents, TIMEOUT_MS, 1.2));
-                            algorithms.put("CBS", new CBS(map, agents, TIMEOUT_MS));
-                            algorithms.put("ECBS", new ECBS(map, agents, TIMEOUT_MS, 1.2));
-                            algorithms.put("EECBS", new EECBS(map, agents, TIMEOUT_MS, 1.2));
-                            
-                            for (String algName : algorithms.keySet()) {
-                                ACBS.Result result = algorithms.get(algName).solve(agents);
-                                
-                                writer.printf("%s,%s,%d,%d,%s,%s,%d,%d,%s%n",
-                                    algName, mapName, agentCount, instance,
-                                    result.success, result.optimal, result.cost, 
-                                    result.runtimeMs, result.status);
-                                writer.flush();
-                            }
-                        } catch (Exception e) {
-                            System.err.println("Error in instance " + instance + ": " + e.getMessage());
-                        }
-                        
-                        System.gc();
-                    }
-                }
-            }
+        BenchmarkRunner runner = new BenchmarkRunner(AGENT_COUNTS, INSTANCES_PER_CONFIG, TIMEOUT_MS);
+        for (String mapName : testMaps.keySet()) {
+            runner.addMap(mapName, testMaps.get(mapName));
         }
         
+        // Every worker builds its own solvers, once per map, and reuses them for all its
+        // instances. They run on the worker thread alone, so cells running side by side
+        // do not compete for strategy threads and their CPU times stay separate.
+        ExecutorService inline = SolverExecutors.callerRuns();
+        runner.addAlgorithm("ACBS", (map, t) -> new ACBS(map, new ArrayList<>(), t, 1.2, inline));
+        runner.addAlgorithm("CBS", (map, t) -> new CBS(map, new ArrayList<>(), t, inline));
+        runner.addAlgorithm("ECBS", (map, t) -> new ECBS(map, new ArrayList<>(), t, 1.2, inline));
+        runner.addAlgorithm("EECBS", (map, t) -> new EECBS(map, new ArrayList<>(), t, 1.2, inline));
+        runner.addAlgorithm("PP", (map, t) -> new PrioritizedPlanning(map, new ArrayList<>(), t));
+        runner.addAlgorithm("PBS", (map, t) -> new PBS(map, new ArrayList<>(), t));
+        runner.addAlgorithm("ID", (map, t) -> new IndependenceDetection(map, new ArrayList<>(), t,
+            (m, group, groupTimeout) -> new ACBS(m, group, groupTimeout, 1.2, inline), inline));
+        runner.addAlgorithm("RHCR", (map, t) -> new RollingHorizon(map, new ArrayList<>(), t, 10, 5));
+        runner.setWorkers(workers);
+        runner.setPinnedCpus(cpus);
+        
+        runner.run(new File("results.csv"), resume);
+        
         System.out.println("\nExperiment completed. Results saved to results.csv");
         generateSummaryReport();
         System.exit(0);
     }
     
+    // "0,2,4" or "0-3" or a mix of both
+    private static int[] parseCpus(String list) {
+        List<Integer> cpus = new ArrayList<>();
+        for (String part : list.split(",")) {
+            String[] range = part.trim().split("-");
+            int from = Integer.parseInt(range[0]);
+            int to = range.length > 1 ? Integer.parseInt(range[1]) : from;
+            for (int cpu = from; cpu <= to; cpu++) cpus.add(cpu);
+        }
+        return cpus.stream().mapToInt(Integer::intValue).toArray();
+    }
+    
     // Summary report generation logic is retained but commented out since it relies on external files
     private static void generateSummaryReport() throws IOException {
         try (BufferedReader reader = new BufferedReader(new FileReader("results.csv"));
@@ -119,6 +124,7 @@ class ExperimentalEvaluation {
             
             while ((line = reader.readLine()) != null) {
                 String[] parts = line.split(",");
+                if (BenchmarkRunner.SKIPPED.equals(parts[parts.length - 1])) continue;
                 String algorithm = parts[0];
                 boolean success = Boolean.parseBoolean(parts[4]);
                 long runtime = Long.parseLong(parts[7]);
@@ -132,7 +138,7 @@ class ExperimentalEvaluation {
             
             writer.println("Performance Summary:");
             writer.println("===================");
-            for (String alg : Arrays.asList("ACBS", "CBS", "ECBS", "EECBS")) {
+            for (String alg : Arrays.asList("ACBS", "CBS", "ECBS", "EECBS", "PP", "PBS", "ID", "RHCR")) {
                 List<Double> times = runtimes.get(alg);
                 int successes = successCounts.getOrDefault(alg, 0);
                 int total = totalInstances.getOrDefault(alg, 0);
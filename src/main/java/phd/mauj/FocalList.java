@@ -0,0 +1,163 @@
+package phd.mauj;
+
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+
+// ============================================================================
+// HIGH-LEVEL OPEN/FOCAL LIST (incrementally maintained)
+// ============================================================================
+
+class FocalList {
+    // OPEN: nodes bucketed by their OPEN cost, so f_min and f-ranges are O(log n) lookups
+    private final TreeMap<Integer, Set<CBSNode>> open = new TreeMap<>();
+    // FOCAL: nodes of OPEN with f <= w * f_min, ordered by the secondary criterion
+    private final TreeSet<CBSNode> focal;
+    private double w;
+    // OPEN cost of a node: f for ECBS, f-hat for EECBS
+    private final ToIntFunction<CBSNode> cost;
+    private int size = 0;
+    private int fMin = Integer.MAX_VALUE;
+    private long nextSeq = 0;
+
+    public FocalList(double w, Comparator<CBSNode> focalComparator) {
+        this(w, n -> n.fCost, focalComparator);
+    }
+
+    public FocalList(double w, ToIntFunction<CBSNode> cost, Comparator<CBSNode> focalComparator) {
+        this.w = w;
+        this.cost = cost;
+        // The insertion sequence makes the order total, so TreeSet removal finds exactly this node
+        this.focal = new TreeSet<>(focalComparator.thenComparingLong(n -> n.queueSeq));
+    }
+
+    public void add(CBSNode node) {
+        node.queueSeq = nextSeq++;
+        int f = cost.applyAsInt(node);
+        open.computeIfAbsent(f, k -> new LinkedHashSet<>()).add(node);
+        size++;
+
+        if (f < fMin) {
+            // Tighter lower bound: nodes above the new bound leave FOCAL
+            int oldFMin = fMin;
+            fMin = f;
+            if (oldFMin != Integer.MAX_VALUE) {
+                shrinkFocal(oldFMin);
+            }
+        }
+        if (f <= w * fMin) {
+            focal.add(node);
+        }
+    }
+
+    // Removes and returns the best FOCAL node, then restores the FOCAL invariant
+    public CBSNode poll() {
+        if (size == 0) return null;
+
+        CBSNode best = focal.pollFirst();
+        if (best == null) {
+            // Only possible for w < 1: fall back to the f_min node
+            best = open.firstEntry().getValue().iterator().next();
+        }
+        removeFromOpen(best);
+        updateLowerBound();
+        return best;
+    }
+
+    public void remove(CBSNode node) {
+        if (removeFromOpen(node)) {
+            focal.remove(node);
+            updateLowerBound();
+        }
+    }
+
+    // Changes the suboptimality weight in place (anytime search). Only the nodes whose
+    // f lies between the old and the new bound move in or out of FOCAL.
+    public void setWeight(double newW) {
+        if (size > 0) {
+            int oldBound = (int) Math.floor(w * fMin);
+            int newBound = (int) Math.floor(newW * fMin);
+            if (newBound < oldBound) {
+                for (Set<CBSNode> bucket : open.subMap(newBound, false, oldBound, true).values()) {
+                    focal.removeAll(bucket);
+                }
+            } else if (newBound > oldBound) {
+                for (Set<CBSNode> bucket : open.subMap(oldBound, false, newBound, true).values()) {
+                    focal.addAll(bucket);
+                }
+            }
+        }
+        w = newW;
+    }
+    
+    // Drops every node whose OPEN cost is >= bound, e.g. nodes that cannot beat an incumbent
+    public void pruneFrom(int bound) {
+        Map<Integer, Set<CBSNode>> tail = open.tailMap(bound, true);
+        for (Set<CBSNode> bucket : tail.values()) {
+            focal.removeAll(bucket);
+            size -= bucket.size();
+        }
+        tail.clear();
+        updateLowerBound();
+    }
+    
+    // Removes and returns a node with the highest OPEN cost (the oldest one among equals)
+    public CBSNode pollWorst() {
+        if (size == 0) return null;
+        CBSNode worst = open.lastEntry().getValue().iterator().next();
+        remove(worst);
+        return worst;
+    }
+    
+    public CBSNode peekOpen() {
+        return size == 0 ? null : open.firstEntry().getValue().iterator().next();
+    }
+
+    public CBSNode peekFocal() {
+        return focal.isEmpty() ? null : focal.first();
+    }
+
+    public int getFMin() { return fMin; }
+    public double getWeight() { return w; }
+    public int size() { return size; }
+    public int focalSize() { return focal.size(); }
+    public boolean isEmpty() { return size == 0; }
+
+    private boolean removeFromOpen(CBSNode node) {
+        int f = cost.applyAsInt(node);
+        Set<CBSNode> bucket = open.get(f);
+        if (bucket == null || !bucket.remove(node)) return false;
+        if (bucket.isEmpty()) open.remove(f);
+        size--;
+        return true;
+    }
+
+    // When f_min rises only the nodes in (w * old, w * new] enter FOCAL
+    private void updateLowerBound() {
+        if (size == 0) {
+            fMin = Integer.MAX_VALUE;
+            return;
+        }
+        int newFMin = open.firstKey();
+        if (newFMin > fMin) {
+            int oldBound = (int) Math.floor(w * fMin);
+            int newBound = (int) Math.floor(w * newFMin);
+            for (Set<CBSNode> bucket : open.subMap(oldBound, false, newBound, true).values()) {
+                focal.addAll(bucket);
+            }
+        }
+        fMin = newFMin;
+    }
+
+    private void shrinkFocal(int oldFMin) {
+        int oldBound = (int) Math.floor(w * oldFMin);
+        int newBound = (int) Math.floor(w * fMin);
+        for (Set<CBSNode> bucket : open.subMap(newBound, false, oldBound, true).values()) {
+            focal.removeAll(bucket);
+        }
+    }
+}
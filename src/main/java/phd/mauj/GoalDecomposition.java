@@ -1,96 +1,294 @@
 package phd.mauj;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 // ============================================================================
-// GOAL DECOMPOSITION 
+// GOAL DECOMPOSITION
 // ============================================================================
 
 class GoalDecomposition {
-    private final Map<Integer, List<Position>> goalsDecomposition;
-    private final GridMap map;
-    
-    public GoalDecomposition(List<Agent> agents, GridMap map) {    
-        this.map = map;
-        this.goalsDecomposition = new HashMap<>();
-        for (Agent agent : agents) {
-            goalsDecomposition.put(agent.id, computeIntermediateGoals(agent));
-        }
+    // Remaining distance up to which a segment is not split any further
+    private static final int MIN_SEGMENT_LENGTH = 6;
+    // Waypoint candidates are the free cells within this many steps of the route between
+    // one sixth and one half of the remaining distance, so a split can move off a choke point
+    private static final int SEARCH_RADIUS = 2;
+    // Steps away from the ideal split worth one route through the cell; without this
+    // every agent passing a choke point would slide to the same quiet cell next to it
+    private static final int SPLIT_STEPS_PER_ROUTE = 2;
+    // Below this many agents the decomposition is not worth handing to other threads
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    private final Map<Integer, Chain> chains;
+    private final int width;
+    // Successor cells (wait included) of every cell, built once from the map
+    private final int[][] successors;
+
+    public GoalDecomposition(List<Agent> agents, GridMap map) {
+        this(agents, map, SolverExecutors.shared());
     }
 
-    private Position computeIntermediateGoal(Position start, Position goal, GridMap map) {
-        int dx = goal.x - start.x;
-        int dy = goal.y - start.y;
-        
-        // Target 1/3 point
-        double t = 1.0 / 3.0;
-        int cx = (int) Math.round(start.x + t * dx);
-        int cy = (int) Math.round(start.y + t * dy);
-
-        Position best = null;
-        int bestDist = Integer.MAX_VALUE;
-        // Search a 5x5 area around the target 1/3 point
-        for (int ox = -2; ox <= 2; ox++) {
-            for (int oy = -2; oy <= 2; oy++) {
-                int nx = cx + ox, ny = cy + oy;
-                if (nx < 0 || nx >= map.getWidth() || ny < 0 || ny >= map.getHeight()) continue;
-                if (map.isObstacle(nx, ny)) continue;
-                
-                Position np = new Position(nx, ny);
-                // Heuristic: prefer spots that are closer to the 1/3 point
-                int dist = Math.abs(cx - nx) + Math.abs(cy - ny); 
-                if (dist < bestDist) { bestDist = dist; best = np; }
-            }
+    // Waypoints lie on true shortest paths, away from the cells most other routes pass through.
+    // All agents' routes are needed to score the cells, so the work runs in two passes,
+    // each spread over the executor: shortest routes first, then the waypoints.
+    public GoalDecomposition(List<Agent> agents, GridMap map, ExecutorService executor) {
+        this.width = map.getWidth();
+        this.successors = new int[map.getWidth() * map.getHeight()][];
+        for (int cell = 0; cell < successors.length; cell++) {
+            if (map.isObstacle(cell % width, cell / width)) continue;
+            List<Position> neighbors = map.getNeighbors(positionOf(cell));
+            successors[cell] = new int[neighbors.size()];
+            for (int i = 0; i < neighbors.size(); i++) successors[cell][i] = cellOf(neighbors.get(i));
         }
-        
-        return best;
+
+        int[][] routes = new int[agents.size()][];
+        forEachAgent(agents, executor, (i, scratch) -> routes[i] = route(agents.get(i), scratch));
+
+        // Number of agent routes through every cell
+        int[] congestion = new int[successors.length];
+        for (int[] route : routes) {
+            if (route == null) continue;
+            for (int cell : route) congestion[cell]++;
+        }
+
+        Chain[] computed = new Chain[agents.size()];
+        forEachAgent(agents, executor, (i, scratch) ->
+            computed[i] = new Chain(agents.get(i), computeIntermediateGoals(agents.get(i), routes[i], congestion, scratch)));
+
+        this.chains = new HashMap<>();
+        for (int i = 0; i < agents.size(); i++) chains.put(agents.get(i).id, computed[i]);
     }
 
-    private List<Position> computeIntermediateGoals(Agent agent) {
+    // ========================================================================
+    // WAYPOINT PLACEMENT
+    // ========================================================================
+
+    // Splits the remaining distance near its first third, as long as it is longer than
+    // MIN_SEGMENT_LENGTH. Each waypoint is the cell on a shortest path from the previous
+    // one that trades the fewest routes through it against its distance from the third;
+    // the chain as a whole is then a shortest path from start to goal.
+    private List<Position> computeIntermediateGoals(Agent agent, int[] route, int[] congestion, Scratch scratch) {
         List<Position> waypoints = new ArrayList<>();
-        Position currentStart = agent.start;
-        Position currentGoal = agent.goal;
-
-        // Recursive decomposition until distance is small
-        while (map.getManhattanDistance(currentStart, currentGoal) > 6) {
-             Position intermediate = computeIntermediateGoal(currentStart, currentGoal, map);
-             
-             if (intermediate == null || intermediate.equals(currentStart) || intermediate.equals(currentGoal)) break;
-             
-             waypoints.add(intermediate);
-             currentStart = intermediate;
+        if (route != null) {
+            int[] toGoal = scratch.bfs(scratch.toGoal, cellOf(agent.goal), successors);
+            int length = route.length - 1;
+            // Only the other agents' routes count
+            BitSet own = new BitSet(successors.length);
+            for (int cell : route) own.set(cell);
+
+            int current = route[0];
+            while (toGoal[current] > MIN_SEGMENT_LENGTH) {
+                int remaining = toGoal[current];
+                int[] fromCurrent = scratch.bfs(scratch.fromCurrent, current, successors);
+                // Remaining distance at the ideal split, and the route points around it
+                int split = remaining - (int) Math.round(remaining / 3.0);
+                int window = Math.max(1, remaining / 6);
+                int from = Math.max(0, length - split - window);
+                int to = Math.min(length - 1, length - split + window);
+
+                int best = -1;
+                int bestScore = Integer.MAX_VALUE;
+                for (int cell : neighborhood(route, from, to, scratch)) {
+                    if (cell == current || toGoal[cell] >= remaining || toGoal[cell] == 0) continue;
+                    // Only cells on some shortest path on from the last waypoint: a detour,
+                    // even into a quiet alcove, costs more than the crowd it avoids
+                    if (fromCurrent[cell] + toGoal[cell] != remaining) continue;
+                    int offset = Math.abs(toGoal[cell] - split);
+                    int routes = congestion[cell] - (own.get(cell) ? 1 : 0);
+                    int score = SPLIT_STEPS_PER_ROUTE * routes + offset;
+                    if (score < bestScore) {
+                        bestScore = score;
+                        best = cell;
+                    }
+                }
+                if (best < 0) break;
+
+                waypoints.add(positionOf(best));
+                current = best;
+            }
         }
 
         waypoints.add(agent.goal);
         return waypoints;
     }
 
+    // Cells within SEARCH_RADIUS steps of route[from..to]
+    private List<Integer> neighborhood(int[] route, int from, int to, Scratch scratch) {
+        List<Integer> cells = new ArrayList<>();
+        scratch.mark++;
+        for (int i = from; i <= to; i++) {
+            if (scratch.marks[route[i]] != scratch.mark) {
+                scratch.marks[route[i]] = scratch.mark;
+                cells.add(route[i]);
+            }
+        }
+        int layer = 0;
+        for (int step = 0; step < SEARCH_RADIUS; step++) {
+            int end = cells.size();
+            for (int i = layer; i < end; i++) {
+                for (int next : successors[cells.get(i)]) {
+                    if (scratch.marks[next] != scratch.mark) {
+                        scratch.marks[next] = scratch.mark;
+                        cells.add(next);
+                    }
+                }
+            }
+            layer = end;
+        }
+        return cells;
+    }
+
+    // Cells of one shortest path from start to goal, null if the goal is unreachable
+    private int[] route(Agent agent, Scratch scratch) {
+        int start = cellOf(agent.start), goal = cellOf(agent.goal);
+        if (successors[start] == null || successors[goal] == null) return null;
+        int[] toGoal = scratch.bfs(scratch.toGoal, goal, successors);
+        if (toGoal[start] == Integer.MAX_VALUE) return null;
+
+        int[] route = new int[toGoal[start] + 1];
+        int cell = start;
+        route[0] = cell;
+        for (int i = 1; i < route.length; i++) {
+            for (int next : successors[cell]) {
+                if (toGoal[next] == toGoal[cell] - 1) {
+                    cell = next;
+                    break;
+                }
+            }
+            route[i] = cell;
+        }
+        return route;
+    }
+
+    // Runs the task for every agent index, in chunks on the executor when there are many agents
+    private void forEachAgent(List<Agent> agents, ExecutorService executor, AgentTask task) {
+        int n = agents.size();
+        int chunks = Math.min(Runtime.getRuntime().availableProcessors(), n / PARALLEL_THRESHOLD);
+        if (executor == null || chunks <= 1) {
+            Scratch scratch = new Scratch(successors.length);
+            for (int i = 0; i < n; i++) task.run(i, scratch);
+            return;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            int from = c * n / chunks, to = (c + 1) * n / chunks;
+            tasks.add(() -> {
+                Scratch scratch = new Scratch(successors.length);
+                for (int i = from; i < to; i++) task.run(i, scratch);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Goal decomposition interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Goal decomposition failed", e.getCause());
+        }
+    }
+
+    private interface AgentTask {
+        void run(int agentIndex, Scratch scratch);
+    }
+
+    // Per-thread arrays, reused for all of the thread's agents
+    private static class Scratch {
+        final int[] toGoal, fromCurrent, queue;
+        // Cells of the current neighborhood are the ones set to 'mark'
+        final int[] marks;
+        int mark = 0;
+
+        Scratch(int cells) {
+            toGoal = new int[cells];
+            fromCurrent = new int[cells];
+            queue = new int[cells];
+            marks = new int[cells];
+        }
+
+        // Fills 'd' with the distances from 'source' and returns it
+        int[] bfs(int[] d, int source, int[][] successors) {
+            Arrays.fill(d, Integer.MAX_VALUE);
+            // Every cell is queued at most once, so a plain array serves as the BFS queue
+            int head = 0, tail = 0;
+            d[source] = 0;
+            queue[tail++] = source;
+            while (head < tail) {
+                int cell = queue[head++];
+                for (int next : successors[cell]) {
+                    if (d[next] == Integer.MAX_VALUE) {
+                        d[next] = d[cell] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return d;
+        }
+    }
+
+    private int cellOf(Position p) {
+        return p.y * width + p.x;
+    }
+
+    private Position positionOf(int cell) {
+        return new Position(cell % width, cell / width);
+    }
+
+    // ========================================================================
+    // CHAIN LOOKUPS
+    // ========================================================================
+
     // Utility method to get the *next* unachieved waypoint
     public Position getEffectiveGoal(Agent agent, Path currentPath) {
+        Chain chain = chains.get(agent.id);
+        if (chain == null) return agent.goal;
+
         Position currentPos = currentPath.getFinalPosition();
-        List<Position> decompositionChain = goalsDecomposition.get(agent.id);
-        
-        if (decompositionChain == null || decompositionChain.isEmpty()) return agent.goal;
-        
-        // Find the next unachieved waypoint
-        Position lastReachedWaypoint = agent.start;
-        boolean foundStart = currentPos.equals(agent.start);
-        
-        for (Position waypoint : decompositionChain) {
-            if (currentPos.equals(lastReachedWaypoint)) {
-                return waypoint; // Return the next waypoint after the last reached one
-            }
-            lastReachedWaypoint = waypoint;
-        }
-        
-        return currentPos.equals(agent.goal) ? agent.goal : null; 
+        Integer next = chain.nextIndex.get(currentPos);
+        if (next != null && next < chain.waypoints.size()) return chain.waypoints.get(next);
+
+        return currentPos.equals(agent.goal) ? agent.goal : null;
+    }
+
+    // Waypoint (or the start) that the segment leading to 'effectiveGoal' begins at
+    public Position getSegmentStart(Agent agent, Position effectiveGoal) {
+        Chain chain = chains.get(agent.id);
+        if (chain == null) return agent.start;
+        return chain.previous.getOrDefault(effectiveGoal, agent.start);
     }
-    
+
     // Exposes the list of all waypoints including the final goal
     public List<Position> getDecompositionChain(int agentId) {
-        return new ArrayList<>(goalsDecomposition.getOrDefault(agentId, new ArrayList<>()));
+        Chain chain = chains.get(agentId);
+        return chain == null ? new ArrayList<>() : new ArrayList<>(chain.waypoints);
+    }
+
+    // Waypoints of one agent, indexed both ways. For repeated positions the first
+    // occurrence wins, as in a front-to-back scan of the chain.
+    private static class Chain {
+        final List<Position> waypoints;
+        // Start or waypoint -> index of the waypoint after it
+        final Map<Position, Integer> nextIndex = new HashMap<>();
+        // Waypoint -> the start or waypoint before it
+        final Map<Position, Position> previous = new HashMap<>();
+
+        Chain(Agent agent, List<Position> waypoints) {
+            this.waypoints = waypoints;
+            Position last = agent.start;
+            for (int i = 0; i < waypoints.size(); i++) {
+                nextIndex.putIfAbsent(last, i);
+                previous.putIfAbsent(waypoints.get(i), last);
+                last = waypoints.get(i);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,342 @@
+package phd.mauj;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ============================================================================
+// HIGH-LEVEL HEURISTIC (CG / DG / WDG from pairwise MDDs)
+// ============================================================================
+
+class HighLevelHeuristic {
+    public enum Type {
+        ZERO,   // no high-level heuristic
+        CG,     // cardinal conflict graph
+        DG,     // pairwise dependency graph
+        WDG     // weighted dependency graph
+    }
+
+    // Largest extra cost searched for a WDG edge; larger weights are cut to this (an underestimate)
+    private static final int MAX_WDG_WEIGHT = 3;
+    // Joint-MDD search is given up (edge weight 0, an underestimate) beyond this many pairs per level
+    private static final int MAX_JOINT_PAIRS = 20000;
+    // Exact minimum vertex cover for components up to this size, matching bound above it
+    private static final int MAX_EXACT_COMPONENT = 10;
+
+    private final GridMap map;
+    private final AStar checker;
+    private final Type type;
+    // Pair results, optimal costs and BFS tables memoized across CBS nodes of one solve;
+    // cleared by clearCache, so a solver reused for many instances does not accumulate them
+    private final Map<PairKey, Integer> pairCache = new ConcurrentHashMap<>();
+    private final Map<List<Object>, Integer> optimalCosts = new ConcurrentHashMap<>();
+    private final Map<Position, int[][]> distanceTables = new ConcurrentHashMap<>();
+
+    public HighLevelHeuristic(GridMap map, Type type) {
+        this.map = map;
+        this.checker = new AStar(map);
+        this.type = type;
+    }
+
+    public Type getType() { return type; }
+
+    public void clearCache() {
+        pairCache.clear();
+        optimalCosts.clear();
+        distanceTables.clear();
+    }
+
+    // Estimate of how much the sum of costs must still grow over the node's current paths to
+    // resolve its conflicts: the (edge-weighted) minimum vertex cover of the pair graph. A
+    // pair's weight is the extra cost over both agents' optimal costs, less what their
+    // current paths already spend over those costs. It is admissible when the current paths
+    // are optimal under their constraints (CBS); with a suboptimal low level g itself is no
+    // lower bound, so neither is g + h, and it must not be used as one.
+    public int compute(Path[] paths, AgentIndex index, Set<Constraint> constraints, List<Conflict> conflicts) {
+        if (type == Type.ZERO || conflicts.isEmpty()) return 0;
+
+        Map<Integer, Set<Constraint>> byAgent = new HashMap<>();
+        for (Constraint c : constraints) {
+            byAgent.computeIfAbsent(c.agent, k -> new HashSet<>()).add(c);
+        }
+
+        // Conflicts grouped per unordered agent pair
+        Map<Long, List<Conflict>> byPair = new HashMap<>();
+        for (Conflict c : conflicts) {
+            int a = Math.min(c.agent1, c.agent2), b = Math.max(c.agent1, c.agent2);
+            byPair.computeIfAbsent(((long) a << 32) | b, k -> new ArrayList<>()).add(c);
+        }
+
+        Map<Integer, Map<Integer, Integer>> graph = new HashMap<>();
+        for (Map.Entry<Long, List<Conflict>> e : byPair.entrySet()) {
+            int a = (int) (e.getKey() >> 32), b = (int) (long) e.getKey();
+            int indexA = index.indexOf(a), indexB = index.indexOf(b);
+            if (indexA < 0 || indexB < 0) continue;
+            Agent agentA = index.agent(indexA), agentB = index.agent(indexB);
+            Path pathA = paths[indexA], pathB = paths[indexB];
+
+            Set<Constraint> ca = byAgent.getOrDefault(a, Set.of());
+            Set<Constraint> cb = byAgent.getOrDefault(b, Set.of());
+            Position goalA = pathA.getFinalPosition(), goalB = pathB.getFinalPosition();
+            int costA = optimalCost(a, agentA.start, goalA, ca);
+            int costB = optimalCost(b, agentB.start, goalB, cb);
+            if (costA < 0 || costB < 0) continue;
+            PairKey key = new PairKey(agentA.start, goalA, costA, ca, agentB.start, goalB, costB, cb, a, b);
+            Integer weight = pairCache.get(key);
+            if (weight == null) {
+                weight = pairWeight(a, agentA.start, goalA, costA, ca, b, agentB.start, goalB, costB, cb,
+                                    e.getValue());
+                pairCache.put(key, weight);
+            }
+            // Extra cost the current paths already pay for being longer than necessary
+            weight -= Math.max(0, pathA.getCost() - costA) + Math.max(0, pathB.getCost() - costB);
+            if (weight > 0) {
+                graph.computeIfAbsent(a, k -> new HashMap<>()).put(b, weight);
+                graph.computeIfAbsent(b, k -> new HashMap<>()).put(a, weight);
+            }
+        }
+
+        return minimumVertexCover(graph);
+    }
+
+    // ========================================================================
+    // PAIR ANALYSIS
+    // ========================================================================
+
+    // Extra cost over both agents' optimal costs that resolving the pair's conflicts needs.
+    // The MDDs are built at those optimal costs, not at the costs of the current paths:
+    // those come from a suboptimal low level under ACBS and need not lie in the MDDs.
+    private int pairWeight(int a, Position startA, Position goalA, int costA, Set<Constraint> ca,
+                           int b, Position startB, Position goalB, int costB, Set<Constraint> cb,
+                           List<Conflict> pairConflicts) {
+        MDD mddA = MDD.build(map, checker, a, startA, goalA, costA, ca, distanceTable(goalA));
+        MDD mddB = MDD.build(map, checker, b, startB, goalB, costB, cb, distanceTable(goalB));
+        // Optimal cost not representable by the MDD (e.g. the goal must be left again): no information
+        if (mddA == null || mddB == null) return 0;
+
+        boolean cardinal = false;
+        for (Conflict c : pairConflicts) {
+            if (isCardinal(c, a, mddA, mddB)) {
+                cardinal = true;
+                break;
+            }
+        }
+        if (type == Type.CG) return cardinal ? 1 : 0;
+
+        if (!cardinal && hasJointSolution(mddA, mddB)) return 0;
+        if (type == Type.DG) return 1;
+
+        // WDG: smallest total extra cost that lets both agents avoid each other
+        for (int extra = 1; extra < MAX_WDG_WEIGHT; extra++) {
+            for (int da = 0; da <= extra; da++) {
+                MDD wideA = MDD.build(map, checker, a, startA, goalA, costA + da, ca, distanceTable(goalA));
+                MDD wideB = MDD.build(map, checker, b, startB, goalB, costB + extra - da, cb, distanceTable(goalB));
+                if (wideA != null && wideB != null && hasJointSolution(wideA, wideB)) {
+                    return extra;
+                }
+            }
+        }
+        return MAX_WDG_WEIGHT;
+    }
+
+    // Both agents are forced through the conflicting cell (or edge) by every path of their
+    // MDD's cost; 'a' is the agent of mddA. A conflict of paths outside the MDDs is not
+    // cardinal, however narrow the MDDs are at its time.
+    static boolean isCardinal(Conflict conflict, int a, MDD mddA, MDD mddB) {
+        int t = conflict.time;
+        if (conflict instanceof VertexConflict) {
+            Position cell = ((VertexConflict) conflict).position;
+            return forcedThrough(mddA, t, cell) && forcedThrough(mddB, t, cell);
+        }
+        if (t == 0) return false;
+        // agent1 moves from -> to, agent2 to -> from
+        EdgeConflict edge = (EdgeConflict) conflict;
+        MDD first = conflict.agent1 == a ? mddA : mddB;
+        MDD second = first == mddA ? mddB : mddA;
+        return forcedThrough(first, t - 1, edge.from) && forcedThrough(first, t, edge.to)
+            && forcedThrough(second, t - 1, edge.to) && forcedThrough(second, t, edge.from);
+    }
+
+    private static boolean forcedThrough(MDD mdd, int t, Position cell) {
+        return mdd.isSingleton(t) && mdd.level(t).contains(cell);
+    }
+
+    // Level-by-level search of the joint MDD for a pair of non-conflicting paths
+    private boolean hasJointSolution(MDD mddA, MDD mddB) {
+        if (mddA.start.equals(mddB.start)) return false;
+        int depth = Math.max(mddA.depth, mddB.depth);
+
+        Set<List<Position>> level = new HashSet<>();
+        level.add(List.of(mddA.start, mddB.start));
+        for (int t = 0; t < depth; t++) {
+            Set<List<Position>> next = new HashSet<>();
+            for (List<Position> pair : level) {
+                Position p = pair.get(0), q = pair.get(1);
+                List<Position> succB = mddB.successors(q, t, map);
+                for (Position np : mddA.successors(p, t, map)) {
+                    for (Position nq : succB) {
+                        if (np.equals(nq)) continue;
+                        if (np.equals(q) && nq.equals(p)) continue;
+                        next.add(List.of(np, nq));
+                    }
+                }
+            }
+            if (next.isEmpty()) return false;
+            if (next.size() > MAX_JOINT_PAIRS) return true;
+            level = next;
+        }
+        return true;
+    }
+
+    // Cost of the agent's shortest path from start to goal under its constraints (plain
+    // A*, the lower bound of any plan the low level can return); -1 if there is none
+    private int optimalCost(int agent, Position start, Position goal, Set<Constraint> constraints) {
+        return optimalCosts.computeIfAbsent(List.of(agent, start, goal, constraints), k -> {
+            Path path = checker.findPath(new Agent(agent, start, goal), constraints, 0);
+            return path == null ? -1 : path.getCost();
+        });
+    }
+
+    private int[][] distanceTable(Position goal) {
+        return distanceTables.computeIfAbsent(goal, g -> {
+            int[][] dist = new int[map.getHeight()][map.getWidth()];
+            for (int[] row : dist) Arrays.fill(row, Integer.MAX_VALUE);
+            ArrayDeque<Position> queue = new ArrayDeque<>();
+            dist[g.y][g.x] = 0;
+            queue.add(g);
+            while (!queue.isEmpty()) {
+                Position p = queue.poll();
+                for (Position n : map.getNeighbors(p)) {
+                    if (dist[n.y][n.x] == Integer.MAX_VALUE) {
+                        dist[n.y][n.x] = dist[p.y][p.x] + 1;
+                        queue.add(n);
+                    }
+                }
+            }
+            return dist;
+        });
+    }
+
+    // ========================================================================
+    // EDGE-WEIGHTED MINIMUM VERTEX COVER
+    // ========================================================================
+
+    private int minimumVertexCover(Map<Integer, Map<Integer, Integer>> graph) {
+        int total = 0;
+        Set<Integer> visited = new HashSet<>();
+        for (Integer v : graph.keySet()) {
+            if (visited.contains(v)) continue;
+            List<Integer> component = new ArrayList<>();
+            ArrayDeque<Integer> stack = new ArrayDeque<>();
+            stack.push(v);
+            visited.add(v);
+            while (!stack.isEmpty()) {
+                int u = stack.pop();
+                component.add(u);
+                for (int w : graph.get(u).keySet()) {
+                    if (visited.add(w)) stack.push(w);
+                }
+            }
+            total += component.size() <= MAX_EXACT_COMPONENT
+                ? exactCover(component, graph)
+                : matchingBound(component, graph);
+        }
+        return total;
+    }
+
+    // Exact: assign x_v >= 0 with x_u + x_v >= w(u,v) minimizing the sum (branch and bound)
+    private int exactCover(List<Integer> component, Map<Integer, Map<Integer, Integer>> graph) {
+        int[] values = new int[component.size()];
+        int[] best = {Integer.MAX_VALUE};
+        Map<Integer, Integer> index = new HashMap<>();
+        for (int i = 0; i < component.size(); i++) index.put(component.get(i), i);
+        assignCover(0, 0, values, best, component, index, graph);
+        return best[0];
+    }
+
+    private void assignCover(int i, int sum, int[] values, int[] best, List<Integer> component,
+                             Map<Integer, Integer> index, Map<Integer, Map<Integer, Integer>> graph) {
+        if (sum >= best[0]) return;
+        if (i == component.size()) {
+            best[0] = sum;
+            return;
+        }
+        int min = 0, max = 0;
+        for (Map.Entry<Integer, Integer> e : graph.get(component.get(i)).entrySet()) {
+            int j = index.get(e.getKey());
+            max = Math.max(max, e.getValue());
+            if (j < i) min = Math.max(min, e.getValue() - values[j]);
+        }
+        for (int x = min; x <= max; x++) {
+            values[i] = x;
+            assignCover(i + 1, sum + x, values, best, component, index, graph);
+        }
+    }
+
+    // Lower bound for large components: total weight of a greedy matching
+    private int matchingBound(List<Integer> component, Map<Integer, Map<Integer, Integer>> graph) {
+        Set<Integer> matched = new HashSet<>();
+        int bound = 0;
+        for (int u : component) {
+            if (matched.contains(u)) continue;
+            int bestV = -1, bestW = 0;
+            for (Map.Entry<Integer, Integer> e : graph.get(u).entrySet()) {
+                if (!matched.contains(e.getKey()) && e.getValue() > bestW) {
+                    bestV = e.getKey();
+                    bestW = e.getValue();
+                }
+            }
+            if (bestV >= 0) {
+                matched.add(u);
+                matched.add(bestV);
+                bound += bestW;
+            }
+        }
+        return bound;
+    }
+
+    // Everything a pair result depends on: both agents' starts, targets, costs and constraints
+    private static final class PairKey {
+        private final Position startA, goalA, startB, goalB;
+        private final int costA, costB, a, b;
+        private final Set<Constraint> constraintsA, constraintsB;
+        private final int hash;
+
+        PairKey(Position startA, Position goalA, int costA, Set<Constraint> constraintsA,
+                Position startB, Position goalB, int costB, Set<Constraint> constraintsB, int a, int b) {
+            this.startA = startA;
+            this.goalA = goalA;
+            this.costA = costA;
+            this.constraintsA = constraintsA;
+            this.startB = startB;
+            this.goalB = goalB;
+            this.costB = costB;
+            this.constraintsB = constraintsB;
+            this.a = a;
+            this.b = b;
+            this.hash = Objects.hash(a, b, startA, goalA, costA, constraintsA, startB, goalB, costB, constraintsB);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PairKey)) return false;
+            PairKey k = (PairKey) obj;
+            return hash == k.hash && a == k.a && b == k.b && costA == k.costA && costB == k.costB
+                && startA.equals(k.startA) && goalA.equals(k.goalA)
+                && startB.equals(k.startB) && goalB.equals(k.goalB)
+                && constraintsA.equals(k.constraintsA) && constraintsB.equals(k.constraintsB);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// ============================================================================
+// INCREMENTAL PLAN (add or remove agents without solving again)
+// ============================================================================
+
+// A collision-free plan that agents can join or leave. A new agent is planned against
+// the reserved paths of all the others; only if no such path exists are the paths
+// around its collisions repaired (LNS repair, limited to repairTimeoutMs). A removed
+// agent just releases its reservations. The other agents' paths stay as they are
+// unless the repair had to move them.
+class IncrementalPlan {
+    // A search against the full table that does not succeed quickly is left to the repair
+    private static final int MAX_LOW_LEVEL_EXPANSIONS = 20000;
+
+    private final GridMap map;
+    private final CollisionAwareAStar planner;
+    private final LNS repairer;
+    // Agents and paths in insertion order; 'table' always holds exactly these paths
+    private final Map<Integer, Agent> agents = new LinkedHashMap<>();
+    private final Map<Integer, Path> paths = new HashMap<>();
+    private final CollisionTable table;
+    private int cost = 0;
+
+    // 'solution' must hold a collision-free path for every agent, as in a successful Result
+    public IncrementalPlan(GridMap map, List<Agent> agents, Map<Integer, Path> solution, long repairTimeoutMs) {
+        this.map = map;
+        // Both are reused for every change: they cache the distance tables of the map
+        this.planner = new CollisionAwareAStar(map, 1, MAX_LOW_LEVEL_EXPANSIONS);
+        this.repairer = new LNS(map, new ArrayList<>(), repairTimeoutMs);
+        repairer.setImprove(false);
+        this.table = new CollisionTable(map);
+        for (Agent agent : agents) {
+            Path path = solution.get(agent.id);
+            if (path == null) throw new IllegalArgumentException("No path for agent " + agent.id);
+            this.agents.put(agent.id, agent);
+            put(agent.id, path);
+        }
+    }
+
+    // ========================================================================
+    // CHANGES
+    // ========================================================================
+
+    // Adds the agent to the plan. The result holds the whole plan on success ("Added", or
+    // "Added-Repaired" if other agents' paths changed); on failure the plan is unchanged.
+    public ACBS.Result addAgent(Agent agent) {
+        long startTime = System.currentTimeMillis();
+        if (agents.containsKey(agent.id)) throw new IllegalArgumentException("Agent " + agent.id + " is already planned");
+        if (map.isObstacle(agent.start.x, agent.start.y) || map.isObstacle(agent.goal.x, agent.goal.y)) {
+            throw new IllegalArgumentException("Agent " + agent.id + " starts or ends on an obstacle");
+        }
+
+        Path path = planner.findPath(agent, table, true);
+        if (path != null) {
+            agents.put(agent.id, agent);
+            put(agent.id, path);
+            return result(startTime, "Added");
+        }
+
+        // Repair starts from the current plan; only the new agent is planned from scratch
+        // and only the neighborhoods of its collisions are replanned
+        List<Agent> all = new ArrayList<>(agents.values());
+        all.add(agent);
+        ACBS.Result repaired = repairer.repair(all, paths);
+        if (!repaired.success) {
+            return new ACBS.Result(false, null, 0, System.currentTimeMillis() - startTime, "No solution");
+        }
+
+        agents.put(agent.id, agent);
+        for (Agent a : all) {
+            Path updated = repaired.solution.get(a.id);
+            Path old = paths.get(a.id);
+            if (updated == old) continue;
+            if (old != null) release(a.id);
+            put(a.id, updated);
+        }
+        return result(startTime, "Added-Repaired");
+    }
+
+    // Removes the agent and releases its reservations; the others keep their paths
+    public ACBS.Result removeAgent(int agentId) {
+        long startTime = System.currentTimeMillis();
+        if (agents.remove(agentId) == null) {
+            return new ACBS.Result(false, null, 0, System.currentTimeMillis() - startTime, "Unknown agent");
+        }
+        release(agentId);
+        return result(startTime, "Removed");
+    }
+
+    // ========================================================================
+    // STATE
+    // ========================================================================
+
+    public List<Agent> getAgents() { return new ArrayList<>(agents.values()); }
+
+    public Map<Integer, Path> getSolution() { return new HashMap<>(paths); }
+
+    public int getCost() { return cost; }
+
+    private void put(int id, Path path) {
+        paths.put(id, path);
+        table.add(id, path);
+        cost += path.getCost();
+    }
+
+    private void release(int id) {
+        Path path = paths.remove(id);
+        table.remove(id, path);
+        cost -= path.getCost();
+    }
+
+    private ACBS.Result result(long startTime, String status) {
+        return new ACBS.Result(true, getSolution(), cost, System.currentTimeMillis() - startTime, status);
+    }
+}
@@ -0,0 +1,177 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// ============================================================================
+// INDEPENDENCE DETECTION (solve only the agent groups that interact)
+// ============================================================================
+
+class IndependenceDetection extends ACBS {
+    // Builds the solver of one group; every group gets its own instance, since the
+    // groups of a round are solved at the same time
+    public interface SolverFactory {
+        ACBS create(GridMap map, List<Agent> group, long timeoutMs);
+    }
+
+    private final SolverFactory factory;
+    private final ExecutorService groupExecutor;
+    // Plans the agents alone; with an empty table its paths are shortest paths
+    private final CollisionAwareAStar singlePlanner;
+    // Size of the largest group solved jointly in the last solve
+    private int largestGroup = 0;
+
+    // Groups are solved by ACBS with the given suboptimality weight
+    public IndependenceDetection(GridMap map, List<Agent> agents, long timeoutMs, double w) {
+        this(map, agents, timeoutMs, (m, group, t) -> new ACBS(m, group, t, w), SolverExecutors.groups());
+    }
+
+    public IndependenceDetection(GridMap map, List<Agent> agents, long timeoutMs, SolverFactory factory,
+                                 ExecutorService groupExecutor) {
+        super(map, agents, timeoutMs, 1.0);
+        this.factory = factory;
+        this.groupExecutor = groupExecutor;
+        // Reused across solves: it caches the distance tables of the map
+        this.singlePlanner = new CollisionAwareAStar(map, 1, Integer.MAX_VALUE);
+        singlePlanner.setBudget(budget);
+    }
+
+    public int getLargestGroup() { return largestGroup; }
+
+    // Plans every agent alone, then repeatedly merges the groups whose paths collide and
+    // solves each merged group with a fresh group solver. The merged groups of one round
+    // are independent of each other, so they are solved concurrently. Ends when no two
+    // groups collide, when a group cannot be solved, or when the budget is spent; every
+    // round is one high-level node of it, and the group solvers get the wall time left.
+    @Override
+    public Result solve(List<Agent> agents) {
+        long startTime = System.currentTimeMillis();
+        budget.start();
+        AgentIndex index = new AgentIndex(agents);
+        int n = index.size();
+        largestGroup = Math.min(1, n);
+
+        Path[] paths = new Path[n];
+        CollisionTable table = new CollisionTable(map);
+        ReservationTable empty = new ReservationTable(map);
+        for (int i = 0; i < n; i++) {
+            paths[i] = singlePlanner.findPath(index.agent(i), empty, true);
+            if (paths[i] == null) {
+                // A search cut short by the budget proves nothing
+                return finish(agents, new Result(false, null, 0, System.currentTimeMillis() - startTime,
+                                                 budget.getExhausted() == null ? "No solution" : "No initial solution"));
+            }
+            table.add(index.id(i), paths[i]);
+        }
+
+        // Union-find over agent indices; every root stands for one group
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        // Singletons are planned optimally; merged groups are as good as their solver
+        boolean allOptimal = true;
+        boolean failed = false;
+
+        while (!failed && !interrupted) {
+            Set<Integer> merged = new HashSet<>();
+            for (int i = 0; i < n; i++) {
+                for (int other : table.collidingAgents(paths[i])) {
+                    int a = find(parent, i), b = find(parent, index.indexOf(other));
+                    if (a == b) continue;
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                    merged.add(a);
+                }
+            }
+            if (merged.isEmpty()) break;
+            Set<Integer> mergedRoots = new HashSet<>();
+            for (int i : merged) mergedRoots.add(find(parent, i));
+
+            if (!budget.chargeNode()) {
+                failed = true;
+                break;
+            }
+            long remaining = budget.remainingMs();
+
+            // Members of every group that changed this round, in agent order
+            Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                int root = find(parent, i);
+                if (mergedRoots.contains(root)) groups.computeIfAbsent(root, k -> new ArrayList<>()).add(i);
+            }
+
+            List<ACBS> solvers = new ArrayList<>();
+            List<Future<Result>> futures = new ArrayList<>();
+            for (List<Integer> members : groups.values()) {
+                List<Agent> group = new ArrayList<>();
+                for (int i : members) group.add(index.agent(i));
+                largestGroup = Math.max(largestGroup, group.size());
+                ACBS solver = factory.create(map, group, remaining);
+                solvers.add(solver);
+                futures.add(groupExecutor.submit(() -> solver.solve(group)));
+            }
+
+            List<Result> results = collect(solvers, futures);
+            int g = 0;
+            for (List<Integer> members : groups.values()) {
+                Result result = results.get(g++);
+                if (result == null || !result.success) failed = true;
+                if (result == null || result.solution == null) continue;
+                allOptimal &= result.optimal;
+                for (int i : members) {
+                    Path path = result.solution.get(index.id(i));
+                    if (path == null) continue;
+                    table.remove(index.id(i), paths[i]);
+                    paths[i] = path;
+                    table.add(index.id(i), path);
+                }
+            }
+        }
+
+        int cost = 0;
+        for (Path path : paths) cost += path.getCost();
+        String status = failed || interrupted ? "Suboptimal-ID" : allOptimal ? "Optimal-ID" : "Solved-ID";
+        return finish(agents, new Result(!failed && !interrupted, index.toMap(paths), cost,
+                                         System.currentTimeMillis() - startTime, status));
+    }
+
+    // Waits for the group solves until the wall time of the budget, then stops the ones still
+    // running and takes their best plan; null for a group whose solver threw
+    private List<Result> collect(List<ACBS> solvers, List<Future<Result>> futures) {
+        List<Result> results = new ArrayList<>();
+        for (int g = 0; g < futures.size(); g++) {
+            Future<Result> future = futures.get(g);
+            try {
+                if (interrupted || !budget.check()) solvers.get(g).interrupted = true;
+                try {
+                    results.add(future.get(budget.remainingMs(), TimeUnit.MILLISECONDS));
+                } catch (TimeoutException e) {
+                    solvers.get(g).interrupted = true;
+                    results.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (ACBS solver : solvers) solver.interrupted = true;
+                results.add(null);
+            } catch (ExecutionException e) {
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
@@ -0,0 +1,305 @@
+package phd.mauj;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// ============================================================================
+// LARGE NEIGHBORHOOD SEARCH (MAPF-LNS2 style repair, then cost improvement)
+// ============================================================================
+
+class LNS extends ACBS {
+    public enum Neighborhood {
+        COLLISION,  // agents around a collision in the collision graph (repair only)
+        RANDOM,     // uniformly random agents
+        DELAY       // agents with the largest delay over their shortest path (improvement only)
+    }
+
+    private static final int COLLISION_PENALTY = 10;
+    private static final int MAX_LOW_LEVEL_EXPANSIONS = 20000;
+    // Adaptive neighborhood selection: w = (1 - r) * w + r * reward
+    private static final double REACTION_FACTOR = 0.1;
+
+    private final CollisionAwareAStar planner;
+    private int neighborhoodSize = 8;
+    private long seed = 0;
+    // Whether repair goes on lowering the cost once the plan is collision-free
+    private boolean improve = true;
+
+    public LNS(GridMap map, List<Agent> agents, long timeoutMs) {
+        super(map, agents, timeoutMs, 1.0);
+        // Reused across solves: it caches the distance tables of the map
+        this.planner = new CollisionAwareAStar(map, COLLISION_PENALTY, MAX_LOW_LEVEL_EXPANSIONS);
+        planner.setBudget(budget);
+    }
+
+    public void setNeighborhoodSize(int neighborhoodSize) {
+        this.neighborhoodSize = Math.max(1, neighborhoodSize);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setImprove(boolean improve) {
+        this.improve = improve;
+    }
+
+    // Plans every agent from scratch (one pass of collision-aware prioritized planning), then repairs
+    @Override
+    public Result solve(List<Agent> agents) {
+        return repair(agents, null);
+    }
+
+    // Budget fallback: repairs the best plan of the stopped search (or plans every agent if
+    // it had none) until no two agents collide or the solve has run totalMs, search and
+    // repair together. Give the solver less wall time than totalMs to leave the repair some.
+    public static SearchBudget.Fallback repairFallback(GridMap map, long totalMs) {
+        return (agents, best) -> {
+            LNS lns = new LNS(map, agents, Math.max(1, totalMs - best.runtimeMs));
+            lns.setImprove(false);
+            return lns.repair(agents, best.solution);
+        };
+    }
+    
+    // Warm start is repair from the prior plan; LNS keeps no constraints, so they are ignored
+    @Override
+    public Result solve(List<Agent> agents, Map<Integer, Path> previous, Set<Constraint> constraints) {
+        return repair(agents, previous);
+    }
+
+    // Starts from any plan, conflicting or not (e.g. the best node of an ACBS search). Paths that
+    // do not lead from the agent's start to its goal are planned again. Phase 1 replans
+    // neighborhoods until no two agents collide; phase 2 keeps lowering the sum of costs
+    // with collision-free replanning until the timeout (unless improvement is switched off).
+    // Every neighborhood replanned is one high-level node of the budget.
+    public Result repair(List<Agent> agents, Map<Integer, Path> initialPlan) {
+        long startTime = System.currentTimeMillis();
+        budget.start();
+        Random random = new Random(seed);
+        State state = new State(agents);
+
+        List<Agent> unplanned = new ArrayList<>();
+        for (Agent agent : agents) {
+            Path path = initialPlan == null ? null : initialPlan.get(agent.id);
+            if (path != null && path.getPosition(0).equals(agent.start) && path.getFinalPosition().equals(agent.goal)) {
+                state.insert(agent.id, path);
+            } else {
+                unplanned.add(agent);
+            }
+        }
+        Collections.shuffle(unplanned, random);
+        for (Agent agent : unplanned) {
+            Path path = state.plan(agent, false);
+            if (path == null) {
+                return finish(agents, new Result(false, null, 0, System.currentTimeMillis() - startTime,
+                                                 "No initial solution"));
+            }
+            state.insert(agent.id, path);
+        }
+
+        // Phase 1: repair
+        Neighborhood[] repairHeuristics = {Neighborhood.COLLISION, Neighborhood.RANDOM};
+        double[] repairWeights = {1.0, 1.0};
+        while (state.collidingPairs > 0 && !interrupted && budget.chargeNode()) {
+            int h = select(repairWeights, random);
+            List<Agent> neighborhood = selectNeighborhood(repairHeuristics[h], agents, state, random);
+            if (neighborhood.isEmpty()) continue;
+
+            int pairsBefore = state.collidingPairs;
+            Map<Integer, Path> old = state.removeAll(neighborhood);
+            boolean replanned = state.replan(neighborhood, false, random);
+
+            // Equal numbers of colliding pairs are accepted too, to move across plateaus
+            if (replanned && state.collidingPairs <= pairsBefore) {
+                reward(repairWeights, h, pairsBefore - state.collidingPairs);
+            } else {
+                state.restore(neighborhood, old);
+                reward(repairWeights, h, 0);
+            }
+        }
+
+        // Phase 2: improvement (only collision-free paths are accepted from here on)
+        Neighborhood[] improveHeuristics = {Neighborhood.RANDOM, Neighborhood.DELAY};
+        double[] improveWeights = {1.0, 1.0};
+        while (improve && state.collidingPairs == 0 && !interrupted && budget.chargeNode()) {
+            int h = select(improveWeights, random);
+            List<Agent> neighborhood = selectNeighborhood(improveHeuristics[h], agents, state, random);
+            if (neighborhood.isEmpty()) break;
+
+            int costBefore = state.cost;
+            Map<Integer, Path> old = state.removeAll(neighborhood);
+            boolean replanned = state.replan(neighborhood, true, random);
+
+            if (replanned && state.cost < costBefore) {
+                reward(improveWeights, h, costBefore - state.cost);
+            } else {
+                state.restore(neighborhood, old);
+                reward(improveWeights, h, 0);
+            }
+        }
+
+        boolean success = state.collidingPairs == 0;
+        return finish(agents, new Result(success, new HashMap<>(state.paths), state.cost,
+                                         System.currentTimeMillis() - startTime,
+                                         success ? "Solved-LNS" : "Suboptimal-LNS"));
+    }
+
+    // ========================================================================
+    // NEIGHBORHOODS
+    // ========================================================================
+
+    private List<Agent> selectNeighborhood(Neighborhood type, List<Agent> agents, State state, Random random) {
+        int size = Math.min(neighborhoodSize, agents.size());
+        switch (type) {
+            case COLLISION: {
+                // Randomized BFS over the collision graph from a random colliding agent
+                List<Integer> colliding = new ArrayList<>();
+                for (Map.Entry<Integer, Set<Integer>> e : state.collisionGraph.entrySet()) {
+                    if (!e.getValue().isEmpty()) colliding.add(e.getKey());
+                }
+                if (colliding.isEmpty()) return List.of();
+                Set<Integer> chosen = new LinkedHashSet<>();
+                ArrayDeque<Integer> queue = new ArrayDeque<>();
+                queue.add(colliding.get(random.nextInt(colliding.size())));
+                while (!queue.isEmpty() && chosen.size() < size) {
+                    int id = queue.poll();
+                    if (!chosen.add(id)) continue;
+                    List<Integer> partners = new ArrayList<>(state.collisionGraph.getOrDefault(id, Set.of()));
+                    Collections.shuffle(partners, random);
+                    queue.addAll(partners);
+                }
+                // Small components are topped up with random agents, so there is room to move
+                while (chosen.size() < size) chosen.add(agents.get(random.nextInt(agents.size())).id);
+                List<Agent> result = new ArrayList<>();
+                for (int id : chosen) result.add(state.agentsById.get(id));
+                return result;
+            }
+            case DELAY: {
+                // The most delayed agents among a random sample
+                List<Agent> sample = new ArrayList<>(agents);
+                Collections.shuffle(sample, random);
+                sample = sample.subList(0, Math.min(sample.size(), 4 * size));
+                // Delays computed once per agent: the planner keeps only some distance tables
+                Map<Agent, Integer> delays = new HashMap<>();
+                for (Agent agent : sample) delays.put(agent, delay(agent, state));
+                sample.sort(Comparator.comparingInt((Agent a) -> -delays.get(a)));
+                return new ArrayList<>(sample.subList(0, size));
+            }
+            default: {
+                List<Agent> shuffled = new ArrayList<>(agents);
+                Collections.shuffle(shuffled, random);
+                return new ArrayList<>(shuffled.subList(0, size));
+            }
+        }
+    }
+
+    private int delay(Agent agent, State state) {
+        return state.paths.get(agent.id).getCost() - planner.distance(agent.start, agent.goal);
+    }
+
+    // Roulette-wheel selection over the adaptive weights
+    private int select(double[] weights, Random random) {
+        double total = 0;
+        for (double w : weights) total += w;
+        double r = random.nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r <= 0) return i;
+        }
+        return weights.length - 1;
+    }
+
+    private void reward(double[] weights, int h, int improvement) {
+        weights[h] = (1 - REACTION_FACTOR) * weights[h] + REACTION_FACTOR * Math.max(0, improvement);
+        // Keep every heuristic selectable
+        weights[h] = Math.max(weights[h], 0.01);
+    }
+
+    // ========================================================================
+    // PLAN STATE (paths, collision table and collision graph of one repair)
+    // ========================================================================
+
+    private class State {
+        final CollisionTable table = new CollisionTable(map);
+        final Map<Integer, Path> paths = new HashMap<>();
+        // Agent -> agents it collides with; each edge is one colliding pair
+        final Map<Integer, Set<Integer>> collisionGraph = new HashMap<>();
+        final Map<Integer, Agent> agentsById = new HashMap<>();
+        int collidingPairs = 0;
+        int cost = 0;
+        
+        State(List<Agent> agents) {
+            for (Agent agent : agents) agentsById.put(agent.id, agent);
+        }
+
+        void insert(int id, Path path) {
+            Set<Integer> partners = table.collidingAgents(path);
+            Set<Integer> own = collisionGraph.computeIfAbsent(id, k -> new HashSet<>());
+            for (int other : partners) {
+                if (own.add(other)) {
+                    collisionGraph.computeIfAbsent(other, k -> new HashSet<>()).add(id);
+                    collidingPairs++;
+                }
+            }
+            table.add(id, path);
+            paths.put(id, path);
+            cost += path.getCost();
+        }
+
+        Path remove(int id) {
+            Path path = paths.remove(id);
+            table.remove(id, path);
+            cost -= path.getCost();
+            Set<Integer> partners = collisionGraph.remove(id);
+            if (partners != null) {
+                for (int other : partners) collisionGraph.get(other).remove(id);
+                collidingPairs -= partners.size();
+            }
+            return path;
+        }
+
+        Map<Integer, Path> removeAll(List<Agent> neighborhood) {
+            Map<Integer, Path> old = new HashMap<>();
+            for (Agent agent : neighborhood) old.put(agent.id, remove(agent.id));
+            return old;
+        }
+
+        // Plans the neighborhood one agent at a time in random order; false if one fails
+        boolean replan(List<Agent> neighborhood, boolean avoidAll, Random random) {
+            List<Agent> order = new ArrayList<>(neighborhood);
+            Collections.shuffle(order, random);
+            for (Agent agent : order) {
+                Path path = plan(agent, avoidAll);
+                if (path == null) return false;
+                insert(agent.id, path);
+            }
+            return true;
+        }
+
+        // A collision-free path if one is found within the cap; otherwise (unless collisions
+        // are forbidden) the path with the fewest collisions, weighed against its length
+        Path plan(Agent agent, boolean avoidAll) {
+            Path path = planner.findPath(agent, table, true);
+            if (path == null && !avoidAll) path = planner.findPath(agent, table, false);
+            return path;
+        }
+
+        // Puts the neighborhood's old paths back in place of whatever was replanned
+        void restore(List<Agent> neighborhood, Map<Integer, Path> old) {
+            for (Agent agent : neighborhood) {
+                if (paths.containsKey(agent.id)) remove(agent.id);
+            }
+            for (Agent agent : neighborhood) insert(agent.id, old.get(agent.id));
+        }
+
+    }
+}
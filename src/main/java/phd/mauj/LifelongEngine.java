@@ -0,0 +1,313 @@
+package phd.mauj;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// ============================================================================
+// LIFELONG MAPF ENGINE (streaming goals, incremental replanning)
+// ============================================================================
+
+// Keeps every robot's committed plan and advances all robots one timestep per step().
+// Goals arrive as a stream (submitGoal, or lines read by feedFrom) and queue up per
+// robot; a robot takes its next goal once it reaches the current one. Only the robots
+// that take a goal are replanned, each against the committed plans of all the others,
+// so committed plans never collide and never have to be revised.
+class LifelongEngine {
+    // A failed replan is retried later, so it is not worth searching long
+    private static final int MAX_LOW_LEVEL_EXPANSIONS = 50000;
+    // Longest wait, in timesteps, before a robot whose search failed tries again
+    private static final int MAX_RETRY_DELAY = 32;
+
+    private final GridMap map;
+    private final CollisionAwareAStar planner;
+    // Robots by id, in the order they were given
+    private final Map<Integer, Robot> robots = new LinkedHashMap<>();
+    // Goals submitted since the last step, as {agent id, x, y}; filled from any thread
+    private final ConcurrentLinkedQueue<int[]> incoming = new ConcurrentLinkedQueue<>();
+
+    private int timestep = 0;
+    private int tasksCompleted = 0;
+    // Planning time of every step, in microseconds
+    private final List<Long> stepLatencies = new ArrayList<>();
+
+    // Every agent starts idle at its start; a goal other than the start is its first task
+    public LifelongEngine(GridMap map, List<Agent> agents) {
+        this.map = map;
+        // Reused for the whole run: it caches the distance tables of the map
+        this.planner = new CollisionAwareAStar(map, 1, MAX_LOW_LEVEL_EXPANSIONS);
+        for (Agent agent : agents) {
+            Robot robot = new Robot(agent.id, agent.start);
+            if (!agent.goal.equals(agent.start)) robot.tasks.add(agent.goal);
+            robots.put(agent.id, robot);
+        }
+    }
+
+    // ========================================================================
+    // GOAL STREAM
+    // ========================================================================
+
+    // Queues a goal for the agent; safe to call from any thread while the engine runs
+    public void submitGoal(int agentId, Position goal) {
+        if (!robots.containsKey(agentId)) throw new IllegalArgumentException("Unknown agent " + agentId);
+        if (map.isObstacle(goal.x, goal.y)) throw new IllegalArgumentException("Goal " + goal + " is not a free cell");
+        incoming.add(new int[]{agentId, goal.x, goal.y});
+    }
+
+    // Reads "agentId x y" lines on a background thread until the reader ends. Blank lines
+    // and lines starting with '#' are skipped; malformed lines are reported and skipped.
+    public Thread feedFrom(Reader reader) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(reader)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    try {
+                        String[] parts = line.split("\\s+");
+                        submitGoal(Integer.parseInt(parts[0]),
+                                   new Position(Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+                    } catch (RuntimeException e) {
+                        System.err.println("Skipping goal line '" + line + "': " + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Goal feed stopped: " + e.getMessage());
+            }
+        }, "lifelong-goal-feed");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    // ========================================================================
+    // STEPPING
+    // ========================================================================
+
+    // Hands out the queued goals, replans the robots that took one, then moves every
+    // robot one step along its plan. Returns the number of tasks completed by the move.
+    public int step() {
+        long planStart = System.nanoTime();
+        int[] goal;
+        while ((goal = incoming.poll()) != null) {
+            robots.get(goal[0]).tasks.add(new Position(goal[1], goal[2]));
+        }
+
+        List<Robot> affected = new ArrayList<>();
+        for (Robot robot : robots.values()) {
+            if (robot.goal == null && !robot.tasks.isEmpty() && robot.isIdle(timestep)) {
+                robot.goal = robot.tasks.poll();
+            }
+            if (robot.goal != null && !robot.planned && timestep >= robot.retryAt) affected.add(robot);
+        }
+        if (!affected.isEmpty()) replan(affected);
+        stepLatencies.add((System.nanoTime() - planStart) / 1000);
+
+        timestep++;
+        int completed = 0;
+        for (Robot robot : robots.values()) {
+            if (robot.goal != null && robot.planned && robot.isIdle(timestep)) {
+                robot.goal = null;
+                robot.planned = false;
+                completed++;
+            }
+        }
+        tasksCompleted += completed;
+        return completed;
+    }
+
+    // Plans the affected robots one after the other, each against the remaining committed
+    // plans of everyone else (the robots not yet replanned stay parked where they stand).
+    // A robot without a collision-free plan keeps standing still and tries again: on the
+    // next step if its goal is taken by a parked robot, otherwise after a delay that
+    // doubles with every failed search, since searching while boxed in is expensive.
+    // Robots whose goals are taken by each other (e.g. two swapping places) would wait for
+    // each other forever, so those are also tried together (see replanTogether).
+    private void replan(List<Robot> affected) {
+        CollisionTable table = new CollisionTable(map);
+        Map<Integer, Path> remaining = new LinkedHashMap<>();
+        for (Robot robot : robots.values()) {
+            Path path = robot.remainingPlan(timestep);
+            remaining.put(robot.id, path);
+            table.add(robot.id, path);
+        }
+
+        List<Robot> blocked = new ArrayList<>();
+        for (Robot robot : affected) {
+            Path current = remaining.get(robot.id);
+            table.remove(robot.id, current);
+            if (table.isParked(table.cellOf(robot.goal))) {
+                table.add(robot.id, current);
+                blocked.add(robot);
+                continue;
+            }
+            Path path = robot.position(timestep).equals(robot.goal) ? current
+                      : planner.findPath(new Agent(robot.id, robot.position(timestep), robot.goal), table, true);
+            if (path == null) {
+                table.add(robot.id, current);
+                robot.retryDelay = Math.min(MAX_RETRY_DELAY, Math.max(1, 2 * robot.retryDelay));
+                robot.retryAt = timestep + robot.retryDelay;
+                continue;
+            }
+            robot.commit(path, timestep);
+            table.add(robot.id, path);
+        }
+        if (blocked.size() > 1) replanTogether(blocked, remaining, table);
+    }
+
+    // Plans the blocked robots one after the other with all of them out of the table, so
+    // none is held up by another one's parking. The plans are committed only if every one
+    // of them is found; otherwise the robots keep standing and try again next step.
+    private void replanTogether(List<Robot> blocked, Map<Integer, Path> remaining, CollisionTable table) {
+        for (Robot robot : blocked) table.remove(robot.id, remaining.get(robot.id));
+        Map<Integer, Path> planned = new LinkedHashMap<>();
+        for (Robot robot : blocked) {
+            // Held by a robot outside the group, which may never leave
+            if (table.isParked(table.cellOf(robot.goal))) break;
+            Path path = planner.findPath(new Agent(robot.id, robot.position(timestep), robot.goal), table, true);
+            if (path == null) break;
+            planned.put(robot.id, path);
+            table.add(robot.id, path);
+        }
+
+        if (planned.size() < blocked.size()) {
+            for (Map.Entry<Integer, Path> e : planned.entrySet()) table.remove(e.getKey(), e.getValue());
+            for (Robot robot : blocked) table.add(robot.id, remaining.get(robot.id));
+            return;
+        }
+        for (Robot robot : blocked) robot.commit(planned.get(robot.id), timestep);
+    }
+
+    // ========================================================================
+    // STATE AND STATISTICS
+    // ========================================================================
+
+    public int getTimestep() { return timestep; }
+
+    public int getTasksCompleted() { return tasksCompleted; }
+
+    // Tasks completed per timestep so far
+    public double getThroughput() {
+        return timestep == 0 ? 0 : (double) tasksCompleted / timestep;
+    }
+
+    // Planning time of every step so far, in microseconds
+    public List<Long> getStepLatencies() { return new ArrayList<>(stepLatencies); }
+
+    public Map<Integer, Position> getPositions() {
+        Map<Integer, Position> positions = new LinkedHashMap<>();
+        for (Robot robot : robots.values()) positions.put(robot.id, robot.position(timestep));
+        return positions;
+    }
+
+    // Goals not yet handed to the agent, its current goal excluded
+    public int getQueuedGoals(int agentId) {
+        return robots.get(agentId).tasks.size();
+    }
+
+    private static class Robot {
+        final int id;
+        // Goals waiting for this robot, in arrival order
+        final Deque<Position> tasks = new ArrayDeque<>();
+        // Committed plan, starting at timestep 'planStart'
+        Path plan;
+        int planStart = 0;
+        // Current task, null while idle; 'planned' once the plan leads there
+        Position goal;
+        boolean planned = false;
+        // Backoff after failed searches for the current goal
+        int retryDelay = 0;
+        int retryAt = 0;
+
+        Robot(int id, Position start) {
+            this.id = id;
+            this.plan = new Path(Collections.singletonList(start));
+        }
+
+        Position position(int t) {
+            return plan.getPosition(t - planStart);
+        }
+
+        // True once the committed plan has ended, with the robot standing at its end
+        boolean isIdle(int t) {
+            return t - planStart >= plan.getLength() - 1;
+        }
+
+        // Rest of the committed plan from timestep t on
+        Path remainingPlan(int t) {
+            int offset = Math.min(t - planStart, plan.getLength() - 1);
+            return offset == 0 ? plan : new Path(plan.getPositions().subList(offset, plan.getLength()));
+        }
+
+        void commit(Path path, int t) {
+            plan = path;
+            planStart = t;
+            planned = true;
+            retryDelay = 0;
+        }
+    }
+
+    // ========================================================================
+    // COMMAND LINE
+    // ========================================================================
+
+    // Usage: LifelongEngine <map file> <agents> <timesteps> [goal file | -]
+    // Goals are read as "agentId x y" lines from the file, or from standard input for "-";
+    // without a goal source every robot gets a random new goal whenever it runs out.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: LifelongEngine <map file> <agents> <timesteps> [goal file | -]");
+            return;
+        }
+        GridMap map = MovingAIMapLoader.loadMap(args[0]);
+        int agentCount = Integer.parseInt(args[1]);
+        int timesteps = Integer.parseInt(args[2]);
+        Random random = new Random(42);
+        List<Agent> agents = MovingAIMapLoader.generateRandomInstances(map, agentCount, random);
+        LifelongEngine engine = new LifelongEngine(map, agents);
+
+        List<Position> free = new ArrayList<>();
+        boolean generate = args.length < 4;
+        if (generate) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                for (int x = 0; x < map.getWidth(); x++) {
+                    if (!map.isObstacle(x, y)) free.add(new Position(x, y));
+                }
+            }
+        } else {
+            engine.feedFrom(args[3].equals("-") ? new InputStreamReader(System.in) : new FileReader(args[3]));
+        }
+
+        int reportEvery = Math.max(1, timesteps / 10);
+        long maxLatency = 0, totalLatency = 0;
+        for (int t = 0; t < timesteps; t++) {
+            if (generate) {
+                for (Agent agent : agents) {
+                    if (engine.getQueuedGoals(agent.id) == 0) {
+                        engine.submitGoal(agent.id, free.get(random.nextInt(free.size())));
+                    }
+                }
+            }
+            engine.step();
+            long latency = engine.stepLatencies.get(t);
+            maxLatency = Math.max(maxLatency, latency);
+            totalLatency += latency;
+            if ((t + 1) % reportEvery == 0 || t + 1 == timesteps) {
+                System.out.printf("t=%d tasks=%d throughput=%.3f latency avg=%.2fms max=%.2fms%n",
+                                  engine.getTimestep(), engine.getTasksCompleted(), engine.getThroughput(),
+                                  totalLatency / 1000.0 / (t + 1), maxLatency / 1000.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// ============================================================================
+// MULTI-VALUED DECISION DIAGRAM (all constrained paths of a given cost)
+// ============================================================================
+
+class MDD {
+    public final int depth;
+    public final Position start, goal;
+    // levels.get(t): cells the agent can occupy at time t on some path of cost <= depth
+    private final List<Set<Position>> levels;
+    private final AStar checker;
+    private final int agentId;
+    private final Set<Constraint> constraints;
+
+    private MDD(int depth, Position start, Position goal, List<Set<Position>> levels,
+                AStar checker, int agentId, Set<Constraint> constraints) {
+        this.depth = depth;
+        this.start = start;
+        this.goal = goal;
+        this.levels = levels;
+        this.checker = checker;
+        this.agentId = agentId;
+        this.constraints = constraints;
+    }
+
+    // Builds the MDD of all paths start -> goal arriving by time 'depth' under the agent's
+    // constraints. distToGoal is the static BFS distance to the goal. Returns null if empty.
+    public static MDD build(GridMap map, AStar checker, int agentId, Position start, Position goal,
+                            int depth, Set<Constraint> constraints, int[][] distToGoal) {
+        if (distToGoal[start.y][start.x] > depth) return null;
+
+        // Forward pass, pruned by the remaining distance
+        List<Set<Position>> levels = new ArrayList<>(depth + 1);
+        Set<Position> first = new HashSet<>();
+        first.add(start);
+        levels.add(first);
+        for (int t = 0; t < depth; t++) {
+            Set<Position> next = new HashSet<>();
+            for (Position p : levels.get(t)) {
+                for (Position n : map.getNeighbors(p)) {
+                    if (distToGoal[n.y][n.x] > depth - (t + 1)) continue;
+                    if (violates(checker, agentId, p, n, t + 1, constraints)) continue;
+                    next.add(n);
+                }
+            }
+            if (next.isEmpty()) return null;
+            levels.add(next);
+        }
+        if (!levels.get(depth).contains(goal)) return null;
+
+        // Backward pass: keep only cells that still lead to the goal at 'depth'
+        Set<Position> last = new HashSet<>();
+        last.add(goal);
+        levels.set(depth, last);
+        for (int t = depth - 1; t >= 0; t--) {
+            Set<Position> below = levels.get(t + 1);
+            Set<Position> kept = new HashSet<>();
+            for (Position p : levels.get(t)) {
+                for (Position n : map.getNeighbors(p)) {
+                    if (below.contains(n) && !violates(checker, agentId, p, n, t + 1, constraints)) {
+                        kept.add(p);
+                        break;
+                    }
+                }
+            }
+            if (kept.isEmpty()) return null;
+            levels.set(t, kept);
+        }
+
+        return new MDD(depth, start, goal, levels, checker, agentId, constraints);
+    }
+
+    // After 'depth' the agent waits at its goal
+    public Set<Position> level(int t) {
+        return t <= depth ? levels.get(t) : levels.get(depth);
+    }
+
+    public boolean isSingleton(int t) {
+        return level(t).size() == 1;
+    }
+
+    public List<Position> successors(Position p, int t, GridMap map) {
+        List<Position> result = new ArrayList<>();
+        if (t >= depth) {
+            result.add(goal);
+            return result;
+        }
+        Set<Position> below = levels.get(t + 1);
+        for (Position n : map.getNeighbors(p)) {
+            if (below.contains(n) && !violates(checker, agentId, p, n, t + 1, constraints)) {
+                result.add(n);
+            }
+        }
+        return result;
+    }
+
+    private static boolean violates(AStar checker, int agentId, Position from, Position to,
+                                    int time, Set<Constraint> constraints) {
+        if (constraints.isEmpty()) return false;
+        return checker.isConstraintViolated(agentId, new TimePosition(from.x, from.y, time - 1),
+                                            new TimePosition(to.x, to.y, time), constraints, 0);
+    }
+}
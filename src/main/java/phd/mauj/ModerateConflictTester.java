@@ -257,7 +257,7 @@ class ModerateConflictTester {
             createWarehouseLikeScenario()
         };
 		       
-        String[] algorithms = {"CBS", "ECBS", "EECBS", "ACBS"};
+        String[] algorithms = {"CBS", "ECBS", "EECBS", "ACBS", "PP", "PBS", "ID", "RHCR"};
         
         for (TestScenario scenario : scenarios) {
             System.out.println("\n" + "=".repeat(60));
@@ -306,6 +306,18 @@ class ModerateConflictTester {
             case "ACBS":
                 result = new ACBS(map, agents, timeout, 1.2).solve(agents);
                 break;
+            case "PP":
+                result = new PrioritizedPlanning(map, agents, timeout).solve(agents);
+                break;
+            case "PBS":
+                result = new PBS(map, agents, timeout).solve(agents);
+                break;
+            case "ID":
+                result = new IndependenceDetection(map, agents, timeout, 1.2).solve(agents);
+                break;
+            case "RHCR":
+                result = new RollingHorizon(map, agents, timeout, 10, 5).solve(agents);
+                break;
         }
         
         return result;
@@ -375,7 +387,7 @@ class ModerateConflictTester {
             "Algo", "Time(ms)", "Speedup", "Cost", "Conflicts");
         System.out.println("-".repeat(65));
         
-        for (String alg : new String[]{"CBS", "ECBS", "EECBS", "ACBS"}) {
+        for (String alg : new String[]{"CBS", "ECBS", "EECBS", "ACBS", "PP", "PBS", "ID", "RHCR"}) {
             TestResult r = results.get(alg);
             if (r != null) {
                 double speedup = (double) cbsResult.runtimeMs / Math.max(1, r.runtimeMs);
@@ -450,7 +462,7 @@ class ModerateConflictTester {
         System.out.println("TESTING SINGLE SCENARIO: " + scenario.name);
         System.out.println("=".repeat(60));
         
-        String[] algorithms = {"CBS", "ECBS", "EECBS", "ACBS"};
+        String[] algorithms = {"CBS", "ECBS", "EECBS", "ACBS", "PP", "PBS", "ID", "RHCR"};
         Map<String, TestResult> results = new HashMap<>();
         
         for (String algName : algorithms) {
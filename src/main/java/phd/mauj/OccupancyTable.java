@@ -0,0 +1,25 @@
+package phd.mauj;
+
+// ============================================================================
+// OCCUPANCY TABLE (what CollisionAwareAStar needs to know about other paths)
+// ============================================================================
+
+interface OccupancyTable {
+    // Longest stored path length; from this time on nothing but parked agents moves
+    int getHorizon();
+
+    // Collisions of entering 'to' from 'from' at time t: agents there, parked there, or swapping
+    int countMove(int from, int to, int t);
+
+    // Collisions of waiting at 'cell' during the times from..to (inclusive)
+    int countWait(int cell, int from, int to);
+
+    // Collisions of staying at 'cell' for good after arriving at time t
+    int countStay(int cell, int t);
+
+    // Some agent stays at 'cell' for good from some time on
+    boolean isParked(int cell);
+
+    // Last time some agent passes through 'cell' (parked agents excluded), -1 if none
+    int lastVisit(int cell);
+}
@@ -0,0 +1,309 @@
+package phd.mauj;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// ============================================================================
+// OFF-HEAP NODE STORE (high-level node payloads in direct-buffer arenas)
+// ============================================================================
+
+// Keeps the payload of the nodes waiting in OPEN outside the Java heap, so that large
+// high-level trees do not lengthen garbage collection. A stored node leaves only a small
+// header on the heap (see CBSNode(CBSNode, long)); its record holds the replanned paths
+// as moves, the added constraints and the conflicts. Records are deltas against the
+// record of the node expanded last, which is usually the parent, so a node is rebuilt by
+// replaying its chain of records. The arena is append-only and is emptied as a whole by
+// reset() when the next search tree of a solve starts, its chunks then being reused, and
+// by release() at the end of the solve, which drops the chunks too.
+class OffHeapNodeStore {
+    // Direct buffers are allocated in chunks of this size (or of one larger record)
+    private static final int CHUNK_BYTES = 4 << 20;
+    // Chunks kept for the next search tree of the solve; a reset releases the rest
+    private static final int RETAINED_CHUNKS = 16;
+
+    // Move codes of an encoded path; JUMP is followed by the absolute cell
+    private static final byte WAIT = 0, RIGHT = 1, LEFT = 2, DOWN = 3, UP = 4, JUMP = 5;
+    private static final byte VERTEX = 0, EDGE = 1, TEMPORAL = 2;
+
+    private final double w;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int chunk = 0;
+    // Records are written here first, then copied into the arena in one piece
+    private ByteBuffer scratch = ByteBuffer.allocate(1 << 16);
+    private long storedBytes = 0;
+
+    // Node loaded last: the base of the next deltas and the start of the next replay
+    private long lastHandle = -1;
+    private AgentIndex lastAgents;
+    private Path[] lastPaths;
+    private Set<Constraint> lastConstraints;
+
+    // 'w' is the suboptimality weight of the solver, needed to rebuild the node costs
+    public OffHeapNodeStore(double w) {
+        this.w = w;
+    }
+
+    // Starts a new search tree: every record stored so far is released at once
+    public void reset() {
+        while (chunks.size() > RETAINED_CHUNKS) chunks.remove(chunks.size() - 1);
+        for (ByteBuffer buffer : chunks) buffer.clear();
+        chunk = 0;
+        storedBytes = 0;
+        lastHandle = -1;
+        lastAgents = null;
+        lastPaths = null;
+        lastConstraints = null;
+    }
+
+    // Ends the solve: all records and chunks are dropped at once, so no direct memory stays
+    // pinned by an idle solver (it is returned when the collector frees the buffers, which
+    // the JDK forces before failing a direct allocation)
+    public void release() {
+        chunks.clear();
+        reset();
+    }
+
+    public long getStoredBytes() { return storedBytes; }
+
+    // ========================================================================
+    // STORE AND LOAD
+    // ========================================================================
+
+    // Moves the node's payload off-heap and returns the header that stands in for it
+    public CBSNode store(CBSNode node) {
+        boolean delta = lastHandle >= 0 && node.agents == lastAgents
+                     && node.constraints.containsAll(lastConstraints);
+        scratch.clear();
+        putLong(delta ? lastHandle : -1);
+
+        int changed = 0;
+        for (int i = 0; i < node.paths.length; i++) {
+            if (!delta || node.paths[i] != lastPaths[i]) changed++;
+        }
+        putInt(changed);
+        for (int i = 0; i < node.paths.length; i++) {
+            if (!delta || node.paths[i] != lastPaths[i]) {
+                putInt(i);
+                putPath(node.paths[i]);
+            }
+        }
+
+        putInt(delta ? node.constraints.size() - lastConstraints.size() : node.constraints.size());
+        for (Constraint c : node.constraints) {
+            if (!delta || !lastConstraints.contains(c)) putConstraint(c);
+        }
+
+        putInt(node.conflicts.size());
+        for (Conflict conflict : node.conflicts) putConflict(conflict);
+
+        return new CBSNode(node, append());
+    }
+
+    // Rebuilds the full node of a header returned by store
+    public CBSNode load(CBSNode header) {
+        Deque<Long> chain = new ArrayDeque<>();
+        long handle = header.payloadHandle;
+        while (handle >= 0 && handle != lastHandle) {
+            chain.push(handle);
+            handle = reader(handle).getLong();
+        }
+
+        Path[] paths;
+        Set<Constraint> constraints;
+        if (handle >= 0) {
+            paths = lastPaths.clone();
+            constraints = new HashSet<>(lastConstraints);
+        } else {
+            paths = new Path[header.agents.size()];
+            constraints = new HashSet<>();
+        }
+
+        List<Conflict> conflicts = new ArrayList<>();
+        if (chain.isEmpty()) {
+            // The header is of the node loaded last (e.g. stored again unchanged)
+            conflicts = readConflicts(skipDeltas(reader(header.payloadHandle)));
+        }
+        while (!chain.isEmpty()) {
+            ByteBuffer in = reader(chain.pop());
+            in.getLong();
+            int changed = in.getInt();
+            for (int k = 0; k < changed; k++) {
+                int i = in.getInt();
+                paths[i] = readPath(in);
+            }
+            int added = in.getInt();
+            for (int k = 0; k < added; k++) constraints.add(readConstraint(in));
+            if (chain.isEmpty()) conflicts = readConflicts(in);
+        }
+
+        CBSNode node = new CBSNode(header.agents, paths, constraints, header.gCost, header.hCost, w, conflicts);
+        node.strategyType = header.strategyType;
+        node.subgoalRound = header.subgoalRound;
+        node.fHatCost = header.fHatCost;
+        node.payloadHandle = header.payloadHandle;
+
+        lastHandle = header.payloadHandle;
+        lastAgents = node.agents;
+        lastPaths = node.paths;
+        lastConstraints = node.constraints;
+        return node;
+    }
+
+    // ========================================================================
+    // ARENA
+    // ========================================================================
+
+    // Copies the scratch record into the arena; the handle is chunk << 32 | offset
+    private long append() {
+        scratch.flip();
+        int size = scratch.remaining();
+        while (chunk < chunks.size() && chunks.get(chunk).remaining() < size) chunk++;
+        if (chunk == chunks.size()) chunks.add(ByteBuffer.allocateDirect(Math.max(CHUNK_BYTES, size)));
+        ByteBuffer target = chunks.get(chunk);
+        long handle = (long) chunk << 32 | target.position();
+        target.put(scratch);
+        storedBytes += size;
+        return handle;
+    }
+
+    private ByteBuffer reader(long handle) {
+        ByteBuffer in = chunks.get((int) (handle >>> 32)).duplicate();
+        in.position((int) handle);
+        return in;
+    }
+
+    // ========================================================================
+    // ENCODING
+    // ========================================================================
+
+    private void ensure(int bytes) {
+        if (scratch.remaining() >= bytes) return;
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * scratch.capacity(), scratch.position() + bytes));
+        scratch.flip();
+        larger.put(scratch);
+        scratch = larger;
+    }
+
+    private void putInt(int value) {
+        ensure(4);
+        scratch.putInt(value);
+    }
+
+    private void putLong(long value) {
+        ensure(8);
+        scratch.putLong(value);
+    }
+
+    private void putPath(Path path) {
+        List<Position> positions = path.getPositions();
+        ensure(12 + 9 * positions.size());
+        Position previous = positions.get(0);
+        scratch.putInt(positions.size()).putInt(previous.x).putInt(previous.y);
+        for (int t = 1; t < positions.size(); t++) {
+            Position p = positions.get(t);
+            int dx = p.x - previous.x, dy = p.y - previous.y;
+            if (dx == 0 && dy == 0) scratch.put(WAIT);
+            else if (dx == 1 && dy == 0) scratch.put(RIGHT);
+            else if (dx == -1 && dy == 0) scratch.put(LEFT);
+            else if (dx == 0 && dy == 1) scratch.put(DOWN);
+            else if (dx == 0 && dy == -1) scratch.put(UP);
+            else scratch.put(JUMP).putInt(p.x).putInt(p.y);
+            previous = p;
+        }
+    }
+
+    private Path readPath(ByteBuffer in) {
+        int length = in.getInt();
+        List<Position> positions = new ArrayList<>(length);
+        Position previous = new Position(in.getInt(), in.getInt());
+        positions.add(previous);
+        for (int t = 1; t < length; t++) {
+            byte move = in.get();
+            Position p;
+            switch (move) {
+                case WAIT:  p = previous; break;
+                case RIGHT: p = new Position(previous.x + 1, previous.y); break;
+                case LEFT:  p = new Position(previous.x - 1, previous.y); break;
+                case DOWN:  p = new Position(previous.x, previous.y + 1); break;
+                case UP:    p = new Position(previous.x, previous.y - 1); break;
+                default:    p = new Position(in.getInt(), in.getInt()); break;
+            }
+            positions.add(p);
+            previous = p;
+        }
+        return new Path(positions);
+    }
+
+    private void putConstraint(Constraint c) {
+        ensure(29);
+        if (c instanceof VertexConstraint) {
+            Position p = ((VertexConstraint) c).position;
+            scratch.put(VERTEX).putInt(c.agent).putInt(c.time).putInt(p.x).putInt(p.y);
+        } else if (c instanceof EdgeConstraint) {
+            EdgeConstraint e = (EdgeConstraint) c;
+            scratch.put(EDGE).putInt(c.agent).putInt(c.time)
+                   .putInt(e.from.x).putInt(e.from.y).putInt(e.to.x).putInt(e.to.y);
+        } else if (c instanceof TemporalConstraint) {
+            TemporalConstraint tc = (TemporalConstraint) c;
+            scratch.put(TEMPORAL).putInt(c.agent).putInt(c.time)
+                   .putInt(tc.position.x).putInt(tc.position.y).putInt(tc.delaySteps);
+        } else {
+            throw new IllegalArgumentException("Cannot store constraint " + c.getClass().getSimpleName());
+        }
+    }
+
+    private Constraint readConstraint(ByteBuffer in) {
+        byte type = in.get();
+        int agent = in.getInt(), time = in.getInt();
+        Position p = new Position(in.getInt(), in.getInt());
+        if (type == VERTEX) return new VertexConstraint(agent, time, p);
+        if (type == EDGE) return new EdgeConstraint(agent, time, p, new Position(in.getInt(), in.getInt()));
+        return new TemporalConstraint(agent, time, p, in.getInt());
+    }
+
+    private void putConflict(Conflict conflict) {
+        ensure(29);
+        if (conflict instanceof VertexConflict) {
+            Position p = ((VertexConflict) conflict).position;
+            scratch.put(VERTEX).putInt(conflict.agent1).putInt(conflict.agent2).putInt(conflict.time)
+                   .putInt(p.x).putInt(p.y);
+        } else if (conflict instanceof EdgeConflict) {
+            EdgeConflict e = (EdgeConflict) conflict;
+            scratch.put(EDGE).putInt(conflict.agent1).putInt(conflict.agent2).putInt(conflict.time)
+                   .putInt(e.from.x).putInt(e.from.y).putInt(e.to.x).putInt(e.to.y);
+        } else {
+            throw new IllegalArgumentException("Cannot store conflict " + conflict.getClass().getSimpleName());
+        }
+    }
+
+    private List<Conflict> readConflicts(ByteBuffer in) {
+        int count = in.getInt();
+        List<Conflict> conflicts = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            byte type = in.get();
+            int agent1 = in.getInt(), agent2 = in.getInt(), time = in.getInt();
+            Position p = new Position(in.getInt(), in.getInt());
+            conflicts.add(type == VERTEX ? new VertexConflict(agent1, agent2, time, p)
+                          : new EdgeConflict(agent1, agent2, time, p, new Position(in.getInt(), in.getInt())));
+        }
+        return conflicts;
+    }
+
+    // Moves past the paths and constraints of a record, to its conflicts
+    private ByteBuffer skipDeltas(ByteBuffer in) {
+        in.getLong();
+        int changed = in.getInt();
+        for (int k = 0; k < changed; k++) {
+            in.getInt();
+            readPath(in);
+        }
+        int added = in.getInt();
+        for (int k = 0; k < added; k++) readConstraint(in);
+        return in;
+    }
+}
@@ -0,0 +1,222 @@
+package phd.mauj;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// ============================================================================
+// PRIORITY-BASED SEARCH (depth-first over partial priority orderings)
+// ============================================================================
+
+class PBS extends ACBS {
+    // A failed replan prunes a whole branch, so it is worth searching long before giving up
+    private static final int MAX_LOW_LEVEL_EXPANSIONS = 100000;
+
+    private final CollisionAwareAStar planner;
+    // Paths of the node being worked on; synchronized lazily (see syncTable)
+    private CollisionTable table;
+    private final Map<Integer, Path> tablePaths = new HashMap<>();
+    // Paths of the higher-priority agents of the agent being replanned
+    private final ReservationTable reserved;
+
+    public PBS(GridMap map, List<Agent> agents, long timeoutMs) {
+        super(map, agents, timeoutMs, 1.0);
+        // Reused across solves: it caches the distance tables of the map
+        this.planner = new CollisionAwareAStar(map, 1, MAX_LOW_LEVEL_EXPANSIONS);
+        planner.setBudget(budget);
+        this.reserved = new ReservationTable(map);
+    }
+
+    // Starts from individually shortest paths and no priorities. Each node branches on one
+    // conflict by ordering its two agents either way, then replans the lower agent and
+    // everything below it (in topological order) against all higher-priority paths.
+    // Children are explored depth first, the cheaper one first; a child whose replanning
+    // fails is dropped, so the search only backtracks on dead ends. Every node expanded is
+    // one high-level node of the budget.
+    @Override
+    public Result solve(List<Agent> agents) {
+        long startTime = System.currentTimeMillis();
+        budget.start();
+        Map<Integer, Agent> agentsById = new HashMap<>();
+        for (Agent agent : agents) agentsById.put(agent.id, agent);
+
+        table = new CollisionTable(map);
+        tablePaths.clear();
+        reserved.setWindow(conflictWindow);
+        PTNode root = new PTNode(new HashMap<>(), new HashMap<>(), new HashMap<>());
+        for (Agent agent : agents) {
+            Path path = planner.findPath(agent, reserved, true);
+            if (path == null) {
+                // A search cut short by the budget proves nothing
+                return finish(agents, new Result(false, null, 0, System.currentTimeMillis() - startTime,
+                                                 budget.getExhausted() == null ? "No solution" : "No initial solution"));
+            }
+            root.paths.put(agent.id, path);
+            root.cost += path.getCost();
+        }
+        syncTable(root);
+        for (Agent agent : agents) addConflicts(root, agent.id);
+
+        Deque<PTNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        PTNode best = root;
+        while (!stack.isEmpty() && !interrupted && budget.chargeNode()) {
+            budget.getStats().observeOpenSize(stack.size());
+            PTNode node = stack.pop();
+            if (node.conflicts.isEmpty()) {
+                return finish(agents, new Result(true, node.paths, node.cost, System.currentTimeMillis() - startTime,
+                                                 "Solved-PBS"));
+            }
+            if (node.conflicts.size() < best.conflicts.size()) best = node;
+
+            long pair = node.conflicts.iterator().next();
+            int agent1 = (int) (pair >>> 32);
+            int agent2 = (int) pair;
+            PTNode first = branch(node, agent1, agent2, agentsById);
+            PTNode second = branch(node, agent2, agent1, agentsById);
+
+            // Depth first: the cheaper child ends up on top of the stack
+            if (first != null && second != null && first.cost < second.cost) {
+                PTNode swap = first;
+                first = second;
+                second = swap;
+            }
+            if (first != null) stack.push(first);
+            if (second != null) stack.push(second);
+        }
+
+        // Children dropped because the budget cut their replanning short are no dead ends
+        boolean exhausted = stack.isEmpty() && budget.getExhausted() == null;
+        return finish(agents, new Result(false, best.paths, best.cost, System.currentTimeMillis() - startTime,
+                                         exhausted ? "No solution" : "Suboptimal-PBS"));
+    }
+
+    // ========================================================================
+    // BRANCHING
+    // ========================================================================
+
+    // Child of 'parent' with 'high' ordered before 'low'; null if that ordering contradicts
+    // the parent's or if an agent below 'high' can no longer find a path
+    private PTNode branch(PTNode parent, int high, int low, Map<Integer, Agent> agentsById) {
+        if (ancestors(parent, high).contains(low)) return null;
+
+        PTNode child = new PTNode(new HashMap<>(parent.paths), new HashMap<>(parent.higher),
+                                  new HashMap<>(parent.lower));
+        child.cost = parent.cost;
+        child.conflicts.addAll(parent.conflicts);
+        Set<Integer> above = new HashSet<>(child.higher.getOrDefault(low, Set.of()));
+        above.add(high);
+        child.higher.put(low, above);
+        Set<Integer> below = new HashSet<>(child.lower.getOrDefault(high, Set.of()));
+        below.add(low);
+        child.lower.put(high, below);
+
+        syncTable(parent);
+        for (int id : topologicalOrder(child, low)) {
+            Set<Integer> higherAgents = ancestors(child, id);
+            // Only the new low agent is sure to need a new path; the ones below it
+            // are replanned if they now collide with someone above them
+            if (id != low && Collections.disjoint(collidingAgents(id, child.paths.get(id)), higherAgents)) continue;
+
+            reserved.clear();
+            for (int other : higherAgents) reserved.reserve(child.paths.get(other));
+            Path path = planner.findPath(agentsById.get(id), reserved, true);
+            if (path == null) return null;
+
+            Path old = child.paths.put(id, path);
+            child.cost += path.getCost() - old.getCost();
+            table.remove(id, old);
+            table.add(id, path);
+            tablePaths.put(id, path);
+            removeConflicts(child, id);
+            addConflicts(child, id);
+        }
+        return child;
+    }
+
+    // 'start' followed by every agent below it, each after all agents above it
+    private List<Integer> topologicalOrder(PTNode node, int start) {
+        List<Integer> postOrder = new ArrayList<>();
+        visitBelow(node, start, new HashSet<>(), postOrder);
+        Collections.reverse(postOrder);
+        return postOrder;
+    }
+
+    private void visitBelow(PTNode node, int id, Set<Integer> visited, List<Integer> postOrder) {
+        if (!visited.add(id)) return;
+        for (int next : node.lower.getOrDefault(id, Set.of())) visitBelow(node, next, visited, postOrder);
+        postOrder.add(id);
+    }
+
+    // Every agent with a higher priority than 'id', directly or transitively
+    private Set<Integer> ancestors(PTNode node, int id) {
+        Set<Integer> result = new HashSet<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>(node.higher.getOrDefault(id, Set.of()));
+        while (!queue.isEmpty()) {
+            int next = queue.poll();
+            if (result.add(next)) queue.addAll(node.higher.getOrDefault(next, Set.of()));
+        }
+        return result;
+    }
+
+    // ========================================================================
+    // CONFLICT BOOKKEEPING
+    // ========================================================================
+
+    // Brings the shared table to the node's paths, touching only the agents whose path differs
+    private void syncTable(PTNode node) {
+        for (Map.Entry<Integer, Path> e : node.paths.entrySet()) {
+            Path current = tablePaths.get(e.getKey());
+            if (current == e.getValue()) continue;
+            if (current != null) table.remove(e.getKey(), current);
+            table.add(e.getKey(), e.getValue());
+            tablePaths.put(e.getKey(), e.getValue());
+        }
+    }
+
+    // Agents in the shared table colliding with the path of agent 'id', other than itself
+    private Set<Integer> collidingAgents(int id, Path path) {
+        Set<Integer> result = table.collidingAgents(path, conflictWindow);
+        result.remove(id);
+        return result;
+    }
+
+    private void addConflicts(PTNode node, int id) {
+        for (int other : collidingAgents(id, node.paths.get(id))) node.conflicts.add(pairKey(id, other));
+    }
+
+    private void removeConflicts(PTNode node, int id) {
+        node.conflicts.removeIf(pair -> (int) (pair >>> 32) == id || (int) (long) pair == id);
+    }
+
+    private long pairKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    // ========================================================================
+    // PRIORITY TREE NODE
+    // ========================================================================
+
+    private static class PTNode {
+        final Map<Integer, Path> paths;
+        // Direct priority edges both ways; the sets are copied before they are changed
+        final Map<Integer, Set<Integer>> higher;
+        final Map<Integer, Set<Integer>> lower;
+        // Colliding agent pairs, as (smaller id << 32) | larger id
+        final Set<Long> conflicts = new LinkedHashSet<>();
+        int cost = 0;
+
+        PTNode(Map<Integer, Path> paths, Map<Integer, Set<Integer>> higher, Map<Integer, Set<Integer>> lower) {
+            this.paths = paths;
+            this.higher = higher;
+            this.lower = lower;
+        }
+    }
+}
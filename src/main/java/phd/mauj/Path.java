@@ -1,11 +1,17 @@
 package phd.mauj;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 class Path {
     private final List<Position> positions;
     private final int cost;
+    // Position -> times the path arrives there (staying does not count as arriving again).
+    // Built on first use; paths are shared between nodes and threads but never change.
+    private volatile Map<Position, int[]> arrivals;
     
     public Path(List<Position> positions) {
         this.positions = new ArrayList<>(positions);
@@ -25,4 +31,38 @@ class Path {
     public int getCost() { return cost; }
     public List<Position> getPositions() { return new ArrayList<>(positions); }
     public int getLength() { return positions.size(); }
+    
+    // Time of the first arrival at p, -1 if the path never gets there
+    public int firstArrival(Position p) {
+        int[] times = arrivals().get(p);
+        return times == null ? -1 : times[0];
+    }
+    
+    // Time of the last arrival at p no later than 'limit', -1 if there is none
+    public int lastArrival(Position p, int limit) {
+        int[] times = arrivals().get(p);
+        if (times == null) return -1;
+        int i = Arrays.binarySearch(times, limit);
+        if (i >= 0) return times[i];
+        i = -i - 2;
+        return i >= 0 ? times[i] : -1;
+    }
+    
+    private Map<Position, int[]> arrivals() {
+        Map<Position, int[]> index = arrivals;
+        if (index == null) {
+            Map<Position, List<Integer>> times = new HashMap<>();
+            for (int t = 0; t < positions.size(); t++) {
+                if (t == 0 || !positions.get(t).equals(positions.get(t - 1))) {
+                    times.computeIfAbsent(positions.get(t), k -> new ArrayList<>()).add(t);
+                }
+            }
+            index = new HashMap<>();
+            for (Map.Entry<Position, List<Integer>> e : times.entrySet()) {
+                index.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            arrivals = index;
+        }
+        return index;
+    }
 }
\ No newline at end of file
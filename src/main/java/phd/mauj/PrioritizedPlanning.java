@@ -0,0 +1,153 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// ============================================================================
+// PRIORITIZED PLANNING (one agent at a time against a reservation table)
+// ============================================================================
+
+class PrioritizedPlanning extends ACBS {
+    public enum PriorityOrder {
+        GIVEN,           // the order of the agent list
+        SHORTEST_FIRST,  // shortest distance to the goal first
+        LONGEST_FIRST,   // longest distance to the goal first
+        RANDOM           // a random order
+    }
+
+    // A failed agent costs a restart, so it is worth searching much longer than LNS does
+    private static final int MAX_LOW_LEVEL_EXPANSIONS = 200000;
+    // Detour length worth one collision when the last attempt is completed with collisions
+    private static final int COLLISION_PENALTY = 10;
+
+    private final CollisionAwareAStar planner;
+    private PriorityOrder priorityOrder = PriorityOrder.SHORTEST_FIRST;
+    private int maxRestarts = Integer.MAX_VALUE;
+    private long seed = 0;
+
+    public PrioritizedPlanning(GridMap map, List<Agent> agents, long timeoutMs) {
+        super(map, agents, timeoutMs, 1.0);
+        // Reused across solves: it caches the distance tables of the map
+        this.planner = new CollisionAwareAStar(map, COLLISION_PENALTY, MAX_LOW_LEVEL_EXPANSIONS);
+        planner.setBudget(budget);
+    }
+
+    public void setPriorityOrder(PriorityOrder priorityOrder) {
+        this.priorityOrder = priorityOrder;
+    }
+
+    public void setMaxRestarts(int maxRestarts) {
+        this.maxRestarts = Math.max(0, maxRestarts);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    // Plans the agents in priority order, each avoiding all paths planned before it. Agents
+    // that find no path are skipped; if there are any, starts over with every agent that has
+    // failed so far moved to the front. Every agent planned is one high-level node of the
+    // budget. Once the budget is spent the attempt with the fewest failures is completed with
+    // colliding paths (shortest paths on the static map, as no expansions are left).
+    @Override
+    public Result solve(List<Agent> agents) {
+        long startTime = System.currentTimeMillis();
+        budget.start();
+        Random random = new Random(seed);
+        for (Agent agent : agents) {
+            if (planner.distance(agent.start, agent.goal) == Integer.MAX_VALUE) {
+                return finish(agents, new Result(false, null, 0, System.currentTimeMillis() - startTime, "No solution"));
+            }
+        }
+
+        ReservationTable table = new ReservationTable(map);
+        table.setWindow(conflictWindow);
+        List<Agent> order = initialOrder(agents, random);
+        Set<Agent> boosted = new LinkedHashSet<>();
+        Map<Integer, Path> bestAttempt = new HashMap<>();
+
+        for (int restart = 0; restart <= maxRestarts; restart++) {
+            table.clear();
+            Map<Integer, Path> paths = new HashMap<>();
+            boolean outOfBudget = false;
+            for (Agent agent : order) {
+                if (interrupted || !budget.chargeNode()) {
+                    outOfBudget = true;
+                    break;
+                }
+                Path path = planner.findPath(agent, table, true);
+                if (path == null) {
+                    boosted.add(agent);
+                    continue;
+                }
+                table.reserve(path);
+                paths.put(agent.id, path);
+            }
+
+            if (paths.size() == agents.size()) {
+                return finish(agents, new Result(true, paths, costOf(paths), System.currentTimeMillis() - startTime,
+                                                 "Solved-PP"));
+            }
+            if (paths.size() > bestAttempt.size()) bestAttempt = paths;
+            if (outOfBudget) break;
+
+            // The failed agents go first in a random order; the others keep their relative
+            // order, which disturbs the last attempt less than a full shuffle
+            List<Agent> next = new ArrayList<>(boosted);
+            Collections.shuffle(next, random);
+            for (Agent agent : order) {
+                if (!boosted.contains(agent)) next.add(agent);
+            }
+            order = next;
+        }
+
+        // Complete the best attempt with the paths of fewest collisions
+        table.clear();
+        for (Path path : bestAttempt.values()) table.reserve(path);
+        Map<Integer, Path> solution = new HashMap<>(bestAttempt);
+        for (Agent agent : agents) {
+            if (solution.containsKey(agent.id)) continue;
+            Path path = planner.findPath(agent, table, false);
+            table.reserve(path);
+            solution.put(agent.id, path);
+        }
+        return finish(agents, new Result(false, solution, costOf(solution), System.currentTimeMillis() - startTime,
+                                         "Suboptimal-PP"));
+    }
+
+    private List<Agent> initialOrder(List<Agent> agents, Random random) {
+        List<Agent> order = new ArrayList<>(agents);
+        // Distances looked up once per agent: the planner keeps only some distance tables
+        Map<Agent, Integer> distance = new HashMap<>();
+        if (priorityOrder == PriorityOrder.SHORTEST_FIRST || priorityOrder == PriorityOrder.LONGEST_FIRST) {
+            for (Agent agent : agents) distance.put(agent, planner.distance(agent.start, agent.goal));
+        }
+        switch (priorityOrder) {
+            case SHORTEST_FIRST:
+                order.sort(Comparator.comparingInt((Agent a) -> distance.get(a)));
+                break;
+            case LONGEST_FIRST:
+                order.sort(Comparator.comparingInt((Agent a) -> -distance.get(a)));
+                break;
+            case RANDOM:
+                Collections.shuffle(order, random);
+                break;
+            default:
+                break;
+        }
+        return order;
+    }
+
+    private int costOf(Map<Integer, Path> paths) {
+        int cost = 0;
+        for (Path path : paths.values()) cost += path.getCost();
+        return cost;
+    }
+}
@@ -0,0 +1,142 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// ============================================================================
+// RESERVATION TABLE (space-time bitsets of the paths planned so far)
+// ============================================================================
+
+// Paths are only ever added, so a few bits per cell and timestep are enough:
+// occupancy answers are 0 or 1 and the table is cleared as a whole between attempts.
+class ReservationTable implements OccupancyTable {
+    private final int width;
+    private final int cells;
+    // t -> cells occupied at time t, before each agent reaches its goal
+    private final List<BitSet> vertices = new ArrayList<>();
+    // t -> moves arriving at time t, as from * 4 + direction
+    private final List<BitSet> moves = new ArrayList<>();
+    // cell -> time an agent settles there for good, Integer.MAX_VALUE if none
+    private final int[] parkedFrom;
+    // cell -> last reserved time before any goal arrival, -1 if none
+    private final int[] lastVisit;
+    // Paths reserved since the last clear, so that clearing costs no more than reserving
+    private final List<Path> reserved = new ArrayList<>();
+    private int horizon = 0;
+    // Last timestep reserved for each path (see setWindow)
+    private int window = Integer.MAX_VALUE;
+
+    public ReservationTable(GridMap map) {
+        this.width = map.getWidth();
+        this.cells = map.getWidth() * map.getHeight();
+        this.parkedFrom = new int[cells];
+        this.lastVisit = new int[cells];
+        Arrays.fill(parkedFrom, Integer.MAX_VALUE);
+        Arrays.fill(lastVisit, -1);
+    }
+
+    public int cellOf(Position p) {
+        return p.y * width + p.x;
+    }
+
+    // Reserves paths only up to timestep 'window' from now on; an agent that reaches its
+    // goal later is not parked there. Empties the table.
+    public void setWindow(int window) {
+        clear();
+        this.window = Math.max(1, window);
+    }
+
+    public void reserve(Path path) {
+        int last = path.getLength() - 1;
+        for (int t = 0; t < Math.min(last - 1, window) + 1; t++) {
+            int cell = cellOf(path.getPosition(t));
+            at(vertices, t).set(cell);
+            lastVisit[cell] = Math.max(lastVisit[cell], t);
+            int next = cellOf(path.getPosition(t + 1));
+            if (next != cell && t < window) at(moves, t + 1).set(moveIndex(cell, next));
+        }
+        if (last <= window) {
+            int goal = cellOf(path.getPosition(last));
+            parkedFrom[goal] = Math.min(parkedFrom[goal], last);
+        }
+        horizon = Math.max(horizon, Math.min(path.getLength() - 1, window) + 1);
+        reserved.add(path);
+    }
+
+    // Empties the table but keeps the allocated bitsets for the next attempt
+    public void clear() {
+        for (Path path : reserved) {
+            int last = path.getLength() - 1;
+            for (int t = 0; t < Math.min(last - 1, window) + 1; t++) {
+                int cell = cellOf(path.getPosition(t));
+                vertices.get(t).clear(cell);
+                lastVisit[cell] = -1;
+                int next = cellOf(path.getPosition(t + 1));
+                if (next != cell && t < window) moves.get(t + 1).clear(moveIndex(cell, next));
+            }
+            if (last <= window) parkedFrom[cellOf(path.getPosition(last))] = Integer.MAX_VALUE;
+        }
+        reserved.clear();
+        horizon = 0;
+    }
+
+    @Override
+    public int getHorizon() {
+        return horizon;
+    }
+
+    @Override
+    public int countMove(int from, int to, int t) {
+        int count = 0;
+        if (isSet(vertices, t, to)) count++;
+        if (parkedFrom[to] <= t) count++;
+        if (from != to && isSet(moves, t, moveIndex(to, from))) count++;
+        return count;
+    }
+
+    @Override
+    public int countWait(int cell, int from, int to) {
+        int count = parkedFrom[cell] <= to ? 1 : 0;
+        for (int t = from; t <= Math.min(to, lastVisit[cell]); t++) {
+            if (isSet(vertices, t, cell)) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int countStay(int cell, int t) {
+        int count = parkedFrom[cell] != Integer.MAX_VALUE && parkedFrom[cell] > t ? 1 : 0;
+        for (int time = t + 1; time <= lastVisit[cell]; time++) {
+            if (isSet(vertices, time, cell)) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isParked(int cell) {
+        return parkedFrom[cell] != Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int lastVisit(int cell) {
+        return lastVisit[cell];
+    }
+
+    private BitSet at(List<BitSet> layers, int t) {
+        while (layers.size() <= t) layers.add(new BitSet());
+        return layers.get(t);
+    }
+
+    private boolean isSet(List<BitSet> layers, int t, int index) {
+        return t < layers.size() && layers.get(t).get(index);
+    }
+
+    // Moves are between adjacent cells, so (from, direction) identifies them
+    private int moveIndex(int from, int to) {
+        int delta = to - from;
+        int direction = delta == 1 ? 0 : delta == -1 ? 1 : delta > 0 ? 2 : 3;
+        return from * 4 + direction;
+    }
+}
@@ -0,0 +1,119 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// ============================================================================
+// ROLLING-HORIZON CONFLICT RESOLUTION (RHCR-style windowed replanning)
+// ============================================================================
+
+class RollingHorizon extends ACBS {
+    // Default bound on the planning time of one cycle
+    private static final long CYCLE_TIMEOUT_MS = 1000;
+
+    private final ACBS base;
+    // Conflicts are resolved for the next 'window' timesteps, of which 'horizon' are executed
+    private final int window;
+    private final int horizon;
+    // Planning time of every cycle of the last solve
+    private final List<Long> cycleLatencies = new ArrayList<>();
+
+    // Windowed PBS, with every cycle bounded by CYCLE_TIMEOUT_MS
+    public RollingHorizon(GridMap map, List<Agent> agents, long timeoutMs, int window, int horizon) {
+        this(map, agents, timeoutMs, new PBS(map, agents, Math.min(timeoutMs, CYCLE_TIMEOUT_MS)), window, horizon);
+    }
+
+    // 'base' plans every cycle and is reused across cycles; its timeout bounds one cycle
+    public RollingHorizon(GridMap map, List<Agent> agents, long timeoutMs, ACBS base, int window, int horizon) {
+        super(map, agents, timeoutMs, 1.0);
+        this.window = Math.max(1, window);
+        this.horizon = Math.max(1, Math.min(horizon, this.window));
+        this.base = base;
+        base.setConflictWindow(this.window);
+        // Only the executed steps of a cycle's plan have to be collision-free
+        setConflictWindow(this.horizon);
+    }
+
+    public List<Long> getCycleLatencies() { return new ArrayList<>(cycleLatencies); }
+
+    // Plans all agents from their current positions with only the first 'window' timesteps
+    // made collision-free, executes 'horizon' steps of that plan, and repeats until every
+    // agent stands at its goal. Per cycle the work depends on the window rather than on
+    // the length of the paths. A cycle that ran out of time still counts if its executed
+    // steps are collision-free; otherwise the solve ends there. Every cycle is one
+    // high-level node of the budget.
+    @Override
+    public Result solve(List<Agent> agents) {
+        long startTime = System.currentTimeMillis();
+        budget.start();
+        cycleLatencies.clear();
+
+        Map<Integer, List<Position>> executed = new HashMap<>();
+        List<Agent> current = new ArrayList<>(agents);
+        for (Agent agent : agents) {
+            List<Position> positions = new ArrayList<>();
+            positions.add(agent.start);
+            executed.put(agent.id, positions);
+        }
+
+        while (!allAtGoals(current)) {
+            if (interrupted || !budget.chargeNode()) {
+                return result(executed, agents, false, startTime, "Suboptimal-RHCR");
+            }
+
+            Result cycle = base.solve(current);
+            cycleLatencies.add(cycle.runtimeMs);
+            if (cycle.solution == null) {
+                return finish(agents, new Result(false, null, 0, System.currentTimeMillis() - startTime, "No solution"));
+            }
+
+            if (!cycle.success && !findConflicts(cycle.solution).isEmpty()) {
+                // Hand back what was executed followed by the unresolved plan
+                for (Agent agent : current) {
+                    Path path = cycle.solution.get(agent.id);
+                    List<Position> positions = executed.get(agent.id);
+                    for (int t = 1; t < path.getLength(); t++) positions.add(path.getPosition(t));
+                }
+                return result(executed, agents, false, startTime, "Suboptimal-RHCR");
+            }
+
+            List<Agent> next = new ArrayList<>();
+            for (Agent agent : current) {
+                Path path = cycle.solution.get(agent.id);
+                List<Position> positions = executed.get(agent.id);
+                for (int t = 1; t <= horizon; t++) positions.add(path.getPosition(t));
+                next.add(new Agent(agent.id, path.getPosition(horizon), agent.goal));
+            }
+            current = next;
+        }
+
+        return result(executed, agents, true, startTime, "Solved-RHCR");
+    }
+
+    private boolean allAtGoals(List<Agent> agents) {
+        for (Agent agent : agents) {
+            if (!agent.start.equals(agent.goal)) return false;
+        }
+        return true;
+    }
+
+    // Executed paths, each without the waiting at its goal after the last arrival there
+    private Result result(Map<Integer, List<Position>> executed, List<Agent> agents, boolean success,
+                          long startTime, String status) {
+        Map<Integer, Path> solution = new HashMap<>();
+        int cost = 0;
+        for (Agent agent : agents) {
+            List<Position> positions = executed.get(agent.id);
+            int end = positions.size();
+            while (end > 1 && positions.get(end - 1).equals(agent.goal) && positions.get(end - 2).equals(agent.goal)) {
+                end--;
+            }
+            Path path = new Path(positions.subList(0, end));
+            solution.put(agent.id, path);
+            cost += path.getCost();
+        }
+        return finish(agents, new Result(success, solution, cost, System.currentTimeMillis() - startTime, status));
+    }
+}
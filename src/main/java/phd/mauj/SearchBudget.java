@@ -0,0 +1,144 @@
+package phd.mauj;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ============================================================================
+// SEARCH BUDGET (limits of one solve, checked by the high and low level)
+// ============================================================================
+
+// Wall time, high-level nodes, low-level expansions and heap in use, each optional
+// except the wall time. A solver starts the budget at the beginning of every solve;
+// its high-level loop charges every expanded node and its low-level searches charge
+// every expansion, and both stop as soon as a charge is refused. The first limit hit
+// is remembered, so the result can name it and the fallback can take over.
+// The memory limit is process-wide: it is checked against the heap in use by the whole
+// JVM, so solves running side by side (e.g. BatchSolver workers) count against each
+// other's limit; the solve that checks first past it stops, not necessarily the one
+// that allocated the most. Per-solve allocation is reported by SearchStats instead.
+class SearchBudget {
+    public enum Limit {
+        WALL_TIME("wall time"),
+        HIGH_LEVEL_NODES("high-level nodes"),
+        LOW_LEVEL_EXPANSIONS("low-level expansions"),
+        MEMORY("memory");
+
+        final String label;
+
+        Limit(String label) {
+            this.label = label;
+        }
+    }
+
+    // Runs when a solve ends at its budget without a solution. 'best' is the solver's
+    // result (its solution may be null); the returned result replaces it.
+    public interface Fallback {
+        ACBS.Result apply(List<Agent> agents, ACBS.Result best);
+    }
+
+    // Low-level expansions between two checks of the clock and the heap
+    private static final long CHECK_INTERVAL = 1024;
+
+    private final long wallTimeMs;
+    private long maxHighLevelNodes = Long.MAX_VALUE;
+    private long maxLowLevelExpansions = Long.MAX_VALUE;
+    private long maxMemoryBytes = Long.MAX_VALUE;
+    private Fallback fallback;
+
+    // State of the current solve; charged concurrently by the strategy threads
+    private volatile long deadlineNanos = Long.MAX_VALUE;
+    private final AtomicLong highLevelNodes = new AtomicLong();
+    private final AtomicLong lowLevelExpansions = new AtomicLong();
+    private volatile Limit exhausted;
+    private volatile SearchStats stats = new SearchStats();
+
+    public SearchBudget(long wallTimeMs) {
+        this.wallTimeMs = wallTimeMs;
+    }
+
+    public void setMaxHighLevelNodes(long nodes) {
+        this.maxHighLevelNodes = nodes;
+    }
+
+    public void setMaxLowLevelExpansions(long expansions) {
+        this.maxLowLevelExpansions = expansions;
+    }
+
+    // Limit on the heap in use by the whole JVM, not by this solve: garbage and the
+    // allocations of every other thread count, including concurrent solves
+    public void setMaxMemoryBytes(long bytes) {
+        this.maxMemoryBytes = bytes;
+    }
+
+    public void setFallback(Fallback fallback) {
+        this.fallback = fallback;
+    }
+
+    public Fallback getFallback() { return fallback; }
+
+    // ========================================================================
+    // CHARGING
+    // ========================================================================
+
+    // Resets the counters, starts the clock and the statistics of a new solve
+    public void start() {
+        stats = new SearchStats();
+        highLevelNodes.set(0);
+        lowLevelExpansions.set(0);
+        exhausted = null;
+        deadlineNanos = wallTimeMs >= Long.MAX_VALUE / 2_000_000 ? Long.MAX_VALUE
+                      : System.nanoTime() + wallTimeMs * 1_000_000;
+    }
+
+    // Charges one high-level node; false once any limit is reached
+    public boolean chargeNode() {
+        if (exhausted != null) return false;
+        if (highLevelNodes.incrementAndGet() > maxHighLevelNodes) return exhaust(Limit.HIGH_LEVEL_NODES);
+        return check();
+    }
+
+    // Charges one low-level expansion; false once any limit is reached. The clock and
+    // the heap are only looked at every CHECK_INTERVAL expansions.
+    public boolean chargeExpansion() {
+        if (exhausted != null) return false;
+        long n = lowLevelExpansions.incrementAndGet();
+        if (n > maxLowLevelExpansions) return exhaust(Limit.LOW_LEVEL_EXPANSIONS);
+        return n % CHECK_INTERVAL != 0 || check();
+    }
+
+    // Checks the wall time and the heap without charging anything
+    public boolean check() {
+        if (exhausted != null) return false;
+        if (System.nanoTime() >= deadlineNanos) return exhaust(Limit.WALL_TIME);
+        if (maxMemoryBytes != Long.MAX_VALUE) {
+            Runtime runtime = Runtime.getRuntime();
+            if (runtime.totalMemory() - runtime.freeMemory() > maxMemoryBytes) return exhaust(Limit.MEMORY);
+        }
+        return true;
+    }
+
+    private boolean exhaust(Limit limit) {
+        if (exhausted == null) exhausted = limit;
+        return false;
+    }
+
+    // ========================================================================
+    // STATE
+    // ========================================================================
+
+    // The first limit reached in the current solve, null if none was
+    public Limit getExhausted() { return exhausted; }
+
+    // Wall time left in the current solve, at least 1 ms
+    public long remainingMs() {
+        if (deadlineNanos == Long.MAX_VALUE) return Long.MAX_VALUE / 1_000_000;
+        return Math.max(1, (deadlineNanos - System.nanoTime()) / 1_000_000);
+    }
+
+    public long getHighLevelNodes() { return highLevelNodes.get(); }
+
+    public long getLowLevelExpansions() { return lowLevelExpansions.get(); }
+
+    // Statistics of the current solve; a new instance from every start()
+    public SearchStats getStats() { return stats; }
+}
@@ -0,0 +1,101 @@
+package phd.mauj;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// ============================================================================
+// FLIGHT RECORDER EVENTS (high-level expansions, low-level searches, conflicts)
+// ============================================================================
+
+// Java Flight Recorder events of the solvers, to line hot spots up with the CPU and
+// allocation samples of a recording. They are disabled unless a recording enables them
+// (e.g. with the settings in mapf.jfc); a disabled event is never filled or committed,
+// and the JIT removes its allocation, so the solvers pay nothing for them otherwise.
+// Usage at every site: new event, begin(), the work, end(), then fill and commit the
+// event only if shouldCommit().
+final class SearchEvents {
+    private SearchEvents() {}
+
+    @Name("phd.mauj.HighLevelExpansion")
+    @Label("High-Level Expansion")
+    @Description("Branching of one high-level node on a conflict")
+    @Category({"MAPF", "High Level"})
+    @Enabled(false)
+    @StackTrace(false)
+    static class HighLevelExpansion extends Event {
+        @Label("Conflict Type")
+        String conflictType;
+
+        @Label("Conflict Time")
+        int conflictTime;
+
+        @Label("First Agent")
+        int agent1;
+
+        @Label("Second Agent")
+        int agent2;
+
+        // Strategies of the children kept, e.g. "TEMPORAL,SPATIAL"; "MERGE" for a merge
+        @Label("Chosen Strategy")
+        String strategy;
+
+        @Label("Children Produced")
+        int childrenProduced;
+
+        @Label("Children Kept")
+        int children;
+    }
+
+    @Name("phd.mauj.LowLevelSearch")
+    @Label("Low-Level Search")
+    @Description("One path search of a low-level pathfinder, single-agent or joint")
+    @Category({"MAPF", "Low Level"})
+    @Enabled(false)
+    @StackTrace(false)
+    static class LowLevelSearch extends Event {
+        @Label("Pathfinder")
+        String algorithm;
+
+        // The first member for a joint search of several agents
+        @Label("Agent")
+        int agent;
+
+        // Agents planned jointly; 1 for single-agent searches
+        @Label("Group Size")
+        int groupSize;
+
+        // Global timestep the search starts at (the event's own startTime is wall time)
+        @Label("Start Timestep")
+        int startTimestep;
+
+        @Label("Expansions")
+        int expansions;
+
+        // Size of the constraint set passed in, constraints of other agents included; 0 for
+        // searches against an occupancy table
+        @Label("Constraints")
+        int constraints;
+
+        @Label("Path Found")
+        boolean found;
+    }
+
+    @Name("phd.mauj.ConflictDetection")
+    @Label("Conflict Detection")
+    @Description("One findConflicts call over the paths of a node")
+    @Category({"MAPF", "High Level"})
+    @Enabled(false)
+    @StackTrace(false)
+    static class ConflictDetection extends Event {
+        @Label("Paths")
+        int paths;
+
+        @Label("Conflicts")
+        int conflicts;
+    }
+}
@@ -0,0 +1,178 @@
+package phd.mauj;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+// ============================================================================
+// SEARCH STATISTICS (counters and timings of one solve)
+// ============================================================================
+
+// Where a solve spent its effort: high-level nodes, low-level searches per algorithm,
+// time in conflict detection and child scoring, children per strategy, peak OPEN size
+// and the bytes the solving thread allocated. The budget creates a new instance at the
+// start of every solve (see SearchBudget.getStats) and the solver attaches it to its
+// Result, so the statistics of a result are never overwritten by a later solve.
+// Counters are updated concurrently by the strategy threads; times are summed over those
+// threads, so together they can exceed the wall time of the solve.
+class SearchStats {
+    // Child-generation strategies, by the prefix of CBSNode.strategyType
+    public enum Strategy {
+        TEMPORAL, SPATIAL, PRIORITY;
+
+        // Strategy a node was generated by; null for roots, merges and regenerated nodes
+        static Strategy of(String strategyType) {
+            if (strategyType == null) return null;
+            for (Strategy strategy : values()) {
+                if (strategyType.startsWith(strategy.name())) return strategy;
+            }
+            return null;
+        }
+    }
+
+    // Searches of one low-level algorithm
+    public static class LowLevel {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong expansions = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        public long getCalls() { return calls.get(); }
+
+        public long getExpansions() { return expansions.get(); }
+
+        public long getTimeMs() { return nanos.get() / 1_000_000; }
+
+        @Override
+        public String toString() {
+            return getCalls() + "/" + getExpansions() + "/" + getTimeMs();
+        }
+    }
+
+    private final AtomicLong nodesGenerated = new AtomicLong();
+    private final AtomicLong nodesExpanded = new AtomicLong();
+    private final AtomicInteger peakOpenSize = new AtomicInteger();
+    private final Map<String, LowLevel> lowLevel = new ConcurrentHashMap<>();
+    private final AtomicLong conflictNanos = new AtomicLong();
+    private final AtomicLong scoringNanos = new AtomicLong();
+    private final AtomicLongArray produced = new AtomicLongArray(Strategy.values().length);
+    private final AtomicLongArray kept = new AtomicLongArray(Strategy.values().length);
+
+    // Thread that started the solve and what it had allocated by then; the allocation of
+    // the strategy threads is not included, unless the solver runs them on its own thread
+    private final long threadId;
+    private final long allocatedAtStart;
+    private volatile long allocatedBytes = -1;
+
+    public SearchStats() {
+        this.threadId = Thread.currentThread().getId();
+        this.allocatedAtStart = allocatedBytes(threadId);
+    }
+
+    // ========================================================================
+    // RECORDING
+    // ========================================================================
+
+    public void addNodesGenerated(int nodes) {
+        nodesGenerated.addAndGet(nodes);
+    }
+
+    public void nodeExpanded() {
+        nodesExpanded.incrementAndGet();
+    }
+
+    public void observeOpenSize(int size) {
+        peakOpenSize.accumulateAndGet(size, Math::max);
+    }
+
+    // One low-level search; 'algorithm' is the pathfinder's class name
+    public void recordLowLevel(String algorithm, long expansions, long nanos) {
+        LowLevel searches = lowLevel.computeIfAbsent(algorithm, k -> new LowLevel());
+        searches.calls.incrementAndGet();
+        searches.expansions.addAndGet(expansions);
+        searches.nanos.addAndGet(nanos);
+    }
+
+    public void addConflictNanos(long nanos) {
+        conflictNanos.addAndGet(nanos);
+    }
+
+    public void addScoringNanos(long nanos) {
+        scoringNanos.addAndGet(nanos);
+    }
+
+    // Children of one expansion: all that the strategies produced and those kept after pruning
+    public void recordChildren(Iterable<CBSNode> producedChildren, Iterable<CBSNode> keptChildren) {
+        for (CBSNode child : producedChildren) count(produced, child);
+        for (CBSNode child : keptChildren) count(kept, child);
+    }
+
+    private static void count(AtomicLongArray counts, CBSNode child) {
+        Strategy strategy = child == null ? null : Strategy.of(child.strategyType);
+        if (strategy != null) counts.incrementAndGet(strategy.ordinal());
+    }
+
+    // Ends the solve; called by the thread that started it
+    public void stop() {
+        if (allocatedAtStart < 0 || Thread.currentThread().getId() != threadId) return;
+        long now = allocatedBytes(threadId);
+        if (now >= 0) allocatedBytes = now - allocatedAtStart;
+    }
+
+    // Bytes allocated so far by a thread, or -1 if the JVM does not measure it
+    private static long allocatedBytes(long threadId) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) return -1;
+        return threads.getThreadAllocatedBytes(threadId);
+    }
+
+    // ========================================================================
+    // RESULTS
+    // ========================================================================
+
+    public long getNodesGenerated() { return nodesGenerated.get(); }
+
+    public long getNodesExpanded() { return nodesExpanded.get(); }
+
+    public int getPeakOpenSize() { return peakOpenSize.get(); }
+
+    // Low-level searches by algorithm, in name order
+    public Map<String, LowLevel> getLowLevel() { return new TreeMap<>(lowLevel); }
+
+    public long getLowLevelCalls() {
+        return lowLevel.values().stream().mapToLong(LowLevel::getCalls).sum();
+    }
+
+    public long getLowLevelExpansions() {
+        return lowLevel.values().stream().mapToLong(LowLevel::getExpansions).sum();
+    }
+
+    public long getLowLevelMs() {
+        return lowLevel.values().stream().mapToLong(l -> l.nanos.get()).sum() / 1_000_000;
+    }
+
+    public long getConflictMs() { return conflictNanos.get() / 1_000_000; }
+
+    public long getScoringMs() { return scoringNanos.get() / 1_000_000; }
+
+    public long getProduced(Strategy strategy) { return produced.get(strategy.ordinal()); }
+
+    public long getKept(Strategy strategy) { return kept.get(strategy.ordinal()); }
+
+    // Bytes allocated by the solving thread during the solve; -1 if unknown
+    public long getAllocatedBytes() { return allocatedBytes; }
+
+    // Low-level searches as "algorithm:calls/expansions/ms" entries separated by ';'
+    public String lowLevelSummary() {
+        return getLowLevel().entrySet().stream()
+            .map(e -> e.getKey() + ":" + e.getValue())
+            .collect(Collectors.joining(";"));
+    }
+}
@@ -0,0 +1,85 @@
+package phd.mauj;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// ============================================================================
+// SHARED SOLVER EXECUTOR
+// ============================================================================
+
+class SolverExecutors {
+    // ACBS runs its three strategies concurrently for every expansion
+    private static final int STRATEGIES_PER_EXPANSION = 3;
+    
+    // One process-wide pool for the ACBS strategy tasks. Its worker threads are
+    // daemons, so it never has to be shut down by a solver.
+    private static final ExecutorService SHARED = newPool(
+        Math.max(STRATEGIES_PER_EXPANSION, Runtime.getRuntime().availableProcessors()));
+
+    // Top-level subproblem solves (e.g. the agent groups of independence detection). Kept
+    // apart from the strategy pool: a group task blocks until its solver returns, and must
+    // not hold the threads that solver's strategy tasks are waiting for.
+    private static final ExecutorService GROUPS = newPool(Runtime.getRuntime().availableProcessors());
+
+    // See callerRuns()
+    private static final ExecutorService CALLER_RUNS = new AbstractExecutorService() {
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    };
+
+    private SolverExecutors() {
+    }
+
+    public static ExecutorService shared() {
+        return SHARED;
+    }
+
+    public static ExecutorService groups() {
+        return GROUPS;
+    }
+
+    // Runs every task on the thread that submits it: a solver given this executor does all
+    // its work on the calling thread, so that thread's CPU time is the CPU time of the solve
+    // (see BenchmarkRunner). Nothing to shut down.
+    public static ExecutorService callerRuns() {
+        return CALLER_RUNS;
+    }
+
+    // Dedicated pool for callers that want to isolate solvers from each other.
+    // The caller owns it and is responsible for shutting it down.
+    public static ExecutorService newPool(int parallelism) {
+        return new ForkJoinPool(Math.max(1, parallelism),
+                                ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                                null, true);
+    }
+}
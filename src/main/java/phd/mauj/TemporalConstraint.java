@@ -0,0 +1,27 @@
+package phd.mauj;
+
+import java.util.Objects;
+
+class TemporalConstraint extends Constraint {
+    public final Position position;
+    public final int delaySteps;
+    
+    public TemporalConstraint(int agent, int time, Position position, int delaySteps) {
+        super(agent, time);
+        this.position = position;
+        this.delaySteps = delaySteps;
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof TemporalConstraint)) return false;
+        TemporalConstraint c = (TemporalConstraint) obj;
+        return agent == c.agent && time == c.time && delaySteps == c.delaySteps
+            && position.equals(c.position);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash('T', agent, time, position, delaySteps);
+    }
+}
\ No newline at end of file
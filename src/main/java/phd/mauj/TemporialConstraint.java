@@ -1,12 +0,0 @@
-package phd.mauj;
-
-class TemporalConstraint extends Constraint {
-    public final Position position;
-    public final int delaySteps;
-    
-    public TemporalConstraint(int agent, int time, Position position, int delaySteps) {
-        super(agent, time);
-        this.position = position;
-        this.delaySteps = delaySteps;
-    }
-}
\ No newline at end of file
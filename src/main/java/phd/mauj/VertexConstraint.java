@@ -1,5 +1,7 @@
 package phd.mauj;
 
+import java.util.Objects;
+
 class VertexConstraint extends Constraint {
     public final Position position;
     
@@ -7,4 +9,16 @@ class VertexConstraint extends Constraint {
         super(agent, time);
         this.position = position;
     }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof VertexConstraint)) return false;
+        VertexConstraint c = (VertexConstraint) obj;
+        return agent == c.agent && time == c.time && position.equals(c.position);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash('V', agent, time, position);
+    }
 }
\ No newline at end of file
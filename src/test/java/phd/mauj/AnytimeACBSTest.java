@@ -0,0 +1,52 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+// The bound AnytimeACBS reports must never exceed the cost of a plan it found, and a plan
+// is only reported optimal once that bound reaches its cost.
+public class AnytimeACBSTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+
+    public void testBoundNeverExceedsTheImprovedCosts() {
+        GridMap map = new GridMap(3, 3);
+        map.setObstacle(1, 1, true);
+        List<Agent> agents = Arrays.asList(
+            new Agent(0, new Position(0, 0), new Position(2, 2)),
+            new Agent(1, new Position(2, 2), new Position(0, 0)),
+            new Agent(2, new Position(2, 0), new Position(0, 2)));
+
+        AnytimeACBS solver = new AnytimeACBS(map, agents, TIMEOUT_MS, 2.0, 0.5);
+        List<int[]> improvements = new ArrayList<>();
+        solver.setSolutionListener((result, weight, lowerBound) ->
+            improvements.add(new int[] {result.cost, lowerBound}));
+        ACBS.Result result = solver.solve(agents);
+
+        assertTrue(result.status, result.success);
+        assertFalse(improvements.isEmpty());
+        for (int[] improvement : improvements) {
+            assertTrue(improvement[1] + " > " + improvement[0], improvement[1] <= improvement[0]);
+        }
+        assertTrue(solver.getLowerBound() <= result.cost);
+        assertEquals(solver.getLowerBound() >= result.cost ? "Optimal-Anytime" : "Bounded-Anytime", result.status);
+    }
+
+    // Independent agents: the root is the optimal plan and its bound proves it
+    public void testIndependentAgentsAreProvenOptimal() {
+        GridMap map = new GridMap(4, 4);
+        List<Agent> agents = Arrays.asList(
+            new Agent(0, new Position(0, 0), new Position(3, 0)),
+            new Agent(1, new Position(0, 3), new Position(3, 3)));
+
+        AnytimeACBS solver = new AnytimeACBS(map, agents, TIMEOUT_MS, 2.0, 0.5);
+        ACBS.Result result = solver.solve(agents);
+
+        assertTrue(result.status, result.success);
+        assertEquals(6, result.cost);
+        assertEquals(6, solver.getLowerBound());
+        assertEquals("Optimal-Anytime", result.status);
+    }
+}
@@ -0,0 +1,97 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+// Every instance of a batch must be solved exactly once under the id of its place in the
+// stream, by one of the workers' solvers, without reading the stream far ahead; a solver
+// exception must become the result of its instance.
+public class BatchSolverTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+    private static final int WORKERS = 3;
+    private static final int INSTANCES = 20;
+
+    private final GridMap map = new GridMap(8, 8);
+
+    public void testSolveAllSolvesEveryInstanceOnce() throws InterruptedException {
+        List<List<Agent>> instances = new ArrayList<>();
+        Random random = new Random(0);
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(MovingAIMapLoader.generateRandomInstances(map, 4, random));
+        }
+        AtomicInteger solvers = new AtomicInteger();
+        AtomicInteger read = new AtomicInteger();
+        int[] maxAhead = new int[1];
+        List<BatchSolver.BatchResult> results = new ArrayList<>();
+        Iterator<List<Agent>> stream = new Iterator<List<Agent>>() {
+            @Override
+            public boolean hasNext() { return read.get() < INSTANCES; }
+
+            @Override
+            public List<Agent> next() {
+                maxAhead[0] = Math.max(maxAhead[0], read.get() - results.size());
+                return instances.get(read.getAndIncrement());
+            }
+        };
+
+        int solved;
+        try (BatchSolver batch = new BatchSolver(map, WORKERS, m -> {
+            solvers.incrementAndGet();
+            return new CBS(m, new ArrayList<>(), TIMEOUT_MS);
+        })) {
+            solved = batch.solveAll(stream, results::add);
+        }
+
+        assertEquals(INSTANCES, solved);
+        assertEquals(INSTANCES, results.size());
+        assertEquals(WORKERS, solvers.get());
+        // Two instances queued per worker
+        assertTrue("read " + maxAhead[0] + " ahead", maxAhead[0] <= 2 * WORKERS);
+        boolean[] seen = new boolean[INSTANCES];
+        for (BatchSolver.BatchResult r : results) {
+            assertFalse("id " + r.id + " twice", seen[r.id]);
+            seen[r.id] = true;
+            assertSame(instances.get(r.id), r.agents);
+            assertTrue(r.result.status, r.result.success);
+            assertEquals(r.agents.size(), r.result.solution.size());
+        }
+    }
+
+    public void testSolverExceptionBecomesTheResult() throws Exception {
+        try (BatchSolver batch = new BatchSolver(map, 1, m -> new CBS(m, new ArrayList<>(), TIMEOUT_MS) {
+            @Override
+            public Result solve(List<Agent> agents) {
+                throw new IllegalStateException("broken");
+            }
+        })) {
+            BatchSolver.BatchResult first = batch.submit(7, Collections.emptyList()).get();
+            assertEquals(7, first.id);
+            assertFalse(first.result.success);
+            assertEquals("Exception: broken", first.result.status);
+            // The solver went back to the pool, so the next instance is not stuck
+            assertEquals(8, batch.submit(8, Collections.emptyList()).get().id);
+        }
+    }
+
+    public void testCloseFinishesQueuedInstancesAndRejectsNewOnes() {
+        List<Agent> agents = MovingAIMapLoader.generateRandomInstances(map, 4, new Random(1));
+        BatchSolver batch = new BatchSolver(map, 1, m -> new CBS(m, new ArrayList<>(), TIMEOUT_MS));
+        List<Future<BatchSolver.BatchResult>> queued = new ArrayList<>();
+        for (int i = 0; i < 3; i++) queued.add(batch.submit(i, agents));
+        batch.close();
+        for (Future<BatchSolver.BatchResult> future : queued) assertTrue(future.isDone());
+        try {
+            batch.submit(3, agents);
+            fail("instance accepted after close");
+        } catch (RejectedExecutionException expected) {
+        }
+    }
+}
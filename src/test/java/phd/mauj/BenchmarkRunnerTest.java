@@ -0,0 +1,117 @@
+package phd.mauj;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+// A resumed run must keep exactly the complete rows of the results file, run only the
+// missing cells, and never try a skipped cell again.
+public class BenchmarkRunnerTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+    private static final int INSTANCES = 3;
+
+    private File csv;
+
+    @Override
+    protected void setUp() throws IOException {
+        csv = File.createTempFile("bench", ".csv");
+        csv.delete();
+    }
+
+    @Override
+    protected void tearDown() {
+        csv.delete();
+        new File(csv.getPath() + ".bak").delete();
+    }
+
+    public void testResumeRunsOnlyTheMissingCells() throws Exception {
+        assertEquals(INSTANCES, runner(2).run(csv, true));
+        List<String> lines = lines();
+        assertEquals(BenchmarkRunner.HEADER, lines.get(0));
+        assertEquals(1 + INSTANCES, lines.size());
+        for (String row : lines.subList(1, lines.size())) {
+            assertTrue(row, row.startsWith("CBS,open,2,") && row.split(",")[4].equals("true"));
+        }
+
+        assertEquals(0, runner(2).run(csv, true));
+        assertEquals(lines, lines());
+        // Without resume the file starts over
+        assertEquals(INSTANCES, runner(2).run(csv, false));
+        assertEquals(1 + INSTANCES, lines().size());
+    }
+
+    // A crash while a row was written leaves it without its line end, or cut in half
+    public void testRowsCutShortAreRunAgain() throws Exception {
+        runner(2).run(csv, true);
+        String full = Files.readString(csv.toPath(), StandardCharsets.UTF_8);
+        String withoutLineEnd = full.substring(0, full.length() - 1);
+        Files.writeString(csv.toPath(), withoutLineEnd, StandardCharsets.UTF_8);
+
+        assertEquals(1, runner(2).run(csv, true));
+        assertEquals(1 + INSTANCES, lines().size());
+        assertEquals(INSTANCES, cellKeys().size());
+
+        Files.writeString(csv.toPath(), full.substring(0, full.lastIndexOf(',')), StandardCharsets.UTF_8);
+        assertEquals(1, runner(2).run(csv, true));
+        assertEquals(1 + INSTANCES, lines().size());
+        assertEquals(INSTANCES, cellKeys().size());
+        assertTrue(Files.readString(csv.toPath(), StandardCharsets.UTF_8).endsWith("\n"));
+    }
+
+    // Eight free cells hold the starts and goals of four agents at most
+    public void testSkippedCellsAreKeptAndNotRetried() throws Exception {
+        AtomicInteger solvers = new AtomicInteger();
+        BenchmarkRunner runner = runner(5, solvers);
+        assertEquals(INSTANCES, runner.run(csv, true));
+        for (String row : lines().subList(1, 1 + INSTANCES)) {
+            assertTrue(row, row.endsWith("," + BenchmarkRunner.SKIPPED));
+        }
+        assertEquals(0, solvers.get());
+        assertEquals(0, runner(5, solvers).run(csv, true));
+        assertEquals(0, solvers.get());
+    }
+
+    public void testFileWithAnotherHeaderIsMovedAside() throws Exception {
+        Files.writeString(csv.toPath(), "Algorithm,Map\nCBS,corridor\n", StandardCharsets.UTF_8);
+        assertEquals(INSTANCES, runner(2).run(csv, true));
+        assertEquals("Algorithm,Map\nCBS,corridor\n",
+                     Files.readString(new File(csv.getPath() + ".bak").toPath(), StandardCharsets.UTF_8));
+        assertEquals(BenchmarkRunner.HEADER, lines().get(0));
+        assertEquals(1 + INSTANCES, lines().size());
+    }
+
+    private static BenchmarkRunner runner(int agents) {
+        return runner(agents, new AtomicInteger());
+    }
+
+    private static BenchmarkRunner runner(int agents, AtomicInteger solvers) {
+        BenchmarkRunner runner = new BenchmarkRunner(new int[] {agents}, INSTANCES, TIMEOUT_MS);
+        runner.addMap("open", new GridMap(4, 2));
+        runner.addAlgorithm("CBS", (map, timeoutMs) -> {
+            solvers.incrementAndGet();
+            return new CBS(map, new ArrayList<>(), timeoutMs, SolverExecutors.callerRuns());
+        });
+        runner.setWorkers(2);
+        return runner;
+    }
+
+    private List<String> lines() throws IOException {
+        return Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+    }
+
+    private List<String> cellKeys() throws IOException {
+        List<String> keys = new ArrayList<>();
+        for (String row : lines().subList(1, lines().size())) {
+            String[] parts = row.split(",", -1);
+            String key = parts[0] + "/" + parts[1] + "/" + parts[2] + "/" + parts[3];
+            if (!keys.contains(key)) keys.add(key);
+        }
+        return keys;
+    }
+}
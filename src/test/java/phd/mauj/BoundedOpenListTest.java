@@ -0,0 +1,126 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+// Eviction past the caps, regeneration of the evicted nodes once OPEN runs dry, and the
+// switch to depth-first order when even the evicted nodes outnumber the cap.
+public class BoundedOpenListTest extends TestCase {
+    // Nodes by their constraint set, which is all an evicted node keeps
+    private final Map<Set<Constraint>, CBSNode> nodes = new HashMap<>();
+    private final List<Set<Constraint>> regenerated = new ArrayList<>();
+    private final BoundedOpenList.Regenerator regenerator = (constraints, subgoalRound) -> {
+        regenerated.add(constraints);
+        return nodes.get(constraints);
+    };
+
+    public void testUnboundedListNeverEvicts() {
+        BoundedOpenList list = new BoundedOpenList(focal(), 0, 0, regenerator);
+        for (int f = 0; f < 100; f++) list.add(node(f, 0));
+        assertEquals(100, list.size());
+        assertEquals(0, list.getEvictions());
+        assertFalse(list.isDepthFirst());
+    }
+
+    public void testEvictsTheWorstAndRegeneratesThemLast() {
+        BoundedOpenList list = new BoundedOpenList(focal(), 3, 0, regenerator);
+        CBSNode[] added = new CBSNode[5];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = node(10 + i, 0);
+            list.add(added[i]);
+        }
+        assertEquals(2, list.getEvictions());
+        assertEquals(3, list.size());
+        assertFalse(list.isDepthFirst());
+
+        for (CBSNode expected : added) assertSame(expected, list.poll());
+        assertEquals(2, list.getRegenerations());
+        assertEquals(Arrays.asList(added[3].constraints, added[4].constraints), regenerated);
+        assertTrue(list.isEmpty());
+        assertNull(list.poll());
+    }
+
+    public void testByteCapEvicts() {
+        CBSNode first = node(10, 0);
+        BoundedOpenList list = new BoundedOpenList(focal(), 0, 2 * BoundedOpenList.approximateBytes(first), regenerator);
+        list.add(first);
+        list.add(node(11, 0));
+        assertEquals(0, list.getEvictions());
+        list.add(node(12, 0));
+        assertEquals(1, list.getEvictions());
+        assertEquals(2, list.size());
+    }
+
+    public void testNodesThatCannotBeRegeneratedAreSkipped() {
+        BoundedOpenList list = new BoundedOpenList(focal(), 1, 0, regenerator);
+        CBSNode best = node(10, 0);
+        CBSNode lost = node(11, 0);
+        CBSNode last = node(12, 0);
+        list.add(best);
+        list.add(lost);
+        list.add(last);
+        nodes.remove(lost.constraints);
+
+        assertSame(best, list.poll());
+        assertSame(last, list.poll());
+        assertEquals(1, list.getRegenerations());
+        assertEquals(2, regenerated.size());
+        assertTrue(list.isEmpty());
+    }
+
+    public void testTurnsDepthFirstAndExpandsTheBestChildFirst() {
+        BoundedOpenList list = new BoundedOpenList(focal(), 2, 0, regenerator);
+        for (int f = 10; f < 14; f++) list.add(node(f, 0));
+        assertEquals(2, list.getEvictions());
+        assertFalse(list.isDepthFirst());
+        list.add(node(14, 0));
+        assertEquals(3, list.getEvictions());
+        assertTrue(list.isDepthFirst());
+
+        CBSNode worst = node(20, 3);
+        CBSNode tied = node(18, 5);
+        CBSNode best = node(18, 1);
+        list.addChildren(Arrays.asList(worst, null, tied, best));
+        assertEquals(5, list.size());
+        assertSame(best, list.poll());
+        assertSame(tied, list.poll());
+        assertSame(worst, list.poll());
+
+        // The stack is empty again: back to what OPEN holds, then to the evicted nodes
+        assertEquals(10, list.poll().fCost);
+        assertEquals(11, list.poll().fCost);
+        assertEquals(12, list.poll().fCost);
+        assertEquals(1, list.getRegenerations());
+    }
+
+    public void testChildrenGoToOpenUntilDepthFirst() {
+        BoundedOpenList list = new BoundedOpenList(focal(), 0, 0, regenerator);
+        CBSNode worse = node(12, 0);
+        CBSNode better = node(11, 4);
+        list.addChildren(Arrays.asList(worse, null, better));
+        assertEquals(2, list.size());
+        assertSame(better, list.poll());
+        assertSame(worse, list.poll());
+    }
+
+    private static FocalList focal() {
+        return new FocalList(1.0, Comparator.comparingInt(n -> n.conflictCount));
+    }
+
+    // Node with the given f and conflicts, and a constraint set of its own
+    private CBSNode node(int f, int conflicts) {
+        List<Conflict> list = new ArrayList<>();
+        for (int i = 0; i < conflicts; i++) list.add(new VertexConflict(0, 1, i, new Position(i, 0)));
+        CBSNode node = new CBSNode(null, new Path[0], Set.of(new VertexConstraint(0, nodes.size(), new Position(f, 0))),
+                                   f, 0, 1.0, list);
+        nodes.put(node.constraints, node);
+        return node;
+    }
+}
@@ -0,0 +1,71 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+// Nodes with the same constraints must get equal duplicate keys whatever order the
+// constraints were added in, and a constraint set may only be claimed once per solve.
+public class ConstraintKeyTest extends TestCase {
+    private final List<Agent> agents = Arrays.asList(
+        new Agent(0, new Position(0, 0), new Position(2, 0)),
+        new Agent(1, new Position(0, 1), new Position(2, 1)));
+    private final Constraint a = new VertexConstraint(0, 1, new Position(1, 0));
+    private final Constraint b = new EdgeConstraint(1, 2, new Position(1, 1), new Position(2, 1));
+    private final Constraint c = new TemporalConstraint(0, 2, new Position(2, 0), 2);
+
+    public void testKeysIgnoreTheOrderOfTheConstraints() {
+        CBSNode ab = node(new ArrayList<>(List.of(a, b, c)));
+        CBSNode ba = node(new ArrayList<>(List.of(c, b, a)));
+        assertEquals(ab.constraintKey(), ba.constraintKey());
+        assertEquals(ab.constraintKey().hashCode(), ba.constraintKey().hashCode());
+        assertFalse(ab.constraintKey().equals(node(List.of(a, b)).constraintKey()));
+    }
+
+    public void testExtendedKeyEqualsTheKeyOfTheChild() {
+        CBSNode parent = node(List.of(a));
+        Set<Constraint> childConstraints = new HashSet<>(List.of(a, b));
+        assertEquals(node(List.of(a, b)).constraintKey(),
+                     CBSNode.ConstraintKey.extend(parent, b, childConstraints));
+    }
+
+    public void testSubgoalRoundsAreKeptApart() {
+        CBSNode first = node(List.of(a, b));
+        CBSNode later = node(List.of(a, b));
+        later.subgoalRound = 1;
+        assertFalse(first.constraintKey().equals(later.constraintKey()));
+    }
+
+    public void testConstraintSetIsClaimedOnce() {
+        ACBS acbs = new ACBS(new GridMap(3, 2), agents, 1000, 1.0);
+        CBSNode root = node(List.of());
+        acbs.resetDuplicateTable(root);
+
+        CBSNode withA = node(List.of(a));
+        CBSNode withB = node(List.of(b));
+        assertNotNull(acbs.claimChildConstraints(root, a));
+        assertNotNull(acbs.claimChildConstraints(root, b));
+        // {a, b} reached from either side is the same node
+        assertNotNull(acbs.claimChildConstraints(withA, b));
+        assertNull(acbs.claimChildConstraints(withB, a));
+        // Adding a constraint the parent already has gives the parent again
+        assertNull(acbs.claimChildConstraints(withA, a));
+
+        acbs.resetDuplicateTable(root);
+        assertNotNull(acbs.claimChildConstraints(withB, a));
+    }
+
+    private CBSNode node(List<Constraint> constraints) {
+        AgentIndex index = new AgentIndex(agents);
+        Path[] paths = new Path[index.size()];
+        for (int i = 0; i < paths.length; i++) {
+            Agent agent = index.agent(i);
+            paths[i] = new Path(List.of(agent.start, new Position(1, agent.start.y), agent.goal));
+        }
+        return new CBSNode(index, paths, new HashSet<>(constraints), 4, 0, 1.0, List.of());
+    }
+}
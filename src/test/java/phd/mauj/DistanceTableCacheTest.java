@@ -0,0 +1,67 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+// Planners on one map share one bounded set of distance tables, whatever thread they run on.
+public class DistanceTableCacheTest extends TestCase {
+    public void testOneCachePerMap() {
+        GridMap map = new GridMap(4, 4);
+        assertSame(DistanceTableCache.of(map), DistanceTableCache.of(map));
+        assertNotSame(DistanceTableCache.of(map), DistanceTableCache.of(new GridMap(4, 4)));
+    }
+
+    public void testDistancesAroundAWall() {
+        GridMap map = new GridMap(3, 3);
+        map.setObstacle(1, 0, true);
+        map.setObstacle(1, 1, true);
+        CollisionAwareAStar planner = new CollisionAwareAStar(map, 1, 1000);
+        assertEquals(6, planner.distance(new Position(0, 0), new Position(2, 0)));
+
+        GridMap split = new GridMap(3, 1);
+        split.setObstacle(1, 0, true);
+        assertEquals(Integer.MAX_VALUE,
+                     new CollisionAwareAStar(split, 1, 1000).distance(new Position(0, 0), new Position(2, 0)));
+    }
+
+    public void testCapEvictsTheLeastRecentlyUsedTable() {
+        GridMap map = new GridMap(4, 4);
+        DistanceTableCache cache = DistanceTableCache.of(map);
+        // Room for two tables of 16 cells
+        cache.setMaxBytes(2 * 4 * 16);
+        int[] first = cache.table(0);
+        int[] second = cache.table(1);
+        assertSame(first, cache.table(0));
+        cache.table(2);
+        assertSame(first, cache.table(0));
+        assertNotSame(second, cache.table(1));
+    }
+
+    public void testConcurrentLookups() throws Exception {
+        GridMap map = new GridMap(16, 16);
+        DistanceTableCache cache = DistanceTableCache.of(map);
+        cache.setMaxBytes(4 * 4 * 256);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> checks = new ArrayList<>();
+            for (int worker = 0; worker < 4; worker++) {
+                int offset = worker;
+                checks.add(pool.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        int goal = (i * 7 + offset) % 256;
+                        if (cache.table(goal)[goal] != 0) return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> check : checks) assertTrue(check.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
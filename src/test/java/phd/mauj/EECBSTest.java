@@ -0,0 +1,57 @@
+package phd.mauj;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+// EECBS must return collision-free plans within its bound, and must refuse the OPEN
+// settings its two lists cannot honour instead of ignoring them.
+public class EECBSTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+    private static final double BOUND = 1.5;
+
+    public void testSolutionWithinTheBound() {
+        GridMap map = new GridMap(3, 3);
+        map.setObstacle(1, 1, true);
+        List<Agent> agents = Arrays.asList(
+            new Agent(0, new Position(0, 0), new Position(2, 2)),
+            new Agent(1, new Position(2, 2), new Position(0, 0)),
+            new Agent(2, new Position(2, 0), new Position(0, 2)));
+
+        EECBS solver = new EECBS(map, agents, TIMEOUT_MS, BOUND);
+        ACBS.Result result = solver.solve(agents);
+        assertTrue(result.status, result.success);
+
+        Map<Integer, Path> solution = result.solution;
+        int cost = 0;
+        for (Agent agent : agents) {
+            List<Position> positions = solution.get(agent.id).getPositions();
+            assertEquals(agent.start, positions.get(0));
+            assertEquals(agent.goal, positions.get(positions.size() - 1));
+            cost += solution.get(agent.id).getCost();
+        }
+        assertEquals(cost, result.cost);
+        assertTrue(solver.findConflicts(solution).isEmpty());
+        ACBS.Result optimal = new CBS(map, agents, TIMEOUT_MS).solve(agents);
+        assertTrue(optimal.status, optimal.success);
+        assertTrue(result.cost + " > " + BOUND + " * " + optimal.cost, result.cost <= BOUND * optimal.cost);
+    }
+
+    public void testBoundedOrOffHeapOpenIsRejected() {
+        EECBS solver = new EECBS(new GridMap(3, 3), List.of(), TIMEOUT_MS, BOUND);
+        solver.setOpenListBound(0, 0);
+        solver.setOffHeapNodes(false);
+        try {
+            solver.setOpenListBound(100, 0);
+            fail("bounded OPEN accepted");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            solver.setOffHeapNodes(true);
+            fail("off-heap nodes accepted");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+}
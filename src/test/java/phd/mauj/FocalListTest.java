@@ -0,0 +1,122 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+// FOCAL must always hold exactly the nodes of OPEN with cost <= w * f_min, however f_min
+// and w change, and poll must return its best node by the secondary criterion.
+public class FocalListTest extends TestCase {
+    private static final Comparator<CBSNode> FEWEST_CONFLICTS = Comparator.comparingInt(n -> n.conflictCount);
+
+    public void testPollsTheFewestConflictsWithinTheBound() {
+        FocalList list = new FocalList(1.5, FEWEST_CONFLICTS);
+        CBSNode low = node(10, 5);
+        CBSNode inBound = node(14, 1);
+        CBSNode outOfBound = node(16, 0);
+        list.add(low);
+        list.add(inBound);
+        list.add(outOfBound);
+
+        assertEquals(3, list.size());
+        assertEquals(2, list.focalSize());
+        assertEquals(10, list.getFMin());
+        assertSame(low, list.peekOpen());
+        assertSame(inBound, list.poll());
+        assertSame(low, list.poll());
+        // f_min rose to 16: the node left out so far enters FOCAL
+        assertEquals(16, list.getFMin());
+        assertEquals(1, list.focalSize());
+        assertSame(outOfBound, list.poll());
+        assertTrue(list.isEmpty());
+        assertNull(list.poll());
+        assertEquals(Integer.MAX_VALUE, list.getFMin());
+    }
+
+    public void testLowerFMinShrinksFocal() {
+        FocalList list = new FocalList(1.5, FEWEST_CONFLICTS);
+        list.add(node(20, 0));
+        list.add(node(25, 0));
+        assertEquals(2, list.focalSize());
+
+        CBSNode better = node(10, 9);
+        list.add(better);
+        assertEquals(1, list.focalSize());
+        assertSame(better, list.peekFocal());
+        assertSame(better, list.poll());
+        assertEquals(2, list.focalSize());
+    }
+
+    public void testSetWeightMovesOnlyTheNodesBetweenTheBounds() {
+        FocalList list = new FocalList(1.0, FEWEST_CONFLICTS);
+        for (int f : new int[] {10, 12, 14, 20}) list.add(node(f, 0));
+        assertEquals(1, list.focalSize());
+
+        list.setWeight(1.4);
+        assertEquals(3, list.focalSize());
+        list.setWeight(1.2);
+        assertEquals(2, list.focalSize());
+        assertEquals(1.2, list.getWeight());
+        assertEquals(4, list.size());
+    }
+
+    public void testPruneFromAndPollWorst() {
+        FocalList list = new FocalList(2.0, FEWEST_CONFLICTS);
+        CBSNode best = node(10, 0);
+        CBSNode second = node(12, 0);
+        list.add(best);
+        list.add(second);
+        list.add(node(14, 0));
+        list.add(node(20, 0));
+
+        list.pruneFrom(14);
+        assertEquals(2, list.size());
+        assertEquals(2, list.focalSize());
+        assertSame(second, list.pollWorst());
+        assertEquals(1, list.size());
+        assertEquals(1, list.focalSize());
+        assertSame(best, list.poll());
+    }
+
+    public void testPollWorstTakesTheOldestOfEqualCosts() {
+        FocalList list = new FocalList(1.0, FEWEST_CONFLICTS);
+        CBSNode first = node(20, 0);
+        CBSNode second = node(20, 0);
+        CBSNode best = node(10, 0);
+        list.add(first);
+        list.add(second);
+        list.add(best);
+
+        assertSame(first, list.pollWorst());
+        list.remove(second);
+        list.remove(second);
+        assertEquals(1, list.size());
+        assertSame(best, list.poll());
+    }
+
+    // EECBS orders OPEN by f-hat: the bound follows the cost function, not f
+    public void testBoundFollowsTheCostFunction() {
+        FocalList list = new FocalList(1.5, n -> n.fHatCost, FEWEST_CONFLICTS);
+        CBSNode a = node(10, 3);
+        a.fHatCost = 20;
+        CBSNode b = node(12, 0);
+        b.fHatCost = 40;
+        list.add(a);
+        list.add(b);
+
+        assertEquals(20, list.getFMin());
+        assertEquals(1, list.focalSize());
+        assertSame(a, list.poll());
+        assertSame(b, list.poll());
+    }
+
+    // Node with the given f and number of conflicts
+    private static CBSNode node(int f, int conflicts) {
+        List<Conflict> list = new ArrayList<>();
+        for (int i = 0; i < conflicts; i++) list.add(new VertexConflict(0, 1, i, new Position(i, 0)));
+        return new CBSNode(null, new Path[0], new HashSet<>(), f, 0, 1.0, list);
+    }
+}
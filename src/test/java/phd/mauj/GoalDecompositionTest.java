@@ -0,0 +1,64 @@
+package phd.mauj;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// Waypoints must not lengthen an agent's trip: walking the chain leg by leg along shortest
+// paths has to cost exactly the start-to-goal distance.
+public class GoalDecompositionTest extends TestCase {
+    public void testChainsOnTheWarehouseAreShortestPaths() throws IOException {
+        GridMap map = MovingAIMapLoader.loadMap("maps/warehouse-10-20-10-2-1.map");
+        assertChainsAreShortest(map, MovingAIMapLoader.generateRandomInstances(map, 200, new Random(7)));
+    }
+
+    public void testChainsOnAnOpenGridAreShortestPaths() {
+        GridMap map = new GridMap(32, 32);
+        assertChainsAreShortest(map, MovingAIMapLoader.generateRandomInstances(map, 200, new Random(11)));
+    }
+
+    public void testShortTripsAreNotSplit() {
+        GridMap map = new GridMap(8, 1);
+        Agent agent = new Agent(0, new Position(0, 0), new Position(5, 0));
+        GoalDecomposition decomposition = new GoalDecomposition(Arrays.asList(agent), map, null);
+        assertEquals(List.of(agent.goal), decomposition.getDecompositionChain(0));
+    }
+
+    private static void assertChainsAreShortest(GridMap map, List<Agent> agents) {
+        GoalDecomposition decomposition = new GoalDecomposition(agents, map, null);
+        for (Agent agent : agents) {
+            List<Position> chain = decomposition.getDecompositionChain(agent.id);
+            assertEquals(agent.goal, chain.get(chain.size() - 1));
+            int length = 0;
+            Position last = agent.start;
+            for (Position waypoint : chain) {
+                length += distance(map, last, waypoint);
+                last = waypoint;
+            }
+            assertEquals("agent " + agent.id + " chain " + chain, distance(map, agent.start, agent.goal), length);
+        }
+    }
+
+    private static int distance(GridMap map, Position from, Position to) {
+        Map<Position, Integer> dist = new HashMap<>();
+        Queue<Position> queue = new ArrayDeque<>();
+        dist.put(from, 0);
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            Position p = queue.poll();
+            if (p.equals(to)) return dist.get(p);
+            for (Position next : map.getNeighbors(p)) {
+                if (dist.putIfAbsent(next, dist.get(p) + 1) == null) queue.add(next);
+            }
+        }
+        fail(from + " cannot reach " + to);
+        return -1;
+    }
+}
@@ -0,0 +1,112 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+// CG/DG/WDG values of hand-built agent pairs: a pair forced through the same cell costs
+// one more, a pair with room to avoid each other costs nothing, and a conflict outside the
+// agents' optimal paths is never cardinal.
+public class HighLevelHeuristicTest extends TestCase {
+    // Plus-shaped map: the centre (1,1) is the only way across
+    private final GridMap plus = new GridMap(3, 3);
+    private final GridMap open = new GridMap(3, 3);
+
+    @Override
+    protected void setUp() {
+        plus.setObstacle(0, 0, true);
+        plus.setObstacle(2, 0, true);
+        plus.setObstacle(0, 2, true);
+        plus.setObstacle(2, 2, true);
+    }
+
+    public void testCrossingThroughTheOnlyCellIsCardinal() {
+        AgentIndex index = index(new Agent(0, new Position(0, 1), new Position(2, 1)),
+                                 new Agent(1, new Position(1, 0), new Position(1, 2)));
+        Path[] paths = {path(0, 1, 1, 1, 2, 1), path(1, 0, 1, 1, 1, 2)};
+        List<Conflict> conflicts = List.of(new VertexConflict(0, 1, 1, new Position(1, 1)));
+
+        for (HighLevelHeuristic.Type type : HighLevelHeuristic.Type.values()) {
+            int expected = type == HighLevelHeuristic.Type.ZERO ? 0 : 1;
+            assertEquals(type.name(), expected,
+                         new HighLevelHeuristic(plus, type).compute(paths, index, Set.of(), conflicts));
+        }
+    }
+
+    public void testCrossingWithRoomToAvoidIsNotCardinal() {
+        AgentIndex index = index(new Agent(0, new Position(0, 0), new Position(2, 2)),
+                                 new Agent(1, new Position(2, 0), new Position(0, 2)));
+        Path[] paths = {path(0, 0, 1, 0, 1, 1, 1, 2, 2, 2), path(2, 0, 2, 1, 1, 1, 1, 2, 0, 2)};
+        List<Conflict> conflicts = List.of(new VertexConflict(0, 1, 2, new Position(1, 1)));
+
+        for (HighLevelHeuristic.Type type : HighLevelHeuristic.Type.values()) {
+            assertEquals(type.name(), 0, new HighLevelHeuristic(open, type).compute(paths, index, Set.of(), conflicts));
+        }
+    }
+
+    // The extra cost a detour already paid is not counted a second time
+    public void testWeightIsMeasuredAgainstTheCurrentPaths() {
+        AgentIndex index = index(new Agent(0, new Position(0, 1), new Position(2, 1)),
+                                 new Agent(1, new Position(1, 0), new Position(1, 2)));
+        Path[] paths = {path(0, 1, 0, 1, 1, 1, 2, 1), path(1, 0, 1, 1, 1, 1, 1, 2)};
+        List<Conflict> conflicts = List.of(new VertexConflict(0, 1, 2, new Position(1, 1)));
+
+        assertEquals(0, new HighLevelHeuristic(plus, HighLevelHeuristic.Type.WDG)
+                            .compute(paths, index, Set.of(), conflicts));
+    }
+
+    public void testCardinalityLooksAtTheConflictingCell() {
+        // Optimal paths (0,0) -> (1,0) and (0,2) -> (1,2): both MDDs are one cell wide
+        MDD mddA = mdd(0, new Position(0, 0), new Position(1, 0), 1);
+        MDD mddB = mdd(1, new Position(0, 2), new Position(1, 2), 1);
+        assertFalse(HighLevelHeuristic.isCardinal(new VertexConflict(0, 1, 1, new Position(0, 1)), 0, mddA, mddB));
+
+        MDD across = mdd(0, new Position(0, 1), new Position(2, 1), 2, plus);
+        MDD down = mdd(1, new Position(1, 0), new Position(1, 2), 2, plus);
+        assertTrue(HighLevelHeuristic.isCardinal(new VertexConflict(0, 1, 1, new Position(1, 1)), 0, across, down));
+        assertFalse(HighLevelHeuristic.isCardinal(new VertexConflict(0, 1, 1, new Position(0, 1)), 0, across, down));
+    }
+
+    public void testCardinalityOfSwaps() {
+        // Two agents swapping the ends of a two-cell corridor
+        GridMap corridor = new GridMap(2, 1);
+        MDD right = mdd(0, new Position(0, 0), new Position(1, 0), 1, corridor);
+        MDD left = mdd(1, new Position(1, 0), new Position(0, 0), 1, corridor);
+
+        EdgeConflict firstRight = new EdgeConflict(0, 1, 1, new Position(0, 0), new Position(1, 0));
+        EdgeConflict firstLeft = new EdgeConflict(1, 0, 1, new Position(1, 0), new Position(0, 0));
+        EdgeConflict backwards = new EdgeConflict(0, 1, 1, new Position(1, 0), new Position(0, 0));
+        assertTrue(HighLevelHeuristic.isCardinal(firstRight, 0, right, left));
+        assertTrue(HighLevelHeuristic.isCardinal(firstLeft, 0, right, left));
+        assertFalse(HighLevelHeuristic.isCardinal(backwards, 0, right, left));
+    }
+
+    private MDD mdd(int agent, Position start, Position goal, int cost) {
+        return mdd(agent, start, goal, cost, open);
+    }
+
+    private static MDD mdd(int agent, Position start, Position goal, int cost, GridMap map) {
+        int[][] dist = new int[map.getHeight()][map.getWidth()];
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                dist[y][x] = Math.abs(x - goal.x) + Math.abs(y - goal.y);
+            }
+        }
+        MDD mdd = MDD.build(map, new AStar(map), agent, start, goal, cost, Set.of(), dist);
+        assertNotNull(mdd);
+        return mdd;
+    }
+
+    private static AgentIndex index(Agent... agents) {
+        return new AgentIndex(Arrays.asList(agents));
+    }
+
+    private static Path path(int... xy) {
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < xy.length; i += 2) positions.add(new Position(xy[i], xy[i + 1]));
+        return new Path(positions);
+    }
+}
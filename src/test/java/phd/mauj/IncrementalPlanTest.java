@@ -0,0 +1,135 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+// Adding or removing an agent must keep the plan collision-free and complete, repairing
+// the others only when the new agent cannot be fitted around them, and a failed change
+// must leave the plan as it was.
+public class IncrementalPlanTest extends TestCase {
+    private static final long REPAIR_TIMEOUT_MS = 1000;
+
+    public void testAddAroundTheCurrentPlan() {
+        GridMap map = new GridMap(3, 2);
+        Agent parked = new Agent(0, new Position(1, 0), new Position(1, 0));
+        IncrementalPlan plan = plan(map, parked);
+
+        ACBS.Result result = plan.addAgent(new Agent(1, new Position(0, 0), new Position(2, 0)));
+        assertTrue(result.status, result.success);
+        assertEquals("Added", result.status);
+        // The parked agent stays put; the new one takes the lower row
+        assertEquals(Arrays.asList(new Position(1, 0)), result.solution.get(0).getPositions());
+        assertEquals(4, result.solution.get(1).getCost());
+        assertEquals(plan.getCost(), result.cost);
+        assertCollisionFree(map, plan);
+    }
+
+    // The only way past the parked agent is through its cell: it has to step aside
+    public void testAddRepairsTheOthersWhenBlocked() {
+        GridMap map = tee();
+        Agent parked = new Agent(0, new Position(1, 0), new Position(1, 0));
+        IncrementalPlan plan = plan(map, parked);
+
+        ACBS.Result result = plan.addAgent(new Agent(1, new Position(0, 0), new Position(2, 0)));
+        assertTrue(result.status, result.success);
+        assertEquals("Added-Repaired", result.status);
+        assertTrue(result.solution.get(0).getCost() > 0);
+        assertEquals(new Position(1, 0), result.solution.get(0).getFinalPosition());
+        assertEquals(new Position(2, 0), result.solution.get(1).getFinalPosition());
+        assertEquals(plan.getCost(), result.cost);
+        assertCollisionFree(map, plan);
+    }
+
+    // In a plain corridor the parked agent has nowhere to go
+    public void testFailedAddLeavesThePlanUnchanged() {
+        GridMap map = new GridMap(3, 1);
+        Agent parked = new Agent(0, new Position(1, 0), new Position(1, 0));
+        IncrementalPlan plan = plan(map, parked);
+        Map<Integer, Path> before = plan.getSolution();
+
+        ACBS.Result result = plan.addAgent(new Agent(1, new Position(0, 0), new Position(2, 0)));
+        assertFalse(result.success);
+        assertEquals("No solution", result.status);
+        assertEquals(Collections.singletonList(parked), plan.getAgents());
+        assertEquals(before, plan.getSolution());
+        assertEquals(0, plan.getCost());
+
+        // The table was left intact too: an agent that fits is still added
+        ACBS.Result added = plan.addAgent(new Agent(2, new Position(0, 0), new Position(0, 0)));
+        assertEquals("Added", added.status);
+    }
+
+    public void testRemoveReleasesTheReservations() {
+        GridMap map = new GridMap(3, 1);
+        IncrementalPlan plan = plan(map, new Agent(0, new Position(1, 0), new Position(1, 0)));
+        assertEquals("Unknown agent", plan.removeAgent(5).status);
+        assertFalse(plan.removeAgent(5).success);
+
+        ACBS.Result removed = plan.removeAgent(0);
+        assertTrue(removed.success);
+        assertEquals("Removed", removed.status);
+        assertTrue(plan.getAgents().isEmpty());
+        assertTrue(removed.solution.isEmpty());
+        assertEquals(0, removed.cost);
+
+        // The cell is free again, so the corridor can be crossed without a repair
+        ACBS.Result added = plan.addAgent(new Agent(1, new Position(0, 0), new Position(2, 0)));
+        assertEquals("Added", added.status);
+        assertEquals(2, plan.getCost());
+    }
+
+    public void testInvalidAgentsAreRejected() {
+        GridMap map = new GridMap(3, 2);
+        map.setObstacle(2, 1, true);
+        Agent agent = new Agent(0, new Position(0, 0), new Position(2, 0));
+        try {
+            new IncrementalPlan(map, List.of(agent), Map.of(), REPAIR_TIMEOUT_MS);
+            fail("agent without a path accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        IncrementalPlan plan = plan(map, agent);
+        try {
+            plan.addAgent(new Agent(0, new Position(0, 1), new Position(1, 1)));
+            fail("duplicate agent accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            plan.addAgent(new Agent(1, new Position(0, 1), new Position(2, 1)));
+            fail("goal on an obstacle accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(1, plan.getAgents().size());
+    }
+
+    // A corridor with one side cell under its middle
+    private static GridMap tee() {
+        GridMap map = new GridMap(3, 2);
+        map.setObstacle(0, 1, true);
+        map.setObstacle(2, 1, true);
+        return map;
+    }
+
+    private static IncrementalPlan plan(GridMap map, Agent... agents) {
+        List<Agent> list = new ArrayList<>(Arrays.asList(agents));
+        ACBS.Result initial = new CBS(map, list, REPAIR_TIMEOUT_MS).solve(list);
+        assertTrue(initial.status, initial.success);
+        return new IncrementalPlan(map, list, initial.solution, REPAIR_TIMEOUT_MS);
+    }
+
+    private static void assertCollisionFree(GridMap map, IncrementalPlan plan) {
+        List<Agent> agents = plan.getAgents();
+        Map<Integer, Path> solution = plan.getSolution();
+        assertEquals(agents.size(), solution.size());
+        for (Agent agent : agents) {
+            assertEquals(agent.start, solution.get(agent.id).getPosition(0));
+            assertEquals(agent.goal, solution.get(agent.id).getFinalPosition());
+        }
+        assertTrue(new CBS(map, agents, REPAIR_TIMEOUT_MS).findConflicts(solution).isEmpty());
+    }
+}
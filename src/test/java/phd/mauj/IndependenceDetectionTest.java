@@ -0,0 +1,56 @@
+package phd.mauj;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// Independence detection must only merge agents whose paths collide, and the plan it
+// assembles from the groups must be collision-free.
+public class IndependenceDetectionTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+
+    public void testIndependentAgentsStayAlone() {
+        GridMap map = new GridMap(4, 4);
+        List<Agent> agents = Arrays.asList(
+            new Agent(0, new Position(0, 0), new Position(3, 0)),
+            new Agent(1, new Position(0, 3), new Position(3, 3)));
+        IndependenceDetection id = new IndependenceDetection(map, agents, TIMEOUT_MS, 1.0);
+        ACBS.Result result = id.solve(agents);
+
+        assertEquals("Optimal-ID", result.status);
+        assertEquals(6, result.cost);
+        assertEquals(1, id.getLargestGroup());
+        assertNotNull(result.statistics);
+    }
+
+    // The only shortest paths of the two agents cross at the centre at the same time
+    public void testCollidingAgentsAreMerged() {
+        GridMap map = new GridMap(3, 3);
+        List<Agent> agents = Arrays.asList(
+            new Agent(0, new Position(0, 1), new Position(2, 1)),
+            new Agent(1, new Position(1, 0), new Position(1, 2)),
+            new Agent(2, new Position(0, 0), new Position(0, 0)));
+        IndependenceDetection id = new IndependenceDetection(map, agents, TIMEOUT_MS, 1.0);
+        ACBS.Result result = id.solve(agents);
+
+        assertTrue(result.status, result.success);
+        assertEquals(2, id.getLargestGroup());
+        assertTrue(id.findConflicts(result.solution).isEmpty());
+    }
+
+    public void testRandomInstancesOnTheWarehouse() throws IOException {
+        GridMap map = MovingAIMapLoader.loadMap("maps/warehouse-10-20-10-2-1.map");
+        for (int seed = 0; seed < 3; seed++) {
+            List<Agent> agents = MovingAIMapLoader.generateRandomInstances(map, 20, new Random(seed));
+            IndependenceDetection id = new IndependenceDetection(map, agents, TIMEOUT_MS, 1.2);
+            ACBS.Result result = id.solve(agents);
+
+            assertTrue(result.status, result.success);
+            assertEquals(agents.size(), result.solution.size());
+            assertTrue(id.findConflicts(result.solution).isEmpty());
+        }
+    }
+}
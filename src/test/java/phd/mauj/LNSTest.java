@@ -0,0 +1,51 @@
+package phd.mauj;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// LNS must end with a collision-free plan when one is within reach, and must stop at the
+// limits of its budget, with the statistics of the solve, when none is.
+public class LNSTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+
+    public void testRepairsRandomInstancesOnTheWarehouse() throws IOException {
+        GridMap map = MovingAIMapLoader.loadMap("maps/warehouse-10-20-10-2-1.map");
+        for (int seed = 0; seed < 3; seed++) {
+            List<Agent> agents = MovingAIMapLoader.generateRandomInstances(map, 50, new Random(seed));
+            LNS lns = new LNS(map, agents, TIMEOUT_MS);
+            lns.setImprove(false);
+            ACBS.Result result = lns.solve(agents);
+
+            assertTrue(result.status, result.success);
+            assertEquals("Solved-LNS", result.status);
+            assertNotNull(result.statistics);
+            Map<Integer, Path> solution = result.solution;
+            for (Agent agent : agents) {
+                assertEquals(agent.start, solution.get(agent.id).getPosition(0));
+                assertEquals(agent.goal, solution.get(agent.id).getFinalPosition());
+            }
+            assertTrue(lns.findConflicts(solution).isEmpty());
+        }
+    }
+
+    // Two agents swapping the ends of a corridor never stop colliding
+    public void testNodeLimitStopsTheRepair() {
+        GridMap map = new GridMap(4, 1);
+        List<Agent> agents = Arrays.asList(
+            new Agent(0, new Position(0, 0), new Position(3, 0)),
+            new Agent(1, new Position(3, 0), new Position(0, 0)));
+        LNS lns = new LNS(map, agents, TIMEOUT_MS);
+        lns.getBudget().setMaxHighLevelNodes(20);
+        ACBS.Result result = lns.solve(agents);
+
+        assertFalse(result.success);
+        assertEquals("Suboptimal-LNS (high-level nodes limit)", result.status);
+        assertNotNull(result.statistics);
+        assertTrue(result.statistics.getLowLevelCalls() > 0);
+    }
+}
@@ -0,0 +1,84 @@
+package phd.mauj;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+// Robots of the lifelong engine must work off every goal they are given, one step at a
+// time, without two of them ever sharing a cell or swapping cells.
+public class LifelongEngineTest extends TestCase {
+    private static final int MAX_STEPS = 300;
+
+    private final GridMap map = new GridMap(8, 8);
+    private final List<Agent> agents = Arrays.asList(
+        new Agent(0, new Position(0, 0), new Position(7, 7)),
+        new Agent(1, new Position(7, 7), new Position(0, 0)),
+        new Agent(2, new Position(0, 7), new Position(7, 0)),
+        new Agent(3, new Position(7, 0), new Position(0, 7)));
+
+    public void testStreamedGoalsAreCompletedWithoutCollisions() {
+        LifelongEngine engine = new LifelongEngine(map, agents);
+        engine.submitGoal(0, new Position(3, 3));
+        engine.submitGoal(1, new Position(4, 4));
+        engine.submitGoal(2, new Position(4, 3));
+
+        Map<Integer, Position> before = engine.getPositions();
+        while (engine.getTasksCompleted() < 7 && engine.getTimestep() < MAX_STEPS) {
+            engine.step();
+            Map<Integer, Position> after = engine.getPositions();
+            assertCollisionFree(before, after);
+            before = after;
+        }
+        assertEquals(7, engine.getTasksCompleted());
+        assertEquals(new Position(3, 3), engine.getPositions().get(0));
+        assertEquals(new Position(4, 4), engine.getPositions().get(1));
+        assertEquals(new Position(4, 3), engine.getPositions().get(2));
+        assertEquals(new Position(0, 7), engine.getPositions().get(3));
+        assertEquals(engine.getTimestep(), engine.getStepLatencies().size());
+    }
+
+    public void testGoalFeedSkipsCommentsAndBadLines() throws InterruptedException {
+        LifelongEngine engine = new LifelongEngine(map, agents);
+        engine.feedFrom(new StringReader("# goals\n\n0 1 1\nnot a goal\n0 2 2\n9 1 1\n")).join();
+        engine.step();
+        // The first goal is the one from the constructor; both fed goals wait behind it
+        assertEquals(2, engine.getQueuedGoals(0));
+    }
+
+    public void testInvalidGoalsAreRejected() {
+        GridMap walled = new GridMap(3, 3);
+        walled.setObstacle(1, 1, true);
+        LifelongEngine engine = new LifelongEngine(walled, List.of(new Agent(0, new Position(0, 0), new Position(0, 0))));
+        try {
+            engine.submitGoal(5, new Position(0, 1));
+            fail("unknown agent accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            engine.submitGoal(0, new Position(1, 1));
+            fail("obstacle accepted as a goal");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void assertCollisionFree(Map<Integer, Position> before, Map<Integer, Position> after) {
+        Set<Position> occupied = new HashSet<>();
+        Map<Position, Integer> previous = new HashMap<>();
+        for (Map.Entry<Integer, Position> e : before.entrySet()) previous.put(e.getValue(), e.getKey());
+        for (Map.Entry<Integer, Position> e : after.entrySet()) {
+            assertTrue("two robots at " + e.getValue(), occupied.add(e.getValue()));
+            // Swap: the robot that stood where this one went now stands where this one was
+            Integer other = previous.get(e.getValue());
+            if (other != null && other != e.getKey().intValue()) {
+                assertFalse("robots " + e.getKey() + " and " + other + " swapped",
+                            after.get(other).equals(before.get(e.getKey())));
+            }
+        }
+    }
+}
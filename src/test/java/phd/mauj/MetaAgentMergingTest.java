@@ -0,0 +1,64 @@
+package phd.mauj;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+// A pair is merged only once it has conflicted more often than the threshold, never past
+// the size cap; the coupled search of a merged pair must be conflict-free and optimal.
+public class MetaAgentMergingTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+
+    // The only shortest paths of the two agents cross at the centre at the same time
+    private final GridMap map = new GridMap(3, 3);
+    private final List<Agent> agents = Arrays.asList(
+        new Agent(0, new Position(0, 1), new Position(2, 1)),
+        new Agent(1, new Position(1, 0), new Position(1, 2)),
+        new Agent(2, new Position(0, 0), new Position(0, 0)));
+    private final Conflict crossing = new VertexConflict(0, 1, 1, new Position(1, 1));
+
+    public void testMergeAfterTheThreshold() {
+        ACBS acbs = new ACBS(map, agents, TIMEOUT_MS, 1.0);
+        acbs.setMetaAgentMerging(2, true);
+        Map<Long, Integer> counts = new HashMap<>();
+        assertFalse(acbs.recordConflict(counts, crossing));
+        assertFalse(acbs.recordConflict(counts, crossing));
+        assertTrue(acbs.recordConflict(counts, crossing));
+    }
+
+    public void testNoMergeWhenDisabledOrTooLarge() {
+        ACBS disabled = new ACBS(map, agents, TIMEOUT_MS, 1.0);
+        disabled.setMetaAgentMerging(0, true);
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 5; i++) assertFalse(disabled.recordConflict(counts, crossing));
+
+        ACBS capped = new ACBS(map, agents, TIMEOUT_MS, 1.0);
+        capped.setMetaAgentMerging(1, true);
+        capped.setMaxMetaAgentSize(1);
+        counts.clear();
+        for (int i = 0; i < 5; i++) assertFalse(capped.recordConflict(counts, crossing));
+    }
+
+    public void testCoupledSearchOfACrossingPair() {
+        Map<Integer, Path> paths = new CoupledAStar(map, 10000).findPaths(agents.subList(0, 2), Set.of());
+        assertNotNull(paths);
+        // One of the two waits a step
+        assertEquals(5, paths.get(0).getCost() + paths.get(1).getCost());
+        assertTrue(new ACBS(map, agents, TIMEOUT_MS, 1.0).findConflicts(paths).isEmpty());
+    }
+
+    public void testSolveWithEagerMerging() {
+        for (boolean restart : new boolean[] {true, false}) {
+            ACBS acbs = new ACBS(map, agents, TIMEOUT_MS, 1.0);
+            acbs.setMetaAgentMerging(1, restart);
+            ACBS.Result result = acbs.solve(agents);
+            assertTrue(result.status, result.success);
+            assertEquals(5, result.cost);
+            assertTrue(acbs.findConflicts(result.solution).isEmpty());
+        }
+    }
+}
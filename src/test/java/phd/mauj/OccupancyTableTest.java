@@ -0,0 +1,111 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+// ReservationTable and CollisionTable must answer the same for the same paths: vertex,
+// swap and parked collisions, waits and stays, and nothing once the paths are gone.
+public class OccupancyTableTest extends TestCase {
+    private final GridMap map = new GridMap(4, 3);
+    // (0,0) -> (1,0) -> (2,0), then parked at (2,0) from t = 2
+    private final Path crossing = path(0, 0, 1, 0, 2, 0);
+
+    public void testReservationTable() {
+        ReservationTable table = new ReservationTable(map);
+        table.reserve(crossing);
+        assertOccupiedByCrossing(table);
+        table.clear();
+        assertEmpty(table);
+        // Cleared bitsets are reused by the next attempt
+        table.reserve(crossing);
+        assertOccupiedByCrossing(table);
+    }
+
+    public void testCollisionTable() {
+        CollisionTable table = new CollisionTable(map);
+        table.add(7, crossing);
+        assertOccupiedByCrossing(table);
+        table.remove(7, crossing);
+        assertEmpty(table);
+    }
+
+    public void testReservationWindow() {
+        ReservationTable table = new ReservationTable(map);
+        table.setWindow(1);
+        table.reserve(crossing);
+        assertEquals(1, table.countMove(cell(1, 1), cell(1, 0), 1));
+        // Past the window: no swap at t = 2 and no parking at the late goal
+        assertEquals(0, table.countMove(cell(2, 0), cell(1, 0), 2));
+        assertFalse(table.isParked(cell(2, 0)));
+        assertEquals(2, table.getHorizon());
+    }
+
+    public void testCollidingAgents() {
+        CollisionTable table = new CollisionTable(map);
+        table.add(7, crossing);
+        table.add(8, path(3, 0));
+
+        assertEquals(Set.of(7), table.collidingAgents(path(1, 1, 1, 0)));
+        assertEquals(Set.of(7), table.collidingAgents(path(2, 1, 2, 0, 1, 0)));
+        assertEquals(Set.of(), table.collidingAgents(path(2, 1, 2, 0, 1, 0), 1));
+        assertEquals(Set.of(8), table.collidingAgents(path(3, 1, 3, 0)));
+        // Parked at (1,0) from t = 0, passed through by agent 7 at t = 1
+        assertEquals(Set.of(7), table.collidingAgents(path(1, 0)));
+        assertEquals(Set.of(), table.collidingAgents(path(0, 2, 1, 2)));
+
+        table.remove(7, crossing);
+        assertEquals(Set.of(), table.collidingAgents(path(1, 1, 1, 0)));
+        assertEquals(Set.of(8), table.collidingAgents(path(3, 1, 3, 0)));
+    }
+
+    private void assertOccupiedByCrossing(OccupancyTable table) {
+        assertEquals(3, table.getHorizon());
+        // Vertex: (1,0) is taken at t = 1 only
+        assertEquals(1, table.countMove(cell(1, 1), cell(1, 0), 1));
+        assertEquals(0, table.countMove(cell(1, 1), cell(1, 0), 2));
+        // Swap: (2,0) -> (1,0) while the agent moves (1,0) -> (2,0) at t = 2
+        assertEquals(1, table.countMove(cell(2, 0), cell(1, 0), 2));
+        // Parked at (2,0) from t = 2 on
+        assertEquals(0, table.countMove(cell(2, 1), cell(2, 0), 1));
+        assertEquals(1, table.countMove(cell(2, 1), cell(2, 0), 7));
+        assertTrue(table.isParked(cell(2, 0)));
+        assertFalse(table.isParked(cell(1, 0)));
+
+        assertEquals(0, table.countWait(cell(2, 0), 0, 1));
+        assertEquals(1, table.countWait(cell(2, 0), 0, 2));
+        assertEquals(1, table.countWait(cell(1, 0), 0, 5));
+        assertEquals(0, table.countWait(cell(1, 0), 2, 5));
+
+        assertEquals(1, table.countStay(cell(1, 0), 0));
+        assertEquals(0, table.countStay(cell(1, 0), 1));
+        assertEquals(1, table.countStay(cell(2, 0), 1));
+        assertEquals(0, table.countStay(cell(2, 0), 2));
+
+        assertEquals(1, table.lastVisit(cell(1, 0)));
+        assertEquals(-1, table.lastVisit(cell(2, 0)));
+    }
+
+    private void assertEmpty(OccupancyTable table) {
+        assertEquals(0, table.getHorizon());
+        assertEquals(0, table.countMove(cell(1, 1), cell(1, 0), 1));
+        assertEquals(0, table.countMove(cell(2, 0), cell(1, 0), 2));
+        assertEquals(0, table.countMove(cell(2, 1), cell(2, 0), 7));
+        assertEquals(0, table.countWait(cell(1, 0), 0, 5));
+        assertEquals(0, table.countStay(cell(2, 0), 1));
+        assertFalse(table.isParked(cell(2, 0)));
+        assertEquals(-1, table.lastVisit(cell(1, 0)));
+    }
+
+    private int cell(int x, int y) {
+        return y * map.getWidth() + x;
+    }
+
+    private static Path path(int... xy) {
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < xy.length; i += 2) positions.add(new Position(xy[i], xy[i + 1]));
+        return new Path(positions);
+    }
+}
@@ -0,0 +1,160 @@
+package phd.mauj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+// Round trips through OffHeapNodeStore: every node loaded back must equal the node stored,
+// whichever node was loaded before it (the base of the delta replay).
+public class OffHeapNodeStoreTest extends TestCase {
+    private static final double W = 1.5;
+
+    private AgentIndex agents;
+    private OffHeapNodeStore store;
+
+    @Override
+    protected void setUp() {
+        agents = new AgentIndex(Arrays.asList(
+            new Agent(0, new Position(0, 0), new Position(3, 0)),
+            new Agent(1, new Position(0, 2), new Position(0, 5)),
+            new Agent(2, new Position(5, 5), new Position(9, 1))));
+        store = new OffHeapNodeStore(W);
+        store.reset();
+    }
+
+    public void testEveryMoveConstraintAndConflictType() {
+        Path jumping = path(5, 5, 5, 5, 6, 5, 9, 1);
+        Set<Constraint> constraints = new HashSet<>(Arrays.asList(
+            new VertexConstraint(0, 3, new Position(2, 0)),
+            new EdgeConstraint(1, 2, new Position(0, 3), new Position(0, 4)),
+            new TemporalConstraint(2, 4, new Position(6, 5), 2)));
+        List<Conflict> conflicts = Arrays.asList(
+            new VertexConflict(0, 1, 2, new Position(1, 1)),
+            new EdgeConflict(1, 2, 3, new Position(4, 4), new Position(4, 5)));
+        CBSNode node = node(new Path[] {
+            path(0, 0, 1, 0, 1, 0, 2, 0, 3, 0),   // right, wait, right, right
+            path(0, 2, 0, 1, 0, 2, 0, 3, 0, 4, 0, 5), // up, down, down, down
+            jumping                               // wait, right, jump
+        }, constraints, conflicts);
+        node.strategyType = "SPATIAL-A1";
+        node.subgoalRound = 2;
+        node.fHatCost = node.fCost + 7;
+
+        CBSNode header = store.store(node);
+        assertNull(header.paths);
+        assertEquals(node.fCost, header.fCost);
+        assertEquals(node.conflictCount, header.conflictCount);
+        assertSameNode(node, store.load(header));
+    }
+
+    public void testDeltasAcrossSiblingBranches() {
+        CBSNode root = node(new Path[] {path(0, 0, 1, 0, 2, 0, 3, 0), path(0, 2, 0, 3, 0, 4, 0, 5),
+                                        path(5, 5, 9, 1)},
+                            new HashSet<>(), List.of(new VertexConflict(0, 1, 1, new Position(1, 0))));
+        CBSNode rootHeader = store.store(root);
+        assertSameNode(root, store.load(rootHeader));
+
+        CBSNode left = child(root, 0, path(0, 0, 0, 0, 1, 0, 2, 0, 3, 0),
+                             new VertexConstraint(0, 1, new Position(1, 0)));
+        CBSNode right = child(root, 1, path(0, 2, 0, 2, 0, 3, 0, 4, 0, 5),
+                              new EdgeConstraint(1, 1, new Position(0, 2), new Position(0, 3)));
+        CBSNode leftHeader = store.store(left);
+        CBSNode rightHeader = store.store(right);
+
+        // Left is replayed on top of the root, the node loaded last
+        assertSameNode(left, store.load(leftHeader));
+        CBSNode grandchild = child(left, 2, path(5, 5, 5, 5, 9, 1),
+                                   new TemporalConstraint(2, 0, new Position(5, 5), 1));
+        CBSNode grandchildHeader = store.store(grandchild);
+
+        // Right hangs off the root, not off left: the replay starts over from the root record
+        assertSameNode(right, store.load(rightHeader));
+        assertSameNode(grandchild, store.load(grandchildHeader));
+        assertSameNode(left, store.load(leftHeader));
+    }
+
+    public void testReloadingTheRootAndTheSameNode() {
+        CBSNode root = node(new Path[] {path(0, 0, 3, 0), path(0, 2, 0, 5), path(5, 5, 9, 1)},
+                            new HashSet<>(), List.of(new EdgeConflict(0, 2, 1, new Position(1, 0), new Position(2, 0))));
+        CBSNode rootHeader = store.store(root);
+        CBSNode child = child(root, 0, path(0, 0, 0, 0, 3, 0), new VertexConstraint(0, 1, new Position(3, 0)));
+        CBSNode childHeader = store.store(child);
+
+        assertSameNode(child, store.load(childHeader));
+        assertSameNode(root, store.load(rootHeader));
+        // The header of the node loaded last: nothing to replay, conflicts read directly
+        assertSameNode(root, store.load(rootHeader));
+        assertSameNode(child, store.load(childHeader));
+        assertSameNode(child, store.load(childHeader));
+    }
+
+    public void testStoringAgainAfterRelease() {
+        CBSNode root = node(new Path[] {path(0, 0, 3, 0), path(0, 2, 0, 5), path(5, 5, 9, 1)},
+                            new HashSet<>(), new ArrayList<>());
+        store.load(store.store(root));
+        store.release();
+        assertEquals(0, store.getStoredBytes());
+
+        CBSNode again = node(new Path[] {path(0, 0, 1, 0, 3, 0), path(0, 2, 0, 5), path(5, 5, 9, 1)},
+                             new HashSet<>(List.of(new VertexConstraint(0, 1, new Position(3, 0)))), new ArrayList<>());
+        assertSameNode(again, store.load(store.store(again)));
+    }
+
+    // ========================================================================
+    // HELPERS
+    // ========================================================================
+
+    // Path through the given x, y pairs; non-adjacent steps are encoded as jumps
+    private static Path path(int... xy) {
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < xy.length; i += 2) positions.add(new Position(xy[i], xy[i + 1]));
+        return new Path(positions);
+    }
+
+    private CBSNode node(Path[] paths, Set<Constraint> constraints, List<Conflict> conflicts) {
+        int g = 0;
+        for (Path p : paths) g += p.getCost();
+        return new CBSNode(agents, paths, constraints, g, conflicts.size(), W, conflicts);
+    }
+
+    // Child of 'parent' sharing all its paths but one, with one more constraint
+    private CBSNode child(CBSNode parent, int index, Path path, Constraint added) {
+        Path[] paths = parent.paths.clone();
+        paths[index] = path;
+        Set<Constraint> constraints = new HashSet<>(parent.constraints);
+        constraints.add(added);
+        return node(paths, constraints, List.of(new VertexConflict(index, (index + 1) % 3, 1, new Position(index, 1))));
+    }
+
+    private static void assertSameNode(CBSNode expected, CBSNode actual) {
+        assertSame(expected.agents, actual.agents);
+        assertEquals(expected.paths.length, actual.paths.length);
+        for (int i = 0; i < expected.paths.length; i++) {
+            assertEquals("path " + i, expected.paths[i].getPositions(), actual.paths[i].getPositions());
+        }
+        assertEquals(expected.constraints, actual.constraints);
+        assertEquals(expected.conflicts.size(), actual.conflicts.size());
+        for (int i = 0; i < expected.conflicts.size(); i++) {
+            assertEquals("conflict " + i, describe(expected.conflicts.get(i)), describe(actual.conflicts.get(i)));
+        }
+        assertEquals(expected.gCost, actual.gCost);
+        assertEquals(expected.hCost, actual.hCost);
+        assertEquals(expected.fCost, actual.fCost);
+        assertEquals(expected.eCost, actual.eCost);
+        assertEquals(expected.fHatCost, actual.fHatCost);
+        assertEquals(expected.strategyType, actual.strategyType);
+        assertEquals(expected.subgoalRound, actual.subgoalRound);
+    }
+
+    // Conflicts have no equals; compare their type and every field
+    private static String describe(Conflict c) {
+        String common = c.getClass().getSimpleName() + " " + c.agent1 + "/" + c.agent2 + "@" + c.time;
+        if (c instanceof VertexConflict) return common + " " + ((VertexConflict) c).position;
+        EdgeConflict e = (EdgeConflict) c;
+        return common + " " + e.from + "->" + e.to;
+    }
+}
@@ -0,0 +1,80 @@
+package phd.mauj;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// A plan PBS reports as solved must be collision-free and valid for every agent; when the
+// depth-first search runs out of orderings it must say so instead of returning a plan.
+public class PBSTest extends TestCase {
+    private static final long TIMEOUT_MS = 30000;
+
+    public void testAgentsSwappingAroundAnObstacle() {
+        GridMap map = new GridMap(3, 3);
+        map.setObstacle(1, 1, true);
+        List<Agent> agents = Arrays.asList(
+            new Agent(0, new Position(0, 0), new Position(2, 2)),
+            new Agent(1, new Position(2, 2), new Position(0, 0)),
+            new Agent(2, new Position(2, 0), new Position(0, 2)));
+        assertValidSolution(map, agents);
+    }
+
+    public void testRandomInstancesOnTheWarehouse() throws IOException {
+        GridMap map = MovingAIMapLoader.loadMap("maps/warehouse-10-20-10-2-1.map");
+        for (int seed = 0; seed < 3; seed++) {
+            assertValidSolution(map, MovingAIMapLoader.generateRandomInstances(map, 30, new Random(seed)));
+        }
+    }
+
+    // Two agents swapping ends of a corridor: every ordering leaves the lower agent unplannable
+    public void testDeadEndCorridorExhaustsTheStack() {
+        GridMap map = new GridMap(4, 1);
+        List<Agent> agents = Arrays.asList(
+            new Agent(0, new Position(0, 0), new Position(3, 0)),
+            new Agent(1, new Position(3, 0), new Position(0, 0)));
+        ACBS.Result result = new PBS(map, agents, TIMEOUT_MS).solve(agents);
+        assertFalse(result.success);
+        assertEquals("No solution", result.status);
+    }
+
+    // The only shortest paths of the two agents cross at the centre at the same time
+    public void testNodeLimitStopsTheSearch() {
+        GridMap map = new GridMap(3, 3);
+        List<Agent> agents = Arrays.asList(
+            new Agent(0, new Position(0, 1), new Position(2, 1)),
+            new Agent(1, new Position(1, 0), new Position(1, 2)));
+        PBS pbs = new PBS(map, agents, TIMEOUT_MS);
+        pbs.getBudget().setMaxHighLevelNodes(1);
+        ACBS.Result result = pbs.solve(agents);
+        assertFalse(result.success);
+        assertEquals("Suboptimal-PBS (high-level nodes limit)", result.status);
+        assertNotNull(result.statistics);
+    }
+
+    private static void assertValidSolution(GridMap map, List<Agent> agents) {
+        PBS pbs = new PBS(map, agents, TIMEOUT_MS);
+        ACBS.Result result = pbs.solve(agents);
+        assertTrue(result.status, result.success);
+        assertEquals("Solved-PBS", result.status);
+
+        Map<Integer, Path> solution = result.solution;
+        assertEquals(agents.size(), solution.size());
+        int cost = 0;
+        for (Agent agent : agents) {
+            List<Position> positions = solution.get(agent.id).getPositions();
+            assertEquals(agent.start, positions.get(0));
+            assertEquals(agent.goal, positions.get(positions.size() - 1));
+            for (int t = 1; t < positions.size(); t++) {
+                assertTrue("agent " + agent.id + " at t = " + t,
+                           map.getNeighbors(positions.get(t - 1)).contains(positions.get(t)));
+            }
+            cost += solution.get(agent.id).getCost();
+        }
+        assertEquals(cost, result.cost);
+        assertTrue(pbs.findConflicts(solution).isEmpty());
+    }
+}
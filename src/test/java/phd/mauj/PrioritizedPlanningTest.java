@@ -0,0 +1,46 @@
+package phd.mauj;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// Prioritized planning must return collision-free plans when it reports success, and must
+// complete its best attempt, marked as failed, when the budget stops it.
+public class PrioritizedPlanningTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+
+    public void testRandomInstancesOnTheWarehouse() throws IOException {
+        GridMap map = MovingAIMapLoader.loadMap("maps/warehouse-10-20-10-2-1.map");
+        for (PrioritizedPlanning.PriorityOrder order : PrioritizedPlanning.PriorityOrder.values()) {
+            List<Agent> agents = MovingAIMapLoader.generateRandomInstances(map, 50, new Random(order.ordinal()));
+            PrioritizedPlanning pp = new PrioritizedPlanning(map, agents, TIMEOUT_MS);
+            pp.setPriorityOrder(order);
+            ACBS.Result result = pp.solve(agents);
+
+            assertTrue(order + ": " + result.status, result.success);
+            assertEquals("Solved-PP", result.status);
+            assertNotNull(result.statistics);
+            assertEquals(agents.size(), result.solution.size());
+            assertTrue(pp.findConflicts(result.solution).isEmpty());
+        }
+    }
+
+    public void testNodeLimitCompletesTheBestAttempt() throws IOException {
+        GridMap map = MovingAIMapLoader.loadMap("maps/warehouse-10-20-10-2-1.map");
+        List<Agent> agents = MovingAIMapLoader.generateRandomInstances(map, 20, new Random(1));
+        PrioritizedPlanning pp = new PrioritizedPlanning(map, agents, TIMEOUT_MS);
+        pp.getBudget().setMaxHighLevelNodes(5);
+        ACBS.Result result = pp.solve(agents);
+
+        assertFalse(result.success);
+        assertEquals("Suboptimal-PP (high-level nodes limit)", result.status);
+        Map<Integer, Path> solution = result.solution;
+        for (Agent agent : agents) {
+            assertEquals(agent.start, solution.get(agent.id).getPosition(0));
+            assertEquals(agent.goal, solution.get(agent.id).getFinalPosition());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package phd.mauj;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// The executed plan of a rolling-horizon solve is stitched from the first steps of every
+// cycle; as a whole it must lead every agent to its goal without a single collision.
+public class RollingHorizonTest extends TestCase {
+    private static final long TIMEOUT_MS = 20000;
+
+    public void testExecutedPlansAreCollisionFree() throws IOException {
+        GridMap map = MovingAIMapLoader.loadMap("maps/warehouse-10-20-10-2-1.map");
+        for (int seed = 0; seed < 3; seed++) {
+            List<Agent> agents = MovingAIMapLoader.generateRandomInstances(map, 20, new Random(seed));
+            RollingHorizon rhcr = new RollingHorizon(map, agents, TIMEOUT_MS, 10, 5);
+            ACBS.Result result = rhcr.solve(agents);
+
+            assertTrue(result.status, result.success);
+            assertEquals("Solved-RHCR", result.status);
+            assertNotNull(result.statistics);
+            assertFalse(rhcr.getCycleLatencies().isEmpty());
+            for (Agent agent : agents) {
+                assertEquals(agent.start, result.solution.get(agent.id).getPosition(0));
+                assertEquals(agent.goal, result.solution.get(agent.id).getFinalPosition());
+            }
+            // Conflicts over the whole plan, not only the solver's own window
+            ACBS checker = new ACBS(map, agents, TIMEOUT_MS, 1.0);
+            assertTrue(checker.findConflicts(result.solution).isEmpty());
+        }
+    }
+
+    public void testNodeLimitStopsAfterTheFirstCycles() throws IOException {
+        GridMap map = MovingAIMapLoader.loadMap("maps/warehouse-10-20-10-2-1.map");
+        List<Agent> agents = MovingAIMapLoader.generateRandomInstances(map, 10, new Random(5));
+        RollingHorizon rhcr = new RollingHorizon(map, agents, TIMEOUT_MS, 10, 5);
+        rhcr.getBudget().setMaxHighLevelNodes(1);
+        ACBS.Result result = rhcr.solve(agents);
+
+        assertFalse(result.success);
+        assertEquals("Suboptimal-RHCR (high-level nodes limit)", result.status);
+        assertEquals(1, rhcr.getCycleLatencies().size());
+    }
+}
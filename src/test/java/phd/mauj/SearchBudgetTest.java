@@ -0,0 +1,54 @@
+package phd.mauj;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+// A solve stopped by its budget must name the limit, hand its best plan to the fallback,
+// and the LNS repair fallback must keep within the total time it was given.
+public class SearchBudgetTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+
+    // The only shortest paths of the two agents cross at the centre at the same time
+    private final GridMap map = new GridMap(3, 3);
+    private final List<Agent> agents = Arrays.asList(
+        new Agent(0, new Position(0, 1), new Position(2, 1)),
+        new Agent(1, new Position(1, 0), new Position(1, 2)));
+
+    public void testLimitIsNamedWithoutAFallback() {
+        ACBS acbs = new ACBS(map, agents, TIMEOUT_MS, 1.0);
+        acbs.getBudget().setMaxHighLevelNodes(0);
+        ACBS.Result result = acbs.solve(agents);
+
+        assertFalse(result.success);
+        assertTrue(result.status, result.status.endsWith("(high-level nodes limit)"));
+        assertNotNull(result.statistics);
+    }
+
+    public void testRepairFallbackTakesOver() {
+        ACBS acbs = new ACBS(map, agents, TIMEOUT_MS, 1.0);
+        acbs.getBudget().setMaxHighLevelNodes(0);
+        acbs.getBudget().setFallback(LNS.repairFallback(map, TIMEOUT_MS));
+        ACBS.Result result = acbs.solve(agents);
+
+        assertTrue(result.status, result.success);
+        assertEquals("Solved-LNS (fallback after high-level nodes limit)", result.status);
+        assertTrue(acbs.findConflicts(result.solution).isEmpty());
+    }
+
+    public void testFallbackGetsOnlyTheTimeLeft() {
+        ACBS.Result stopped = new ACBS.Result(false, null, 0, TIMEOUT_MS, "No initial solution (wall time limit)");
+        // Two agents swapping the ends of a corridor: the repair can only stop at its time limit
+        GridMap corridor = new GridMap(4, 1);
+        List<Agent> swap = Arrays.asList(
+            new Agent(0, new Position(0, 0), new Position(3, 0)),
+            new Agent(1, new Position(3, 0), new Position(0, 0)));
+
+        long start = System.currentTimeMillis();
+        ACBS.Result repaired = LNS.repairFallback(corridor, TIMEOUT_MS + 200).apply(swap, stopped);
+        assertFalse(repaired.success);
+        assertTrue(repaired.status, repaired.status.endsWith("(wall time limit)"));
+        assertTrue(System.currentTimeMillis() - start < TIMEOUT_MS / 2);
+    }
+}
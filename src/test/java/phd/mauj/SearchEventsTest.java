@@ -0,0 +1,92 @@
+package phd.mauj;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import junit.framework.TestCase;
+
+// A recording that enables the solver events must get them from the high level and from
+// every kind of low-level pathfinder.
+public class SearchEventsTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+
+    public void testEventsOfASolve() throws IOException {
+        // Two agents crossing at the centre of an open 3x3 grid: the root has a conflict
+        GridMap map = new GridMap(3, 3);
+        List<Agent> agents = Arrays.asList(
+            new Agent(0, new Position(0, 1), new Position(2, 1)),
+            new Agent(1, new Position(1, 0), new Position(1, 2)));
+        Agent single = new Agent(2, new Position(0, 0), new Position(2, 2));
+
+        List<RecordedEvent> events = record(() -> {
+            assertTrue(new CBS(map, agents, TIMEOUT_MS).solve(agents).success);
+            assertNotNull(new CollisionAwareAStar(map, 1, 1000).findPath(single, new CollisionTable(map), true));
+        });
+
+        int expansions = 0, detections = 0;
+        List<String> pathfinders = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            switch (event.getEventType().getName()) {
+                case "phd.mauj.HighLevelExpansion":
+                    expansions++;
+                    assertTrue(event.getInt("children") <= event.getInt("childrenProduced"));
+                    break;
+                case "phd.mauj.ConflictDetection":
+                    detections++;
+                    break;
+                case "phd.mauj.LowLevelSearch":
+                    assertTrue(event.getInt("groupSize") >= 1);
+                    if (!pathfinders.contains(event.getString("algorithm"))) {
+                        pathfinders.add(event.getString("algorithm"));
+                    }
+                    break;
+                default:
+            }
+        }
+        assertTrue(expansions >= 1);
+        assertTrue(detections >= 1);
+        assertTrue(pathfinders.toString(), pathfinders.size() >= 2);
+    }
+
+    public void testNothingIsRecordedUnlessEnabled() throws IOException {
+        GridMap map = new GridMap(3, 3);
+        List<Agent> agents = List.of(new Agent(0, new Position(0, 0), new Position(2, 2)));
+        try (Recording recording = new Recording()) {
+            recording.start();
+            new CBS(map, agents, TIMEOUT_MS).solve(agents);
+            recording.stop();
+            for (RecordedEvent event : events(recording)) {
+                assertFalse(event.getEventType().getName(), event.getEventType().getName().startsWith("phd.mauj."));
+            }
+        }
+    }
+
+    private static List<RecordedEvent> record(Runnable work) throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable("phd.mauj.HighLevelExpansion");
+            recording.enable("phd.mauj.ConflictDetection");
+            recording.enable("phd.mauj.LowLevelSearch");
+            recording.start();
+            work.run();
+            recording.stop();
+            return events(recording);
+        }
+    }
+
+    private static List<RecordedEvent> events(Recording recording) throws IOException {
+        java.nio.file.Path file = Files.createTempFile("search", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package phd.mauj;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+// Every result must carry the statistics of its own solve, consistent with the search
+// that produced it, and a later solve of the same solver must not change them.
+public class SearchStatsTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+
+    // Two agents crossing at the centre of an open 3x3 grid: the root has a conflict
+    private final GridMap map = new GridMap(3, 3);
+    private final List<Agent> agents = Arrays.asList(
+        new Agent(0, new Position(0, 1), new Position(2, 1)),
+        new Agent(1, new Position(1, 0), new Position(1, 2)));
+
+    public void testStatisticsOfASearch() {
+        ACBS.Result result = new ACBS(map, agents, TIMEOUT_MS, 1.0).solve(agents);
+        assertTrue(result.status, result.success);
+        SearchStats stats = result.statistics;
+        assertNotNull(stats);
+
+        assertTrue(stats.getNodesExpanded() >= 1);
+        assertTrue(stats.getNodesGenerated() >= stats.getNodesExpanded());
+        assertTrue(stats.getPeakOpenSize() >= 1);
+        assertTrue(stats.getLowLevelCalls() >= agents.size());
+        assertTrue(stats.getLowLevelExpansions() >= stats.getLowLevelCalls());
+        long produced = 0, kept = 0;
+        for (SearchStats.Strategy strategy : SearchStats.Strategy.values()) {
+            assertTrue(stats.getKept(strategy) <= stats.getProduced(strategy));
+            produced += stats.getProduced(strategy);
+            kept += stats.getKept(strategy);
+        }
+        assertTrue(kept > 0);
+        assertTrue(produced >= kept);
+
+        StringBuilder summary = new StringBuilder();
+        for (String algorithm : stats.getLowLevel().keySet()) {
+            if (summary.length() > 0) summary.append(';');
+            summary.append(algorithm).append(':').append(stats.getLowLevel().get(algorithm));
+        }
+        assertEquals(summary.toString(), stats.lowLevelSummary());
+        assertTrue(stats.lowLevelSummary(), stats.lowLevelSummary().matches("(\\w+:\\d+/\\d+/\\d+;?)+"));
+    }
+
+    public void testEachSolveHasItsOwnStatistics() {
+        ACBS solver = new ACBS(map, agents, TIMEOUT_MS, 1.0);
+        ACBS.Result first = solver.solve(agents);
+        long calls = first.statistics.getLowLevelCalls();
+        long expanded = first.statistics.getNodesExpanded();
+
+        ACBS.Result second = solver.solve(agents);
+        assertNotSame(first.statistics, second.statistics);
+        assertEquals(calls, first.statistics.getLowLevelCalls());
+        assertEquals(expanded, first.statistics.getNodesExpanded());
+        assertEquals(expanded, second.statistics.getNodesExpanded());
+    }
+
+    // The goal is cut off; the search gives up at its time limit
+    public void testFailedSolvesKeepTheirStatistics() {
+        GridMap split = new GridMap(3, 1);
+        split.setObstacle(1, 0, true);
+        List<Agent> cut = List.of(new Agent(0, new Position(0, 0), new Position(2, 0)));
+        ACBS.Result result = new ACBS(split, cut, 200, 1.0).solve(cut);
+        assertFalse(result.success);
+        assertNotNull(result.statistics);
+        assertTrue(result.statistics.getLowLevelCalls() >= 1);
+    }
+}
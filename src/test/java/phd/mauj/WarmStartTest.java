@@ -0,0 +1,69 @@
+package phd.mauj;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+// A warm solve keeps the prior paths that still fit their agents and replans only the
+// rest; kept paths need not be shortest, so a plan found at the root is not reported as
+// optimal.
+public class WarmStartTest extends TestCase {
+    private static final long TIMEOUT_MS = 10000;
+
+    private final GridMap map = new GridMap(3, 2);
+    private final Agent agent = new Agent(0, new Position(0, 0), new Position(2, 0));
+    // Around through the lower row: cost 4 against the shortest 2
+    private final Path detour = new Path(Arrays.asList(
+        new Position(0, 0), new Position(0, 1), new Position(1, 1), new Position(2, 1), new Position(2, 0)));
+
+    public void testPriorPathIsKeptAndNotCalledOptimal() {
+        List<Agent> agents = List.of(agent);
+        ACBS.Result cold = new CBS(map, agents, TIMEOUT_MS).solve(agents);
+        assertEquals("Optimal", cold.status);
+        assertEquals(2, cold.cost);
+
+        ACBS.Result warm = new CBS(map, agents, TIMEOUT_MS).solve(agents, Map.of(0, detour));
+        assertTrue(warm.status, warm.success);
+        assertEquals("Solved", warm.status);
+        assertSame(detour, warm.solution.get(0));
+        assertEquals(4, warm.cost);
+    }
+
+    // The prior path of agent 1 led to its old goal and its constraint was about that route
+    public void testAgentsWithNewGoalsAreReplanned() {
+        Agent moved = new Agent(1, new Position(0, 1), new Position(2, 1));
+        Path stale = new Path(Arrays.asList(new Position(0, 1), new Position(0, 1)));
+        Set<Constraint> constraints = Set.of(new VertexConstraint(1, 1, new Position(1, 1)));
+        List<Agent> agents = List.of(agent, moved);
+
+        ACBS.Result warm = new CBS(map, agents, TIMEOUT_MS)
+            .solve(agents, Map.of(0, detour, 1, stale), constraints);
+        assertTrue(warm.status, warm.success);
+        Path replanned = warm.solution.get(1);
+        assertEquals(moved.start, replanned.getPosition(0));
+        assertEquals(moved.goal, replanned.getFinalPosition());
+        assertFalse(warm.status.startsWith("Optimal"));
+        assertTrue(new CBS(map, agents, TIMEOUT_MS).findConflicts(warm.solution).isEmpty());
+    }
+
+    // The prior constraint is dropped with the path: the replanned agent takes a shortest path
+    public void testConstraintsOfReplannedAgentsAreDropped() {
+        Agent moved = new Agent(1, new Position(0, 1), new Position(2, 1));
+        Set<Constraint> constraints = Set.of(new VertexConstraint(1, 1, new Position(1, 1)));
+        List<Agent> agents = List.of(moved);
+
+        ACBS.Result warm = new CBS(map, agents, TIMEOUT_MS).solve(agents, Map.of(), constraints);
+        assertTrue(warm.status, warm.success);
+        assertEquals(2, warm.solution.get(1).getCost());
+    }
+
+    public void testBoundedSolversReportSolvedToo() {
+        List<Agent> agents = List.of(agent);
+        Map<Integer, Path> previous = Map.of(0, detour);
+        assertEquals("Solved-ECBS", new ECBS(map, agents, TIMEOUT_MS, 1.5).solve(agents, previous).status);
+        assertEquals("Solved-EECBS", new EECBS(map, agents, TIMEOUT_MS, 1.5).solve(agents, previous).status);
+    }
+}